@@ -1,22 +1,82 @@
 package com.yacotaco;
 
+import java.time.Duration;
+import java.time.Instant;
+
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.scene.Scene;
 import javafx.stage.Stage;
 
 /**
  * App class. Inits and binds all modules.
  *
+ * Only what first frame shows is built before it; engine data is loaded
+ * after it. With reversi.startup.report set, time from JVM start to first
+ * frame is printed to standard error; with reversi.startup.exit set, app
+ * also exits after first frame (training run of class data archive).
+ *
  * @author Kamil Kurach
  * @author https://github.com/yacotaco
  * @version 1.0
  */
 public final class App extends Application {
+    /** Flag for exit after first frame. */
+    private final boolean exitAfterFirstFrame =
+        Boolean.getBoolean("reversi.startup.exit");
+    /** Flag for printing time to first frame. */
+    private final boolean reportFirstFrame = exitAfterFirstFrame
+        || Boolean.getBoolean("reversi.startup.report");
 
     @Override
     public void start(final Stage stage) {
         Board board = new Board();
         View view = new View(stage);
         Controller controller = new Controller(board, view, stage);
+        onFirstFrame(stage.getScene(), controller);
+    }
+
+    /** Runs startup work left for after first frame.
+     *
+     * @param scene main scene.
+     * @param controller controller.
+     */
+    private void onFirstFrame(final Scene scene,
+        final Controller controller) {
+        scene.addPostLayoutPulseListener(new Runnable() {
+            /** Flag for first pulse done. */
+            private boolean done;
+
+            @Override
+            public void run() {
+                if (done) {
+                    return;
+                }
+                done = true;
+                // listeners must not be removed while they are called
+                Platform.runLater(
+                    () -> scene.removePostLayoutPulseListener(this));
+                if (reportFirstFrame) {
+                    System.err.println("First frame after "
+                        + millisSinceJvmStart() + " ms");
+                }
+                if (exitAfterFirstFrame) {
+                    Platform.runLater(Platform::exit);
+                    return;
+                }
+                controller.loadEngine();
+            }
+        });
+    }
+
+    /** Gets time since JVM start.
+     *
+     * @return milliseconds, -1 if start time is unknown.
+     */
+    private static long millisSinceJvmStart() {
+        return ProcessHandle.current().info().startInstant()
+            .map(start -> Duration.between(start, Instant.now()).toMillis())
+            .orElse(-1L);
     }
 
     /**
@@ -0,0 +1,436 @@
+package com.yacotaco;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * BatchAnalyzer class.
+ * Headless analysis of directories of save files. Files are found with
+ * NIO directory walk, then loaded by {@link SaveFormat} (binary or legacy
+ * text saves) and analysed in parallel on work-stealing pool. One result
+ * line per file is streamed as soon as it is ready, as CSV or JSON lines.
+ *
+ * Analysis: side to move, disc counts, legal moves and best move by Monte
+ * Carlo search with given budget. When few empty squares remain, position
+ * is solved exactly instead and best move is exact one (no win rate).
+ *
+ * Usage: {@code BatchAnalyzer [-budget ms] [-exact empties] [-threads N]
+ * [-format csv|json] [-glob pattern] <dir or file>...}
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+public final class BatchAnalyzer {
+    /** Default search budget per position in milliseconds. */
+    public static final int DEFAULT_BUDGET_MILLIS = 100;
+    /** Default largest number of empty squares solved exactly. */
+    public static final int DEFAULT_EXACT_EMPTIES = 14;
+    /** CSV header. */
+    private static final String CSV_HEADER =
+        "file,turn,white,black,empty,moves,best,winrate,exact,exactmove,error";
+    /** Nanoseconds in millisecond. */
+    private static final long NANOS_PER_MILLI = 1000000L;
+    /** Nanoseconds in second. */
+    private static final double NANOS_PER_SECOND = 1e9;
+    /** Number of squares on board. */
+    private static final int SQUARES = 64;
+
+    /** Search budget per position in milliseconds (0 - no search). */
+    private final int budgetMillis;
+    /** Largest number of empty squares solved exactly (-1 - never). */
+    private final int exactEmpties;
+    /** Flag for JSON lines output instead of CSV. */
+    private final boolean json;
+    /** Result output, guarded by itself. */
+    private final PrintWriter out;
+    /** Search of each pool thread. */
+    private final ThreadLocal<MonteCarloSearch> searches =
+        ThreadLocal.withInitial(
+            () -> new MonteCarloSearch(System.nanoTime()));
+    /** Analysed files. */
+    private final LongAdder analysed = new LongAdder();
+    /** Files which couldn't be read. */
+    private final LongAdder failed = new LongAdder();
+
+    /**
+     * BatchAnalyzer constructor.
+     *
+     * @param budget search budget per position in milliseconds.
+     * @param exact largest number of empty squares solved exactly.
+     * @param jsonLines true for JSON lines, false for CSV.
+     * @param output result output.
+     */
+    public BatchAnalyzer(final int budget, final int exact,
+        final boolean jsonLines, final PrintWriter output) {
+        this.budgetMillis = budget;
+        this.exactEmpties = exact;
+        this.json = jsonLines;
+        this.out = output;
+    }
+
+    /**
+     * Finds save files under directories.
+     *
+     * @param roots directories or files.
+     * @param glob file name pattern (null for all files).
+     * @return regular files found.
+     * @throws IOException exception on directory walk.
+     */
+    public static List<Path> findSaves(final List<Path> roots,
+        final String glob) throws IOException {
+        PathMatcher matcher = glob == null ? null
+            : FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        List<Path> files = new ArrayList<Path>();
+        for (Path root : roots) {
+            try (Stream<Path> walk = Files.walk(root)) {
+                files.addAll(walk.filter(Files::isRegularFile)
+                    .filter(p -> matcher == null
+                        || matcher.matches(p.getFileName()))
+                    .collect(Collectors.toList()));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Analyses all files on pool and streams results.
+     *
+     * @param files save files.
+     * @param pool work-stealing pool.
+     * @throws InterruptedException exception on interrupted wait.
+     */
+    public void analyzeAll(final List<Path> files, final ForkJoinPool pool)
+        throws InterruptedException {
+        if (!json) {
+            out.println(CSV_HEADER);
+        }
+        try {
+            pool.submit(() -> files.parallelStream().forEach(this::analyze))
+                .get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        out.flush();
+    }
+
+    /**
+     * Analyses one save file and writes result line.
+     *
+     * @param file save file.
+     */
+    public void analyze(final Path file) {
+        SavedGame game;
+        try {
+            game = SaveFormat.load(file);
+        } catch (IOException | RuntimeException e) {
+            failed.increment();
+            write(file, null, e.getMessage() == null ? e.toString()
+                : e.getMessage());
+            return;
+        }
+        Result result = new Result();
+        long white = game.getWhiteMask();
+        long black = game.getBlackMask();
+        int turn = game.getPlayerTurn();
+        long own = turn == 0 ? white : black;
+        long opp = turn == 0 ? black : white;
+        result.turn = turn;
+        result.white = Long.bitCount(white);
+        result.black = Long.bitCount(black);
+        result.empty = SQUARES - result.white - result.black;
+        result.moves = BitBoard.validMoves(own, opp);
+        if (result.empty <= exactEmpties) {
+            EndgameSolver solver = new EndgameSolver();
+            result.exactMove = solver.bestMove(own, opp);
+            result.exact = solver.getScore();
+            EngineMetrics.get().addNodes(solver.getNodes());
+            result.solved = true;
+            // exact move is better than any sampled one
+            result.best = result.exactMove;
+        } else if (budgetMillis > 0 && result.moves != 0) {
+            MonteCarloSearch search = searches.get();
+            result.best = search.bestMove(own, opp,
+                System.nanoTime() + budgetMillis * NANOS_PER_MILLI);
+            for (int i = 0; i < search.size(); i++) {
+                if (search.getSquare(i) == result.best
+                    && search.getVisits(i) > 0) {
+                    result.winRate = search.getWinRate(i);
+                }
+            }
+        }
+        analysed.increment();
+        write(file, result, null);
+    }
+
+    /**
+     * Writes result line.
+     *
+     * @param file save file.
+     * @param result analysis result or null on error.
+     * @param error error message or null.
+     */
+    private void write(final Path file, final Result result,
+        final String error) {
+        String line = json ? toJson(file, result, error)
+            : toCsv(file, result, error);
+        synchronized (out) {
+            // readers of stream see each file as soon as it is analysed
+            out.println(line);
+            out.flush();
+        }
+    }
+
+    /**
+     * Formats CSV line.
+     *
+     * @param file save file.
+     * @param r analysis result or null on error.
+     * @param error error message or null.
+     * @return CSV line.
+     */
+    private static String toCsv(final Path file, final Result r,
+        final String error) {
+        StringBuilder sb = new StringBuilder(csvField(file.toString()));
+        if (r == null) {
+            return sb.append(",,,,,,,,,,").append(csvField(error))
+                .toString();
+        }
+        sb.append(',').append(r.turn == 0 ? "white" : "black")
+            .append(',').append(r.white).append(',').append(r.black)
+            .append(',').append(r.empty)
+            .append(',').append(csvField(moveList(r.moves, " ")))
+            .append(',').append(squareOrEmpty(r.best))
+            .append(',').append(Double.isNaN(r.winRate) ? ""
+                : String.format(Locale.ROOT, "%.3f", r.winRate))
+            .append(',').append(r.solved ? Integer.toString(r.exact) : "")
+            .append(',').append(r.solved ? squareOrEmpty(r.exactMove) : "")
+            .append(',');
+        return sb.toString();
+    }
+
+    /**
+     * Formats JSON line.
+     *
+     * @param file save file.
+     * @param r analysis result or null on error.
+     * @param error error message or null.
+     * @return JSON object on one line.
+     */
+    private static String toJson(final Path file, final Result r,
+        final String error) {
+        StringBuilder sb = new StringBuilder("{\"file\":")
+            .append(jsonString(file.toString()));
+        if (r == null) {
+            return sb.append(",\"error\":").append(jsonString(error))
+                .append('}').toString();
+        }
+        sb.append(",\"turn\":\"").append(r.turn == 0 ? "white" : "black")
+            .append("\",\"white\":").append(r.white)
+            .append(",\"black\":").append(r.black)
+            .append(",\"empty\":").append(r.empty)
+            .append(",\"moves\":[");
+        String moves = moveList(r.moves, "\",\"");
+        if (!moves.isEmpty()) {
+            sb.append('"').append(moves).append('"');
+        }
+        sb.append(']');
+        if (r.best >= 0) {
+            sb.append(",\"best\":\"")
+                .append(GameRecord.squareToString(r.best)).append('"');
+        }
+        if (!Double.isNaN(r.winRate)) {
+            sb.append(String.format(Locale.ROOT, ",\"winrate\":%.3f",
+                r.winRate));
+        }
+        if (r.solved) {
+            sb.append(",\"exact\":").append(r.exact);
+            if (r.exactMove >= 0) {
+                sb.append(",\"exactmove\":\"")
+                    .append(GameRecord.squareToString(r.exactMove))
+                    .append('"');
+            }
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Lists moves of mask.
+     *
+     * @param moves bit mask of moves.
+     * @param separator separator between moves.
+     * @return moves like "d3" joined by separator.
+     */
+    private static String moveList(final long moves,
+        final String separator) {
+        StringBuilder sb = new StringBuilder();
+        long left = moves;
+        while (left != 0) {
+            if (sb.length() > 0) {
+                sb.append(separator);
+            }
+            sb.append(GameRecord.squareToString(
+                Long.numberOfTrailingZeros(left)));
+            left &= left - 1;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Formats square or empty string for no move.
+     *
+     * @param square square or -1.
+     * @return square name or empty string.
+     */
+    private static String squareOrEmpty(final int square) {
+        return square >= 0 ? GameRecord.squareToString(square) : "";
+    }
+
+    /**
+     * Quotes CSV field if needed.
+     *
+     * @param value field value.
+     * @return CSV field.
+     */
+    private static String csvField(final String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+            && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Quotes JSON string.
+     *
+     * @param value string value.
+     * @return JSON string literal.
+     */
+    private static String jsonString(final String value) {
+        final int firstPrintable = 0x20;
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < firstPrintable) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * Gets number of analysed files.
+     *
+     * @return analysed files.
+     */
+    public long getAnalysed() {
+        return analysed.sum();
+    }
+
+    /**
+     * Gets number of files which couldn't be read.
+     *
+     * @return failed files.
+     */
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    /** Analysis result of one position. */
+    private static final class Result {
+        /** Player to move. */
+        private int turn;
+        /** White discs. */
+        private int white;
+        /** Black discs. */
+        private int black;
+        /** Empty squares. */
+        private int empty;
+        /** Legal moves. */
+        private long moves;
+        /** Best move by search (exact one if solved) or -1. */
+        private int best = -1;
+        /** Win rate of best move (NaN if move wasn't searched). */
+        private double winRate = Double.NaN;
+        /** Flag for exactly solved position. */
+        private boolean solved;
+        /** Exact score for player to move. */
+        private int exact;
+        /** Best move by exact search or -1. */
+        private int exactMove = -1;
+    }
+
+    /**
+     * Runs batch analysis from command line.
+     *
+     * @param args options and directories.
+     * @throws IOException exception on directory walk.
+     * @throws InterruptedException exception on interrupted wait.
+     */
+    public static void main(final String[] args)
+        throws IOException, InterruptedException {
+        int budget = DEFAULT_BUDGET_MILLIS;
+        int exact = DEFAULT_EXACT_EMPTIES;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean jsonLines = false;
+        String glob = null;
+        List<Path> roots = new ArrayList<Path>();
+        for (int i = 0; i < args.length; i++) {
+            boolean hasValue = i + 1 < args.length;
+            if (args[i].equals("-budget") && hasValue) {
+                budget = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-exact") && hasValue) {
+                exact = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-threads") && hasValue) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-format") && hasValue) {
+                jsonLines = args[++i].equals("json");
+            } else if (args[i].equals("-glob") && hasValue) {
+                glob = args[++i];
+            } else {
+                roots.add(Paths.get(args[i]));
+            }
+        }
+        if (roots.isEmpty()) {
+            System.err.println("Usage: BatchAnalyzer [-budget ms]"
+                + " [-exact empties] [-threads N] [-format csv|json]"
+                + " [-glob pattern] <dir or file>...");
+            System.exit(1);
+        }
+        long start = System.nanoTime();
+        List<Path> files = findSaves(roots, glob);
+        PrintWriter output = new PrintWriter(new BufferedWriter(
+            new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+        BatchAnalyzer analyzer = new BatchAnalyzer(budget, exact, jsonLines,
+            output);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            analyzer.analyzeAll(files, pool);
+        } finally {
+            pool.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / NANOS_PER_SECOND;
+        System.err.printf("%d files analysed, %d failed in %.2fs%n",
+            analyzer.getAnalysed(), analyzer.getFailed(), seconds);
+    }
+}
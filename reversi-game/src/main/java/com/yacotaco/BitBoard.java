@@ -0,0 +1,313 @@
+package com.yacotaco;
+
+/**
+ * BitBoard class.
+ * Move generation and disc flipping on 64-bit masks, used by engine code
+ * which can't afford Board objects. Bit index of square is row * 8 + col.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+public final class BitBoard {
+    /** Number of squares on board. */
+    public static final int SQUARES = 64;
+    /** Squares in column 0 (a). */
+    public static final long FILE_A = 0x0101010101010101L;
+    /** Squares in column 7 (h). */
+    public static final long FILE_H = 0x8080808080808080L;
+    /** Squares in row 0. */
+    private static final long RANK_1 = 0xFFL;
+    /** Squares in row 7. */
+    private static final long RANK_8 = 0xFF00000000000000L;
+    /** Squares on board edge. */
+    private static final long EDGES = FILE_A | FILE_H | RANK_1 | RANK_8;
+    /** Number of diagonals in one direction. */
+    private static final int DIAGONAL_COUNT = 15;
+    /** Game status: player to move has legal move. */
+    public static final int MOVE = 0;
+    /** Game status: player to move must pass. */
+    public static final int PASS = 1;
+    /** Game status: neither player can move. */
+    public static final int GAME_OVER = 2;
+    /** Shift of each of 8 directions (positive is left shift). */
+    private static final int[] SHIFTS = {1, -1, 8, -8, 9, 7, -7, -9};
+    /** Mask applied after shift to drop squares wrapped around board. */
+    private static final long[] MASKS = {
+        ~FILE_A, ~FILE_H, -1L, -1L, ~FILE_A, ~FILE_H, ~FILE_A, ~FILE_H};
+    /** Squares from each square to board edge in each direction. */
+    private static final long[][] RAYS = new long[SQUARES][SHIFTS.length];
+    /** Diagonals (row - col constant) indexed by row - col + 7. */
+    private static final long[] DIAGONALS = new long[DIAGONAL_COUNT];
+    /** Anti-diagonals (row + col constant) indexed by row + col. */
+    private static final long[] ANTI_DIAGONALS = new long[DIAGONAL_COUNT];
+
+    static {
+        final int cols = 8;
+        for (int square = 0; square < SQUARES; square++) {
+            int row = square / cols;
+            int col = square % cols;
+            DIAGONALS[row - col + cols - 1] |= 1L << square;
+            ANTI_DIAGONALS[row + col] |= 1L << square;
+            for (int dir = 0; dir < SHIFTS.length; dir++) {
+                long x = shift(1L << square, dir);
+                while (x != 0) {
+                    RAYS[square][dir] |= x;
+                    x = shift(x, dir);
+                }
+            }
+        }
+    }
+
+    /**
+     * BitBoard constructor.
+     */
+    private BitBoard() {
+    }
+
+    /**
+     * Shifts all squares one step in direction.
+     *
+     * @param x bit mask.
+     * @param dir direction index (0-7).
+     * @return shifted mask.
+     */
+    private static long shift(final long x, final int dir) {
+        int s = SHIFTS[dir];
+        return (s > 0 ? x << s : x >>> -s) & MASKS[dir];
+    }
+
+    /**
+     * Gets all legal moves of player.
+     * Each axis is filled in both directions at once; opponent discs in
+     * edge columns are masked out on axes which could wrap around board.
+     *
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @return bit mask of legal moves.
+     */
+    public static long validMoves(final long own, final long opp) {
+        final int horizontal = 1;
+        final int vertical = 8;
+        final int diagonal = 9;
+        final int antiDiagonal = 7;
+        long inner = opp & ~(FILE_A | FILE_H);
+        long moves = axisMoves(own, inner, horizontal)
+            | axisMoves(own, opp, vertical)
+            | axisMoves(own, inner, diagonal)
+            | axisMoves(own, inner, antiDiagonal);
+        return moves & ~(own | opp);
+    }
+
+    /**
+     * Gets legal moves of both players in one pass over position.
+     *
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @param out array receiving moves of player to move and of opponent.
+     */
+    public static void bothMoves(final long own, final long opp,
+        final long[] out) {
+        final int horizontal = 1;
+        final int vertical = 8;
+        final int diagonal = 9;
+        final int antiDiagonal = 7;
+        long edges = FILE_A | FILE_H;
+        long innerOwn = own & ~edges;
+        long innerOpp = opp & ~edges;
+        long empty = ~(own | opp);
+        out[0] = (axisMoves(own, innerOpp, horizontal)
+            | axisMoves(own, opp, vertical)
+            | axisMoves(own, innerOpp, diagonal)
+            | axisMoves(own, innerOpp, antiDiagonal)) & empty;
+        out[1] = (axisMoves(opp, innerOwn, horizontal)
+            | axisMoves(opp, own, vertical)
+            | axisMoves(opp, innerOwn, diagonal)
+            | axisMoves(opp, innerOwn, antiDiagonal)) & empty;
+    }
+
+    /**
+     * Gets game status of position. Opponent moves are generated only if
+     * player to move has none.
+     *
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @return MOVE, PASS or GAME_OVER.
+     */
+    public static int status(final long own, final long opp) {
+        if (validMoves(own, opp) != 0) {
+            return MOVE;
+        }
+        return validMoves(opp, own) != 0 ? PASS : GAME_OVER;
+    }
+
+    /**
+     * Gets squares next to discs in any of 8 directions (and discs
+     * themselves).
+     *
+     * @param x bit mask.
+     * @return bit mask of discs and their neighbours.
+     */
+    public static long neighbours(final long x) {
+        final int row = 8;
+        long line = x | ((x << 1) & ~FILE_A) | ((x >>> 1) & ~FILE_H);
+        return line | (line << row) | (line >>> row);
+    }
+
+    /**
+     * Gets discs of player which can never be flipped. Disc is stable if
+     * on each of 4 axes its line is full or one of its two neighbours is
+     * off board or stable disc of same player; stable set grows from
+     * corners and edges until it stops changing. Result is lower bound:
+     * some stable discs (e.g. protected by opponent discs) are missed.
+     *
+     * @param own discs of player.
+     * @param opp discs of opponent.
+     * @return bit mask of stable discs of player.
+     */
+    public static long stable(final long own, final long opp) {
+        final int half = 32;
+        final int quarter = 16;
+        final int row = 8;
+        final int diagonal = 9;
+        final int antiDiagonal = 7;
+        long filled = own | opp;
+        long fullRows = 0;
+        for (int shift = 0; shift < SQUARES; shift += row) {
+            long line = RANK_1 << shift;
+            if ((filled & line) == line) {
+                fullRows |= line;
+            }
+        }
+        long cols = filled & (filled >>> half);
+        cols &= cols >>> quarter;
+        cols &= cols >>> row;
+        long fullCols = (cols & RANK_1) * FILE_A;
+        long fullDiagonals = 0;
+        long fullAntiDiagonals = 0;
+        for (int i = 0; i < DIAGONAL_COUNT; i++) {
+            if ((filled & DIAGONALS[i]) == DIAGONALS[i]) {
+                fullDiagonals |= DIAGONALS[i];
+            }
+            if ((filled & ANTI_DIAGONALS[i]) == ANTI_DIAGONALS[i]) {
+                fullAntiDiagonals |= ANTI_DIAGONALS[i];
+            }
+        }
+        // axes already safe without help of stable neighbours
+        long horizontal = fullRows | FILE_A | FILE_H;
+        long vertical = fullCols | RANK_1 | RANK_8;
+        long diagonals = fullDiagonals | EDGES;
+        long antiDiagonals = fullAntiDiagonals | EDGES;
+        long stable = 0;
+        while (true) {
+            long next = own
+                & (horizontal | ((stable << 1) & ~FILE_A)
+                    | ((stable >>> 1) & ~FILE_H))
+                & (vertical | (stable << row) | (stable >>> row))
+                & (diagonals | ((stable << diagonal) & ~FILE_A)
+                    | ((stable >>> diagonal) & ~FILE_H))
+                & (antiDiagonals | ((stable << antiDiagonal) & ~FILE_H)
+                    | ((stable >>> antiDiagonal) & ~FILE_A));
+            if (next == stable) {
+                return stable;
+            }
+            stable = next;
+        }
+    }
+
+    /**
+     * Gets squares behind runs of opponent discs in both directions of
+     * axis.
+     *
+     * @param own discs of player to move.
+     * @param opp opponent discs which can be flipped along axis.
+     * @param s shift of one step along axis.
+     * @return squares reached (not masked by empty squares).
+     */
+    private static long axisMoves(final long own, final long opp,
+        final int s) {
+        final int s2 = s + s;
+        long up = opp & (own << s);
+        long down = opp & (own >>> s);
+        up |= opp & (up << s);
+        down |= opp & (down >>> s);
+        // pairs of opponent discs let two more steps be taken at once
+        long upPairs = opp & (opp << s);
+        long downPairs = opp & (opp >>> s);
+        up |= upPairs & (up << s2);
+        down |= downPairs & (down >>> s2);
+        up |= upPairs & (up << s2);
+        down |= downPairs & (down >>> s2);
+        return (up << s) | (down >>> s);
+    }
+
+    /**
+     * Gets opponent discs flipped by move.
+     *
+     * @param square row * 8 + col of move.
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @return bit mask of flipped discs (0 if move is illegal).
+     */
+    public static long flips(final int square, final long own,
+        final long opp) {
+        final int west = 1;
+        final int south = 2;
+        final int north = 3;
+        final int southEast = 4;
+        final int southWest = 5;
+        final int northEast = 6;
+        final int northWest = 7;
+        long[] rays = RAYS[square];
+        long blockers = ~opp;
+        return up(rays[0], blockers, own) | down(rays[west], blockers, own)
+            | up(rays[south], blockers, own)
+            | down(rays[north], blockers, own)
+            | up(rays[southEast], blockers, own)
+            | up(rays[southWest], blockers, own)
+            | down(rays[northEast], blockers, own)
+            | down(rays[northWest], blockers, own);
+    }
+
+    /**
+     * Gets discs flipped along ray going towards higher squares.
+     *
+     * @param ray squares of ray.
+     * @param blockers squares without opponent disc.
+     * @param own discs of player to move.
+     * @return flipped discs of ray.
+     */
+    private static long up(final long ray, final long blockers,
+        final long own) {
+        long stops = ray & blockers;
+        // nearest stop is lowest one
+        long first = stops & -stops;
+        return ray & (first - 1) & outflanked(first, own);
+    }
+
+    /**
+     * Gets discs flipped along ray going towards lower squares.
+     *
+     * @param ray squares of ray.
+     * @param blockers squares without opponent disc.
+     * @param own discs of player to move.
+     * @return flipped discs of ray.
+     */
+    private static long down(final long ray, final long blockers,
+        final long own) {
+        long first = Long.highestOneBit(ray & blockers);
+        return ray & -(first << 1) & outflanked(first, own);
+    }
+
+    /**
+     * Checks without branching if ray ends on own disc.
+     *
+     * @param first first square of ray without opponent disc (or 0).
+     * @param own discs of player to move.
+     * @return -1 (all bits) if first square holds own disc, 0 otherwise.
+     */
+    private static long outflanked(final long first, final long own) {
+        final int sign = 63;
+        return -(first & own) >> sign;
+    }
+}
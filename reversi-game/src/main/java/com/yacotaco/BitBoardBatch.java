@@ -0,0 +1,139 @@
+package com.yacotaco;
+
+/**
+ * BitBoardBatch class.
+ * Move generation and moves for many independent positions at once, kept
+ * as structure of arrays (own masks in one array, opponent masks in
+ * other). Bulk jobs like self-play and training call this instead of
+ * {@link BitBoard} per position.
+ *
+ * Loops are plain array arithmetic with constant shifts and no calls, so
+ * JIT compiler can vectorize them with SIMD instructions of machine.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+public final class BitBoardBatch {
+    /** Opponent discs which can be flipped on wrapping axes. */
+    private static final long INNER = ~(BitBoard.FILE_A | BitBoard.FILE_H);
+
+    /**
+     * BitBoardBatch constructor.
+     */
+    private BitBoardBatch() {
+    }
+
+    /**
+     * Gets legal moves of positions.
+     *
+     * @param own discs of players to move.
+     * @param opp discs of opponents.
+     * @param moves array receiving legal move masks.
+     * @param count number of positions.
+     */
+    public static void validMoves(final long[] own, final long[] opp,
+        final long[] moves, final int count) {
+        final int horizontal = 1;
+        final int vertical = 8;
+        final int diagonal = 9;
+        final int antiDiagonal = 7;
+        for (int i = 0; i < count; i++) {
+            moves[i] = 0L;
+        }
+        axisMoves(own, opp, moves, count, horizontal, INNER);
+        axisMoves(own, opp, moves, count, vertical, -1L);
+        axisMoves(own, opp, moves, count, diagonal, INNER);
+        axisMoves(own, opp, moves, count, antiDiagonal, INNER);
+        for (int i = 0; i < count; i++) {
+            moves[i] &= ~(own[i] | opp[i]);
+        }
+    }
+
+    /**
+     * Adds squares behind runs of opponent discs along axis.
+     * Same steps as {@link BitBoard#validMoves(long, long)}, one axis per
+     * pass so loop body stays small enough to be vectorized.
+     *
+     * @param own discs of players to move.
+     * @param opp discs of opponents.
+     * @param moves array collecting moves.
+     * @param count number of positions.
+     * @param s shift of one step along axis.
+     * @param mask opponent discs which can be flipped along axis.
+     */
+    private static void axisMoves(final long[] own, final long[] opp,
+        final long[] moves, final int count, final int s, final long mask) {
+        final int s2 = s + s;
+        for (int i = 0; i < count; i++) {
+            long o = own[i];
+            long p = opp[i] & mask;
+            long up = p & (o << s);
+            long down = p & (o >>> s);
+            up |= p & (up << s);
+            down |= p & (down >>> s);
+            long upPairs = p & (p << s);
+            long downPairs = p & (p >>> s);
+            up |= upPairs & (up << s2);
+            down |= downPairs & (down >>> s2);
+            up |= upPairs & (up << s2);
+            down |= downPairs & (down >>> s2);
+            moves[i] |= (up << s) | (down >>> s);
+        }
+    }
+
+    /**
+     * Counts legal moves of positions.
+     *
+     * @param moves legal move masks.
+     * @param mobility array receiving number of moves.
+     * @param count number of positions.
+     */
+    public static void mobility(final long[] moves, final int[] mobility,
+        final int count) {
+        for (int i = 0; i < count; i++) {
+            mobility[i] = Long.bitCount(moves[i]);
+        }
+    }
+
+    /**
+     * Gets discs flipped by one move in each position.
+     *
+     * @param own discs of players to move.
+     * @param opp discs of opponents.
+     * @param squares move of each position.
+     * @param flips array receiving flipped discs (0 for illegal move).
+     * @param count number of positions.
+     */
+    public static void flips(final long[] own, final long[] opp,
+        final int[] squares, final long[] flips, final int count) {
+        for (int i = 0; i < count; i++) {
+            flips[i] = BitBoard.flips(squares[i], own[i], opp[i]);
+        }
+    }
+
+    /**
+     * Plays one move in each position and swaps sides, so arrays hold
+     * positions of next players to move. Negative square is a pass.
+     *
+     * @param own discs of players to move.
+     * @param opp discs of opponents.
+     * @param squares move of each position (legal move or pass).
+     * @param count number of positions.
+     */
+    public static void play(final long[] own, final long[] opp,
+        final int[] squares, final int count) {
+        for (int i = 0; i < count; i++) {
+            int square = squares[i];
+            long o = own[i];
+            long p = opp[i];
+            if (square >= 0) {
+                long flipped = BitBoard.flips(square, o, p);
+                o |= flipped | (1L << square);
+                p &= ~flipped;
+            }
+            own[i] = p;
+            opp[i] = o;
+        }
+    }
+}
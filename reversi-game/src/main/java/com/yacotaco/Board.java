@@ -10,6 +10,12 @@ import java.util.ArrayList;
  * @version 1.0
  */
 public class Board {
+    /** Game status: player to move has valid move. */
+    public static final int STATUS_MOVE = BitBoard.MOVE;
+    /** Game status: player to move must pass. */
+    public static final int STATUS_PASS = BitBoard.PASS;
+    /** Game status: neither player can move. */
+    public static final int STATUS_GAME_OVER = BitBoard.GAME_OVER;
     /** Number of rows. */
     private final int rows = 8;
     /** Number of columns. */
@@ -21,6 +27,22 @@ public class Board {
     private ArrayList<Integer[]> allValidMoves = new ArrayList<Integer[]>();
     /** List of all opponent discs captured by player.*/
     private ArrayList<Disc> flipedDiscsToMark = new ArrayList<Disc>();
+    /** Bit mask of white discs, kept in sync with boardGrid. */
+    private long whiteMask;
+    /** Bit mask of black discs, kept in sync with boardGrid. */
+    private long blackMask;
+    /** Position version, changed on every disc state change. */
+    private long version;
+    /** Cached valid move masks of white and black. */
+    private final long[] moveMasks = new long[2];
+    /** Position version of cached move masks (-1 if none). */
+    private long movesVersion = -1L;
+    /** Player of allValidMoves list (-1 if none). */
+    private int listPlayer = -1;
+    /** Position version of allValidMoves list. */
+    private long listVersion = -1L;
+    /** Flag for counting generated moves in engine metrics. */
+    private boolean metricsOn = true;
 
     /**
      * Board constructor.
@@ -36,6 +58,8 @@ public class Board {
      */
     public void initBoard() {
         Integer state = -1;
+        whiteMask = 0L;
+        blackMask = 0L;
         for (int row = 0; row < boardGrid.length; row++) {
             for (int col = 0; col < boardGrid[row].length; col++) {
                 addDisc(row, col, state);
@@ -142,6 +166,15 @@ public class Board {
      final Integer discState) {
         Disc disc = getDiscFromBoard(row, col);
         disc.setState(discState);
+        long bit = 1L << (row * cols + col);
+        whiteMask &= ~bit;
+        blackMask &= ~bit;
+        version++;
+        if (discState == 0) {
+            whiteMask |= bit;
+        } else if (discState == 1) {
+            blackMask |= bit;
+        }
     }
 
     /**
@@ -165,382 +198,165 @@ public class Board {
         return list;
     }
 
-    // ************** SEARCH AND VALIDATE MOVES **************
-
-    /** Gets all horizontal moves.
+    /**
+     * Gets bit mask of all discs with given state.
+     * Bit index of square is row * 8 + col.
      *
-     * @param disc Disc object.
-     * @return list of arrays with moves coordinates.
+     * @param discState disc state (0 - white, 1 - black, -1 - empty).
+     * @return bit mask of squares.
      */
-    private ArrayList<Integer[]> getHorizontalMoves(final Disc disc) {
-        Integer discRow = disc.getRow();
-        Integer discCol = disc.getCol();
-        int colRight = discCol + 1;
-        int opponentDiscState = 0;
-        int nextDiscState = -1;
-        ArrayList<Integer[]> result = new ArrayList<Integer[]>();
-
-        if (disc.getState() == 0) {
-            opponentDiscState = 1;
-        } else if (disc.getState() == 1) {
-            opponentDiscState = 0;
-        }
-
-        // search right
-        if (colRight <= boardGrid.length - 1) {
-            nextDiscState = this.getDiscFromBoard(discRow, colRight)
-                .getState();
-        }
-
-        while (nextDiscState == opponentDiscState) {
-            colRight++;
-
-            if (colRight > boardGrid.length - 1) {
-                break;
-            }
-
-            nextDiscState = this.getDiscFromBoard(discRow, colRight)
-                .getState();
-
-            if (nextDiscState == -1) {
-                Integer[] move = new Integer[2];
-                move[0] = discRow;
-                move[1] = colRight;
-                result.add(move);
-                break;
-            }
-        }
-
-        // search left
-        int colLeft = discCol - 1;
-        int nextDiscStateLeft = -1;
-
-        if (colLeft >= 0) {
-            nextDiscStateLeft = this.getDiscFromBoard(discRow, colLeft)
-                .getState();
-        }
-
-        while (nextDiscStateLeft == opponentDiscState) {
-            colLeft--;
-
-            if (colLeft < 0) {
-                break;
-            }
-
-            nextDiscStateLeft = this.getDiscFromBoard(discRow, colLeft)
-                .getState();
-
-            if (nextDiscStateLeft == -1) {
-                Integer[] move = new Integer[2];
-                move[0] = discRow;
-                move[1] = colLeft;
-                result.add(move);
-                break;
-            }
+    public long getDiscMask(final Integer discState) {
+        if (discState == 0) {
+            return whiteMask;
+        } else if (discState == 1) {
+            return blackMask;
         }
-        return result;
+        return ~(whiteMask | blackMask);
     }
 
-    /** Gets all vertical moves.
+    /**
+     * Counts discs of player.
      *
-     * @param disc Disc object.
-     * @return list of arrays with moves coordinates.
+     * @param discState disc state (0 - white, 1 - black).
+     * @return number of discs.
      */
-    private ArrayList<Integer[]> getVerticalMoves(final Disc disc) {
-        Integer discRow = disc.getRow();
-        Integer discCol = disc.getCol();
-        int rowUp = discRow - 1;
-        int opponentDiscState = 0;
-        int nextDiscStateUp = -1;
-        ArrayList<Integer[]> result = new ArrayList<Integer[]>();
-
-        if (disc.getState() == 0) {
-            opponentDiscState = 1;
-        } else if (disc.getState() == 1) {
-            opponentDiscState = 0;
-        }
-
-        // search up
-        if (rowUp >= 0) {
-            nextDiscStateUp = this.getDiscFromBoard(rowUp, discCol).getState();
-        }
-
-        while (nextDiscStateUp == opponentDiscState) {
-            rowUp--;
-            if (rowUp < 0) {
-                break;
-            }
-
-            nextDiscStateUp = this.getDiscFromBoard(rowUp, discCol).getState();
-
-            if (nextDiscStateUp == -1) {
-                Integer[] move = new Integer[2];
-                move[0] = rowUp;
-                move[1] = discCol;
-                result.add(move);
-                break;
-            }
-        }
-
-        int rowDown = discRow + 1;
-        int nextDiscStateDown = -1;
-
-        // search down
-        if (rowDown <= boardGrid.length - 1) {
-            nextDiscStateDown = this.getDiscFromBoard(rowDown, discCol)
-                .getState();
-        }
-
-        while (nextDiscStateDown == opponentDiscState) {
-            rowDown++;
-            if (rowDown > boardGrid.length - 1) {
-                break;
-            }
-
-            nextDiscStateDown = this.getDiscFromBoard(rowDown, discCol)
-                .getState();
-
-            if (nextDiscStateDown == -1) {
-                Integer[] move = new Integer[2];
-                move[0] = rowDown;
-                move[1] = discCol;
-                result.add(move);
-                break;
-            }
-        }
-        return result;
+    public int count(final Integer discState) {
+        return Long.bitCount(getDiscMask(discState));
     }
 
-    /** Gets all diagonal moves.
+    /**
+     * Turns counting of generated moves in engine metrics on or off.
      *
-     * @param disc Disc object.
-     * @return list of arrays with moves coordinates.
+     * @param on false for board whose work isn't game work (warm-up).
      */
-    private ArrayList<Integer[]> getDiagonalMoves(final Disc disc) {
-        ArrayList<Integer[]> result = new ArrayList<Integer[]>();
-        Integer row = disc.getRow();
-        Integer col = disc.getCol();
-        Integer discState = disc.getState();
-        int nextDiscState = -1;
-        int opponentDiscState = 0;
-        int prevDiscState = discState;
-
-        if (disc.getState() == 0) {
-            opponentDiscState = 1;
-        } else if (disc.getState() == 1) {
-            opponentDiscState = 0;
-        }
-
-        // diagonal up right
-        for (int i = row - 1; i >= 0; i--) {
-            col++;
-
-            if (col > boardGrid.length - 1) {
-                break;
-            }
-
-            nextDiscState = this.getDiscFromBoard(i, col).getState();
-
-            if (nextDiscState == discState) {
-                break;
-            }
-
-            if (nextDiscState == opponentDiscState) {
-                prevDiscState = opponentDiscState;
-                continue;
-            }
-
-            if (nextDiscState == -1 && prevDiscState != discState) {
-                Integer[] move = new Integer[2];
-                move[0] = i;
-                move[1] = col;
-                result.add(move);
-                break;
-            } else if (nextDiscState == -1 && prevDiscState == discState) {
-                break;
-            }
-        }
-
-        row = disc.getRow();
-        col = disc.getCol();
-        discState = disc.getState();
-        nextDiscState = -1;
-        opponentDiscState = 0;
-        prevDiscState = discState;
-
-        if (disc.getState() == 0) {
-            opponentDiscState = 1;
-        } else if (disc.getState() == 1) {
-            opponentDiscState = 0;
-        }
-
-        // diagonal down left
-        for (int i = row + 1; i < boardGrid.length; i++) {
-            col--;
-
-            if (col < 0) {
-                break;
-            }
-
-            nextDiscState = this.getDiscFromBoard(i, col).getState();
-
-            if (nextDiscState == discState) {
-                break;
-            }
-
-            if (nextDiscState == opponentDiscState) {
-                prevDiscState = opponentDiscState;
-                continue;
-            }
+    public void setMetricsOn(final boolean on) {
+        this.metricsOn = on;
+    }
 
-            if (nextDiscState == -1 && prevDiscState != discState) {
-                Integer[] move = new Integer[2];
-                move[0] = i;
-                move[1] = col;
-                result.add(move);
-                break;
-            } else if (nextDiscState == -1 && prevDiscState == discState) {
-                break;
+    /**
+     * Sets state of all discs from two bit masks.
+     * Squares not present in any mask are set to empty (-1).
+     *
+     * @param whiteMask bit mask of white discs.
+     * @param blackMask bit mask of black discs.
+     */
+    public void setDiscMasks(final long whiteMask, final long blackMask) {
+        for (int row = 0; row < boardGrid.length; row++) {
+            for (int col = 0; col < boardGrid[row].length; col++) {
+                long bit = 1L << (row * cols + col);
+                int state = -1;
+                if ((whiteMask & bit) != 0) {
+                    state = 0;
+                } else if ((blackMask & bit) != 0) {
+                    state = 1;
+                }
+                modifyDiscState(row, col, state);
             }
         }
+    }
 
-        row = disc.getRow();
-        col = disc.getCol();
-        discState = disc.getState();
-        nextDiscState = -1;
-        opponentDiscState = 0;
-        prevDiscState = discState;
-
-        if (disc.getState() == 0) {
-            opponentDiscState = 1;
-        } else if (disc.getState() == 1) {
-            opponentDiscState = 0;
-        }
-
-        // diagonal up left
-        for (int i = col - 1; i >= 0; i--) {
-            row--;
-
-            if (row < 0) {
-                break;
-            }
-
-            nextDiscState = this.getDiscFromBoard(row, i).getState();
-
-            if (nextDiscState == discState) {
-                break;
-            }
+    /**
+     * Gets canonical form of position among 8 board symmetries.
+     *
+     * @param player player to move (0 - white, 1 - black).
+     * @param out array receiving canonical own and opponent masks.
+     * @return symmetry used, see {@link Symmetry#toOriginal(int, int)}.
+     */
+    public int getCanonicalPosition(final Integer player, final long[] out) {
+        return Symmetry.canonical(getDiscMask(player),
+            getDiscMask(1 - player), out);
+    }
 
-            if (nextDiscState == opponentDiscState) {
-                prevDiscState = opponentDiscState;
-                continue;
-            }
+    // ************** SEARCH AND VALIDATE MOVES **************
 
-            if (nextDiscState == -1 && prevDiscState != discState) {
-                Integer[] move = new Integer[2];
-                move[0] = row;
-                move[1] = i;
-                result.add(move);
-                break;
-            } else if (nextDiscState == -1 && prevDiscState == discState) {
-                break;
-            }
+    /** Collects all valid moves for current player. List is regenerated
+     * only if position or player changed since last call.
+     *
+     * @param newPlayerTurn current player.
+     */
+    public void getValidMoves(final Integer newPlayerTurn) {
+        if (listPlayer == newPlayerTurn && listVersion == version) {
+            return;
         }
-
-        row = disc.getRow();
-        col = disc.getCol();
-        discState = disc.getState();
-        nextDiscState = -1;
-        opponentDiscState = 0;
-        prevDiscState = discState;
-
-        if (disc.getState() == 0) {
-            opponentDiscState = 1;
-        } else if (disc.getState() == 1) {
-            opponentDiscState = 0;
+        allValidMoves.clear();
+        long moves = getValidMoveMask(newPlayerTurn);
+        while (moves != 0) {
+            int square = Long.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+            allValidMoves.add(new Integer[] {square / cols, square % cols});
         }
+        listPlayer = newPlayerTurn;
+        listVersion = version;
+    }
 
-        // diagonal down right
-        for (int i = col + 1; i < boardGrid.length; i++) {
-            row++;
-
-            if (row > boardGrid.length - 1) {
-                break;
-            }
-
-            nextDiscState = this.getDiscFromBoard(row, i).getState();
-
-            if (nextDiscState == discState) {
-                break;
-            }
+    /** Gets bit mask of valid moves of player. Masks of both players are
+     * cached until position changes.
+     *
+     * @param player player (0 - white, 1 - black).
+     * @return bit mask of valid moves.
+     */
+    public long getValidMoveMask(final Integer player) {
+        updateMoveMasks();
+        return moveMasks[player];
+    }
 
-            if (nextDiscState == opponentDiscState) {
-                prevDiscState = opponentDiscState;
-                continue;
-            }
+    /** Gets number of valid moves of player.
+     *
+     * @param player player (0 - white, 1 - black).
+     * @return mobility.
+     */
+    public int getMobility(final Integer player) {
+        return Long.bitCount(getValidMoveMask(player));
+    }
 
-            if (nextDiscState == -1 && prevDiscState != discState) {
-                Integer[] move = new Integer[2];
-                move[0] = row;
-                move[1] = i;
-                result.add(move);
-                break;
-            } else if (nextDiscState == -1 && prevDiscState == discState) {
-                break;
-            }
+    /** Gets game status from mobility of both players.
+     *
+     * @param player player to move (0 - white, 1 - black).
+     * @return STATUS_MOVE, STATUS_PASS or STATUS_GAME_OVER.
+     */
+    public int getGameStatus(final Integer player) {
+        updateMoveMasks();
+        if (moveMasks[player] != 0) {
+            return STATUS_MOVE;
         }
-        return result;
+        return moveMasks[1 - player] != 0 ? STATUS_PASS : STATUS_GAME_OVER;
     }
 
-    /** Collects all valid moves for current player.
+    /** Gets discs of player which can never be flipped again.
      *
-     * @param newPlayerTurn current player.
+     * @param player player (0 - white, 1 - black).
+     * @return bit mask of stable discs (row * 8 + col).
      */
-    public void getValidMoves(final Integer newPlayerTurn) {
-        allValidMoves.clear();
-        // generate posible moves for player
-        ArrayList<Disc> list = this.getAllPlayerDiscs(newPlayerTurn);
-        for (Disc disc : list) {
-            ArrayList<Integer[]> hMoves = getHorizontalMoves(disc);
-            for (Integer[] move : hMoves) {
-                allValidMoves.add(move);
-            }
-
-            ArrayList<Integer[]> vMoves = getVerticalMoves(disc);
-            for (Integer[] move : vMoves) {
-                allValidMoves.add(move);
-            }
+    public long getStableDiscs(final Integer player) {
+        return BitBoard.stable(getDiscMask(player), getDiscMask(1 - player));
+    }
 
-            ArrayList<Integer[]> dMoves = getDiagonalMoves(disc);
-            for (Integer[] move : dMoves) {
-                allValidMoves.add(move);
-            }
+    /** Generates valid moves of both players if position changed. */
+    private void updateMoveMasks() {
+        if (movesVersion == version) {
+            return;
+        }
+        BitBoard.bothMoves(whiteMask, blackMask, moveMasks);
+        movesVersion = version;
+        if (!metricsOn) {
+            return;
         }
-        this.removeDuplicatedValidMoves();
+        EngineMetrics.get().addMovesGenerated(Long.bitCount(moveMasks[0])
+            + Long.bitCount(moveMasks[1]));
     }
 
-    /** Removes duplicated valid moves. */
-    private void removeDuplicatedValidMoves() {
-        for (int i = 0; i < allValidMoves.size(); i++) {
-            Integer[] iMove = allValidMoves.get(i);
-            int iRow = iMove[0];
-            int iCol = iMove[1];
-            for (int j = 0; j < allValidMoves.size(); j++) {
-                Integer[] jMove = allValidMoves.get(j);
-                int jRow = jMove[0];
-                int jCol = jMove[1];
-                if (i != j) {
-                    if (iRow == jRow && iCol == jCol) {
-                        allValidMoves.remove(j);
-                    }
-                }
-            }
-        }
+    /** Gets version of position. It changes on every change of disc
+     * state, so it can be used to detect that position is unchanged.
+     *
+     * @return version stamp.
+     */
+    public long getVersion() {
+        return version;
     }
 
     // ************** FLIP OPPONENT DISCS **************
 
-    /** Changes state of opponent disc captured by player.
+    /** Changes state of opponent discs captured by player in row.
      *
      * @param row row coordinates.
      * @param col column coordinates.
@@ -548,60 +364,12 @@ public class Board {
      */
     public void flipHorizontalDiscs(final Integer row, final Integer col,
         final Integer currentPlayer) {
-        int nextDiscState = -1;
-        int primaryDiscState = currentPlayer;
-        ArrayList<Disc> discsToFlip = new ArrayList<Disc>();
-
-        // add loop to check if placed move "close" opponent discs on right
-        for (int i = col + 1; i <= boardGrid.length - 1; i++) {
-            nextDiscState = this.getDiscFromBoard(row, i).getState();
-            if (nextDiscState != primaryDiscState) {
-                Disc opponentDisc = this.getDiscFromBoard(row, i);
-                discsToFlip.add(opponentDisc);
-            }
-
-            if (nextDiscState == -1) {
-                discsToFlip.clear();
-                break;
-            } else if (nextDiscState == primaryDiscState) {
-                for (Disc disc : discsToFlip) {
-                    this.getDiscFromBoard(disc.getRow(), disc.getCol())
-                        .setState(primaryDiscState);
-                    flipedDiscsToMark.add(disc);
-                }
-                break;
-            } else if (i + 1 > boardGrid.length - 1) {
-                discsToFlip.clear();
-                break;
-            }
-        }
-
-        // add loop to check if placed move "close" opponent discs on left
-        for (int i = col - 1; i >= 0; i--) {
-            nextDiscState = this.getDiscFromBoard(row, i).getState();
-            if (nextDiscState != primaryDiscState) {
-                Disc opponentDisc = this.getDiscFromBoard(row, i);
-                discsToFlip.add(opponentDisc);
-            }
-
-            if (nextDiscState == -1) {
-                discsToFlip.clear();
-                break;
-            } else if (nextDiscState == primaryDiscState) {
-                for (Disc disc : discsToFlip) {
-                    this.getDiscFromBoard(disc.getRow(), disc.getCol())
-                        .setState(primaryDiscState);
-                    flipedDiscsToMark.add(disc);
-                }
-                break;
-            } else if (i - 1 < 0) {
-                discsToFlip.clear();
-                break;
-            }
-        }
+        applyFlips(FlipTables.rowFlips(row * cols + col,
+            getDiscMask(currentPlayer), getDiscMask(1 - currentPlayer)),
+            currentPlayer);
     }
 
-    /** Changes state of opponent disc captured by player.
+    /** Changes state of opponent discs captured by player in column.
      *
      * @param row row coordinates.
      * @param col column coordinates.
@@ -609,60 +377,12 @@ public class Board {
      */
     public void flipVerticalDiscs(final Integer row, final Integer col,
         final Integer currentPlayer) {
-        int nextDiscState = -1;
-        int primaryDiscState = currentPlayer;
-        ArrayList<Disc> discsToFlip = new ArrayList<Disc>();
-
-        // add loop to check if placed move "close" opponent discs up
-        for (int i = row - 1; i >= 0; i--) {
-            nextDiscState = this.getDiscFromBoard(i, col).getState();
-            if (nextDiscState != primaryDiscState) {
-                Disc opponentDisc = this.getDiscFromBoard(i, col);
-                discsToFlip.add(opponentDisc);
-            }
-
-            if (nextDiscState == -1) {
-                discsToFlip.clear();
-                break;
-            } else if (nextDiscState == primaryDiscState) {
-                for (Disc disc : discsToFlip) {
-                    this.getDiscFromBoard(disc.getRow(), disc.getCol())
-                        .setState(primaryDiscState);
-                    flipedDiscsToMark.add(disc);
-                }
-                break;
-            } else if (i - 1 < 0) {
-                discsToFlip.clear();
-                break;
-            }
-        }
-
-        // add loop to check if placed move "close" opponent discs down
-        for (int i = row + 1; i <= boardGrid.length - 1; i++) {
-            nextDiscState = this.getDiscFromBoard(i, col).getState();
-            if (nextDiscState != primaryDiscState) {
-                Disc opponentDisc = this.getDiscFromBoard(i, col);
-                discsToFlip.add(opponentDisc);
-            }
-
-            if (nextDiscState == -1) {
-                discsToFlip.clear();
-                break;
-            } else if (nextDiscState == primaryDiscState) {
-                for (Disc disc : discsToFlip) {
-                    this.getDiscFromBoard(disc.getRow(), disc.getCol())
-                        .setState(primaryDiscState);
-                    flipedDiscsToMark.add(disc);
-                }
-                break;
-            } else if (i + 1 > boardGrid.length - 1) {
-                discsToFlip.clear();
-                break;
-            }
-        }
+        applyFlips(FlipTables.columnFlips(row * cols + col,
+            getDiscMask(currentPlayer), getDiscMask(1 - currentPlayer)),
+            currentPlayer);
     }
 
-    /** Changes state of opponent disc captured by player.
+    /** Changes state of opponent discs captured by player on diagonals.
      *
      * @param rowValue row coordinates.
      * @param colValue column coordinates.
@@ -670,154 +390,35 @@ public class Board {
      */
     public void flipDiagonalDiscs(final Integer rowValue,
         final Integer colValue, final Integer currentPlayer) {
-        int row = rowValue;
-        int col = colValue;
-        int nextDiscState = -1;
-        int primaryDiscState = currentPlayer;
-        int tmpRow = row;
-        int tmpCol = col;
-        ArrayList<Disc> discsToFlip = new ArrayList<Disc>();
-
-        /** add loop to check if placed move "close"
-         *  opponent discs  (diagonal up right)
-         */
-        for (int i = row - 1; i >= 0; i--) {
-            col++;
-
-            if (col > boardGrid.length - 1) {
-                break;
-            }
-
-            nextDiscState = this.getDiscFromBoard(i, col).getState();
-            if (nextDiscState != primaryDiscState) {
-                Disc opponentDisc = this.getDiscFromBoard(i, col);
-                discsToFlip.add(opponentDisc);
-            }
-
-            if (nextDiscState == -1) {
-                discsToFlip.clear();
-                break;
-            } else if (nextDiscState == primaryDiscState) {
-                for (Disc disc : discsToFlip) {
-                    this.getDiscFromBoard(disc.getRow(), disc.getCol())
-                        .setState(primaryDiscState);
-                    flipedDiscsToMark.add(disc);
-                }
-                break;
-            } else if (i - 1 < 0 || col + 1 > boardGrid.length - 1) {
-                discsToFlip.clear();
-                break;
-            }
-        }
-
-        row = tmpRow;
-        col = tmpCol;
-
-        /** add loop to check if placed move "close"
-         * opponent discs (diagonal down left)
-         */
-        for (int i = row + 1; i < boardGrid.length; i++) {
-            col--;
-
-            if (col < 0) {
-                break;
-            }
-
-            nextDiscState = this.getDiscFromBoard(i, col).getState();
-            if (nextDiscState != primaryDiscState) {
-                Disc opponentDisc = this.getDiscFromBoard(i, col);
-                discsToFlip.add(opponentDisc);
-            }
-
-            if (nextDiscState == -1) {
-                discsToFlip.clear();
-                break;
-            } else if (nextDiscState == primaryDiscState) {
-                for (Disc disc : discsToFlip) {
-                    this.getDiscFromBoard(disc.getRow(), disc.getCol())
-                        .setState(primaryDiscState);
-                    flipedDiscsToMark.add(disc);
-                }
-                break;
-            } else if (i + 1 > boardGrid.length - 1 || col - 1 < 0) {
-                discsToFlip.clear();
-                break;
-            }
-        }
-
-        row = tmpRow;
-        col = tmpCol;
-
-        /** add loop to check if placed move "close"
-         *  opponent discs (diagonal up left)
-         */
-        for (int i = row - 1; i >= 0; i--) {
-            col--;
-
-            if (col < 0) {
-                break;
-            }
-
-            nextDiscState = this.getDiscFromBoard(i, col).getState();
-            if (nextDiscState != primaryDiscState) {
-                Disc opponentDisc = this.getDiscFromBoard(i, col);
-                discsToFlip.add(opponentDisc);
-            }
+        applyFlips(FlipTables.diagonalFlips(rowValue * cols + colValue,
+            getDiscMask(currentPlayer), getDiscMask(1 - currentPlayer)),
+            currentPlayer);
+    }
 
-            if (nextDiscState == -1) {
-                discsToFlip.clear();
-                break;
-            } else if (nextDiscState == primaryDiscState) {
-                for (Disc disc : discsToFlip) {
-                    this.getDiscFromBoard(disc.getRow(), disc.getCol())
-                        .setState(primaryDiscState);
-                    flipedDiscsToMark.add(disc);
-                }
-                break;
-            } else if (i - 1 < 0 || col - 1 < 0) {
-                discsToFlip.clear();
-                break;
-            }
+    /** Sets flipped discs to player and marks them.
+     *
+     * @param flipped bit mask of flipped discs.
+     * @param currentPlayer current player turn (0 - white, 1 - black).
+     */
+    private void applyFlips(final long flipped, final Integer currentPlayer) {
+        version++;
+        if (currentPlayer == 0) {
+            whiteMask |= flipped;
+            blackMask &= ~flipped;
+        } else {
+            blackMask |= flipped;
+            whiteMask &= ~flipped;
         }
-
-        row = tmpRow;
-        col = tmpCol;
-
-        /** add loop to check if placed move "close"
-         * opponent discs (diagonal down right)
-         */
-        for (int i = row + 1; i < boardGrid.length; i++) {
-            col++;
-
-            if (col > boardGrid.length - 1) {
-                break;
-            }
-
-            nextDiscState = this.getDiscFromBoard(i, col).getState();
-            if (nextDiscState != primaryDiscState) {
-                Disc opponentDisc = this.getDiscFromBoard(i, col);
-                discsToFlip.add(opponentDisc);
-            }
-
-            if (nextDiscState == -1) {
-                discsToFlip.clear();
-                break;
-            } else if (nextDiscState == primaryDiscState) {
-                for (Disc disc : discsToFlip) {
-                    this.getDiscFromBoard(disc.getRow(), disc.getCol())
-                        .setState(primaryDiscState);
-                    flipedDiscsToMark.add(disc);
-                }
-                break;
-            } else if (i + 1 > boardGrid.length - 1
-                 || col + 1 > boardGrid.length - 1) {
-                discsToFlip.clear();
-                break;
-            }
+        long left = flipped;
+        while (left != 0) {
+            int square = Long.numberOfTrailingZeros(left);
+            left &= left - 1;
+            Disc disc = boardGrid[square / cols][square % cols];
+            disc.setState(currentPlayer);
+            flipedDiscsToMark.add(disc);
         }
     }
 
-
     /** Prints current state of the boardGrid to console. */
     public void printBoard() {
         for (int row = 0; row < boardGrid.length; row++) {
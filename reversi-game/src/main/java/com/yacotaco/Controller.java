@@ -1,18 +1,29 @@
 package com.yacotaco;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import javafx.animation.KeyFrame;
 import javafx.animation.KeyValue;
 import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.beans.value.WritableValue;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
@@ -20,7 +31,10 @@ import javafx.scene.Node;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.Alert.AlertType;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
 import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.GridPane;
 import javafx.scene.layout.StackPane;
 import javafx.scene.text.Text;
 import javafx.stage.FileChooser;
@@ -47,6 +61,8 @@ public class Controller {
     private View.DiscView dv;
     /** SummaryView class object. Part of View class. */
     private View.SummaryView sv;
+    /** DebugMarkers class object, created on first flipped disc. */
+    private View.DebugMarkers dm;
     /** Player class object. */
     private Player playerOne;
     /** Player class object. */
@@ -67,7 +83,46 @@ public class Controller {
     private final Boolean moveMarker = true;
     /** Flag for AI Player. */
     private Boolean aiPlayer;
-   
+    /** Record of current game with all moves, timestamps and clocks. */
+    private GameRecord gameRecord = new GameRecord();
+    /** Transcript file finished games are appended to (optional). */
+    private final String archivePath = System.getProperty("reversi.archive");
+    /** Path of autosave journal, journaling is off if null. */
+    private final String journalPath = System.getProperty("reversi.journal");
+    /** Autosave journal of current game (null if off). */
+    private GameJournal journal;
+    /** Opening book consulted before AI move (optional). */
+    private OpeningBook openingBook;
+    /** Evaluator guiding AI search out of book (optional). */
+    private PatternEvaluator evaluator;
+    /** Flag for analysis mode (toggled with A key). */
+    private Boolean analysisMode = Boolean.getBoolean("reversi.analysis");
+    /** Background analysis of legal moves, created on first use. */
+    private MoveAnalyzer analyzer;
+    /** Analysis labels of legal move squares (row * 8 + col). */
+    private final Text[] analysisLabels = new Text[64];
+    /** Last analysis result shown in view. */
+    private MoveAnalyzer.Result shownAnalysis;
+    /** Refresh period of analysis labels in milliseconds. */
+    private final Double analysisRefresh = 100.0;
+    /** Timeline refreshing analysis labels, runs only in analysis mode. */
+    private Timeline analysisTimeline;
+    /** Flag for JIT warm-up of engine after launch (reversi.warmup). */
+    private final boolean warmupOn = Boolean.parseBoolean(
+        System.getProperty("reversi.warmup", "true"));
+    /** Launch warm-up of engine (null if off). */
+    private EngineWarmup warmup;
+    /** AI search waiting for result, clicks are ignored meanwhile. */
+    private CompletableFuture<Integer> pendingSearch;
+    /** Background thread for file I/O, keeps JavaFX thread responsive. */
+    private final ExecutorService ioExecutor =
+        Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "game-io");
+            t.setDaemon(true);
+            return t;
+        });
+    /** Time to wait for pending file I/O on exit in seconds. */
+    private final long ioExitTimeout = 5;
 
     /** Controller constructor.
      *
@@ -80,13 +135,14 @@ public class Controller {
         this.board = boardClass;
         this.view = viewClass;
         this.stage = stageClass;
-        this.bg = view.new BoardGrid();
+        this.bg = view.getBoardGrid();
         this.dv = view.new DiscView();
         this.playerOne = new Player();
         this.playerTwo = new Player();
         this.isTimerOn = false;
         this.aiPlayer = false;
         initController();
+        recoverJournal();
     }
 
     // ************** INITS **************
@@ -100,6 +156,38 @@ public class Controller {
         onLoadButtonClick();
         onTimerButtonClick();
         onAiPlayerButtonClick();
+        onAnalysisKeyPress();
+        if (analysisMode.equals(true)) {
+            startAnalysisRefresh();
+        }
+    }
+
+    /** Loads opening book and evaluator and builds engine tables on I/O
+     * thread. Called once first frame is shown, so window does not wait
+     * for them; until book and evaluator are loaded AI searches with
+     * plain playouts. Evaluator gives move priors to AI searches.
+     * Then engine warm-up starts, so first AI move is searched by compiled
+     * code.
+     */
+    public void loadEngine() {
+        final String bookPath = System.getProperty("reversi.book");
+        final String weightPath = System.getProperty("reversi.weights");
+        CompletableFuture.supplyAsync(() -> openBook(bookPath), ioExecutor)
+            .thenAccept(book -> Platform.runLater(() -> openingBook = book));
+        CompletableFuture.supplyAsync(() -> loadEvaluator(weightPath),
+            ioExecutor).thenAccept(weights -> Platform.runLater(() -> {
+                evaluator = weights;
+                SearchScheduler.shared().setEvaluator(weights);
+            }));
+        ioExecutor.execute(() -> {
+            // class initialisation builds tables, first move finds them
+            FlipTables.flips(0, 0L, 0L);
+            BitBoard.flips(0, 0L, 0L);
+            EngineMetrics.get();
+        });
+        if (warmupOn) {
+            warmup = EngineWarmup.start();
+        }
     }
 
     /** Inits both players names and states (disc color).*/
@@ -135,7 +223,7 @@ public class Controller {
      */
     private void countPlayerPoints(final Player player) {
         Integer discState = player.getDiscState();
-        player.setPoints(board.getAllPlayerDiscs(discState).size());
+        player.setPoints(board.count(discState));
     }
 
     /** Gets date and time.
@@ -179,38 +267,378 @@ public class Controller {
         }
     }
 
-    /** Generates random move for opponent. */
+    /** Opens opening book file.
+     *
+     * @param path book file path (may be null).
+     * @return opening book or null if there is no valid book.
+     */
+    private OpeningBook openBook(final String path) {
+        if (path == null) {
+            return null;
+        }
+        Path bookPath = Paths.get(path);
+        if (!Files.isRegularFile(bookPath)) {
+            return null;
+        }
+        try {
+            return new OpeningBook(bookPath);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /** Loads evaluator weight file.
+     *
+     * @param path weight file path (may be null).
+     * @return evaluator or null if there is no valid weight file.
+     */
+    private PatternEvaluator loadEvaluator(final String path) {
+        if (path == null) {
+            return null;
+        }
+        Path weightPath = Paths.get(path);
+        if (!Files.isRegularFile(weightPath)) {
+            return null;
+        }
+        try {
+            return PatternEvaluator.read(weightPath);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /** Opens autosave journal and restores unfinished game from it. */
+    private void recoverJournal() {
+        if (journalPath == null) {
+            return;
+        }
+        Path path = Paths.get(journalPath);
+        SavedGame game = null;
+        try {
+            game = GameJournal.recover(path);
+            journal = GameJournal.open(path);
+        } catch (IOException e) {
+            showError("Can't open autosave journal!");
+        }
+        if (game != null) {
+            if (game.isTimerOn()) {
+                // recovered timed game stays timed
+                isTimerOn = true;
+                view.getTopBorderPane().getTimerViewWhite().switchOnTimer();
+                view.getTopBorderPane().getTimerViewBlack().switchOnTimer();
+            }
+            showLoadedGame(game);
+        }
+    }
+
+    /** Gets move with best evaluation for current player. Used only when
+     * search scheduler is closed or search fails.
+     *
+     * @return square (row * 8 + col) or -1 if there is no evaluator.
+     */
+    private int evaluatedMove() {
+        if (evaluator == null) {
+            return -1;
+        }
+        long own = board.getDiscMask(playerTurn);
+        long opp = board.getDiscMask(1 - playerTurn);
+        long moves = BitBoard.validMoves(own, opp);
+        int best = -1;
+        float bestScore = Float.NEGATIVE_INFINITY;
+        while (moves != 0) {
+            int square = Long.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+            long flipped = BitBoard.flips(square, own, opp);
+            // score of opponent to move after this move
+            float score = -evaluator.evaluate(opp & ~flipped,
+                own | flipped | (1L << square));
+            if (score > bestScore) {
+                bestScore = score;
+                best = square;
+            }
+        }
+        return best;
+    }
+
+    /** Gets book move for current player.
+     *
+     * @return square (row * 8 + col) or -1 if position is out of book.
+     */
+    private int bookMove() {
+        if (openingBook == null) {
+            return -1;
+        }
+        long own = board.getDiscMask(playerTurn);
+        long opp = board.getDiscMask(1 - playerTurn);
+        int square = openingBook.bestMove(own, opp);
+        EngineMetrics.get().bookLookup(square >= 0);
+        return square;
+    }
+
+    /** Generates move for opponent. Book move is played at once,
+     * otherwise search is queued in shared SearchScheduler.
+     */
     private void randomMoveGenerator() {
-        if (aiPlayer.equals(true) && playerTurn.equals(1)) {
-            int max = board.getAllValidMoves().size();
-            int random = (int) (Math.random() * max);
-            Integer[] move = board.getAllValidMoves().get(random);
-            runOnClick(move[0], move[1]);
+        if (aiPlayer.equals(true) && playerTurn.equals(1)
+            && pendingSearch == null) {
+            final int cols = 8;
+            EngineMetrics.Think think = EngineMetrics.get().startThink();
+            int square = bookMove();
+            // book lookup plays no playouts
+            think.stop(0);
+            if (square < 0) {
+                scheduleAiMove();
+                return;
+            }
+            runOnClick(square / cols, square % cols);
         }
     }
 
-    /** Writes board states and player turn to file.
+    /** Queues AI search of current position. Result is played on JavaFX
+     * thread if position is still the same. Without scheduler, or when
+     * search fails, move with best evaluation is played instead.
+     */
+    private void scheduleAiMove() {
+        final int cols = 8;
+        SearchScheduler scheduler = SearchScheduler.shared();
+        if (!scheduler.isRunning()) {
+            int square = evaluatedMove();
+            if (square >= 0) {
+                runOnClick(square / cols, square % cols);
+                randomMoveGenerator();
+            }
+            return;
+        }
+        if (warmup != null) {
+            // search needs the processor more than warm-up does now
+            warmup.cancel();
+        }
+        if (analyzer != null) {
+            // resumed by restartAnalysis once search is done
+            analyzer.pause();
+        }
+        final long own = board.getDiscMask(playerTurn);
+        final long opp = board.getDiscMask(1 - playerTurn);
+        long millis = isTimerOn.equals(true) ? turnTime.longValue()
+            : SearchScheduler.DEFAULT_BUDGET_MILLIS;
+        final CompletableFuture<Integer> search = scheduler.submit(own, opp,
+            System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis));
+        pendingSearch = search;
+        search.whenComplete((result, error) -> Platform.runLater(() -> {
+            if (pendingSearch != search) {
+                return;
+            }
+            pendingSearch = null;
+            if (aiPlayer.equals(false) || !playerTurn.equals(1)
+                || board.getDiscMask(playerTurn) != own
+                || board.getDiscMask(1 - playerTurn) != opp) {
+                restartAnalysis();
+                return;
+            }
+            // failed search still owes a move, best evaluated one
+            int square = error == null ? result : evaluatedMove();
+            if (square >= 0) {
+                // board update restarts analysis
+                runOnClick(square / cols, square % cols);
+                // AI moves again if opponent has to pass
+                randomMoveGenerator();
+            } else {
+                restartAnalysis();
+            }
+        }));
+    }
+
+    /** Drops pending AI search. */
+    private void cancelAiMove() {
+        if (pendingSearch != null) {
+            pendingSearch.cancel(false);
+            pendingSearch = null;
+        }
+    }
+
+    /** Records played move or pass in game record.
+     *
+     * @param square row * 8 + col or GameRecord.PASS.
+     */
+    private void recordMove(final Integer square) {
+        int clock = GameRecord.NO_CLOCK;
+        if (timeline != null && isTimerOn.equals(true)) {
+            double left = turnTime - timeline.getCurrentTime().toMillis();
+            clock = (int) Math.max(0, left);
+        }
+        long now = System.currentTimeMillis();
+        gameRecord.addMove(square, now, clock);
+        if (journal != null) {
+            journal.move(square, clock, now);
+        }
+    }
+
+    /** Starts new game record from current board.
+     *
+     * @param turn player to move (0 - white, 1 - black).
+     */
+    private void resetGameRecord(final Integer turn) {
+        final int whiteState = 0;
+        final int blackState = 1;
+        gameRecord.reset(board.getDiscMask(whiteState),
+            board.getDiscMask(blackState), turn, System.currentTimeMillis());
+        gameRecord.setWhiteName(playerOne.getName());
+        gameRecord.setBlackName(playerTwo.getName());
+        if (journal != null) {
+            journal.begin(gameRecord);
+        }
+    }
+
+    /** Stores result in game record and appends it to archive file on
+     * I/O thread. Record is formatted on calling thread first, so next
+     * game may reuse it.
+     */
+    private void finishGameRecord() {
+        if (gameRecord.isFinished()) {
+            return;
+        }
+        gameRecord.setResult(playerOne.getPoints() - playerTwo.getPoints());
+        if (journal != null) {
+            journal.end(gameRecord.getResult());
+        }
+        if (archivePath == null) {
+            return;
+        }
+        StringWriter line = new StringWriter();
+        try {
+            new TranscriptWriter(line, TranscriptWriter.Format.GGF)
+                .write(gameRecord);
+        } catch (IOException e) {
+            // StringWriter does not throw
+        }
+        final String game = line.toString();
+        ioExecutor.execute(() -> {
+            try (BufferedWriter bw = Files.newBufferedWriter(
+                Paths.get(archivePath), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                bw.write(game);
+            } catch (IOException e) {
+                Platform.runLater(
+                    () -> showError("Can't write game archive!"));
+            }
+        });
+    }
+
+    /** Writes engine metrics as JSON to file given by reversi.metrics. */
+    private void dumpMetrics() {
+        String path = System.getProperty("reversi.metrics");
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.write(Paths.get(path), EngineMetrics.get().toJson()
+                .getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // exiting anyway, metrics are only diagnostics
+        }
+    }
+
+    /** Makes snapshot of board, player turn, move history and clock.
+     *
+     * @return game snapshot.
+     */
+    private SavedGame snapshotGame() {
+        final int whiteState = 0;
+        final int blackState = 1;
+        SavedGame game = new SavedGame();
+        game.setWhiteMask(board.getDiscMask(whiteState));
+        game.setBlackMask(board.getDiscMask(blackState));
+        game.setPlayerTurn(playerTurn);
+        game.setTimerOn(isTimerOn);
+        if (timeline != null && isTimerOn.equals(true)) {
+            double left = turnTime - timeline.getCurrentTime().toMillis();
+            game.setClockMillis((int) Math.max(0, left));
+        }
+        game.setStartWhiteMask(gameRecord.getStartWhite());
+        game.setStartBlackMask(gameRecord.getStartBlack());
+        game.setStartTurn(gameRecord.getStartTurn());
+        game.setMoves(gameRecord.getSquares());
+        game.setMoveClocks(gameRecord.getClocks());
+        return game;
+    }
+
+    /** Writes board states, player turn, move history and clock to file
+     * on I/O thread. Game is snapshotted on calling thread first.
      *
      * @param file file class object.
-     * @param boardGrid representation of board in 2d array.
-     * @throws IOException exception file writer.
+     * @return future completed when file is written.
      */
-    private void writeBoardStateToFile(final File file,
-     final Disc[][] boardGrid) throws IOException {
-        FileWriter fw = new FileWriter(file);
-        BufferedWriter bw = new BufferedWriter(fw);
-
-        for (int row = 0; row < boardGrid.length; row++) {
-            for (int col = 0; col < boardGrid[row].length; col++) {
-                Disc disc = board.getDiscFromBoard(row, col);
-                String s = row + "," + col + "," + disc.getState() + "\n";
-                bw.write(s);
+    private CompletableFuture<Void> writeBoardStateToFile(final File file) {
+        final SavedGame game = snapshotGame();
+        return CompletableFuture.runAsync(() -> {
+            try {
+                SaveFormat.save(file.toPath(), game);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
+        }, ioExecutor);
+    }
+
+    /** Reads game from file on I/O thread.
+     *
+     * @param file file class object.
+     * @return future game snapshot.
+     */
+    private CompletableFuture<SavedGame> readBoardStateFromFile(
+        final File file) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return SaveFormat.load(file.toPath());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, ioExecutor);
+    }
+
+    /** Applies loaded game to board and game record.
+     *
+     * @param game game snapshot.
+     */
+    private void applyLoadedGame(final SavedGame game) {
+        board.setDiscMasks(game.getWhiteMask(), game.getBlackMask());
+        setPlayerTurn(game.getPlayerTurn());
+        // timestamps of loaded moves are unknown, load time is used
+        long now = System.currentTimeMillis();
+        gameRecord.reset(game.getStartWhiteMask(), game.getStartBlackMask(),
+            game.getStartTurn(), now);
+        gameRecord.setWhiteName(playerOne.getName());
+        gameRecord.setBlackName(playerTwo.getName());
+        byte[] moves = game.getMoves();
+        int[] clocks = game.getMoveClocks();
+        for (int i = 0; i < moves.length; i++) {
+            gameRecord.addMove(moves[i], now, i < clocks.length ? clocks[i]
+                : GameRecord.NO_CLOCK);
+        }
+        if (journal != null) {
+            journal.begin(gameRecord);
         }
+    }
 
-        String playerTurnString = Integer.toString(playerTurn);
-        bw.write(playerTurnString);
-        bw.close();
+    /** Writes pending journal records and closes journal. */
+    private void closeJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            // exiting anyway, last records were already forced or lost
+        }
+    }
+
+    /** Shows error alert.
+     *
+     * @param text alert text.
+     */
+    private void showError(final String text) {
+        Alert alert = new Alert(AlertType.ERROR);
+        alert.setContentText(text);
+        alert.show();
     }
 
     // ************** VIEW UPDATE **************
@@ -220,7 +648,8 @@ public class Controller {
      */
     private void updateBoardView() {
 
-        switchOnNoValidMoves();
+        int status = switchOnNoValidMoves();
+        Arrays.fill(analysisLabels, null);
 
         for (Node square : bg.getBoardGridPane().getChildren()) {
             Integer col = bg.getBoardGridPane().getColumnIndex(square);
@@ -233,12 +662,14 @@ public class Controller {
             }
 
             if (debugMarker.equals(true)) {
-                View.DebugMarkers dm = view.new DebugMarkers();
                 sp.getChildren().add(dv.makeDisc(discState));
                 for (Disc disc : board.getFlipedDiscsToMark()) {
                     int discRow = disc.getRow();
                     int discCol = disc.getCol();
                     if (discRow == row && discCol == col) {
+                        if (dm == null) {
+                            dm = view.new DebugMarkers();
+                        }
                         StackPane spWithMarker = new StackPane();
                         sp.getChildren().remove(1);
                         spWithMarker.getChildren().addAll(
@@ -256,7 +687,7 @@ public class Controller {
                     int validMoveRow = move[0];
                     int validMoveCol = move[1];
                     if (row == validMoveRow && col == validMoveCol) {
-                        sp.getChildren().add(bg.validMoveMarker());
+                        sp.getChildren().add(makeMoveMarker(row, col));
                     }
                 }
             }
@@ -273,11 +704,147 @@ public class Controller {
             setGameTimer();
         }
 
-        if (board.getAllValidMoves().isEmpty()) {
+        if (status == Board.STATUS_GAME_OVER) {
+            finishGameRecord();
             addSummary(playerOne, playerTwo);
         }
         
         board.clearFlipedDiscsToMark();
+        restartAnalysis();
+    }
+
+    // ************** ANALYSIS **************
+
+    /** Makes valid move marker, with analysis label in analysis mode.
+     *
+     * @param row row coordinate.
+     * @param col column coordinate.
+     * @return marker node.
+     */
+    private Node makeMoveMarker(final Integer row, final Integer col) {
+        final int cols = 8;
+        if (analysisMode.equals(false)) {
+            return bg.validMoveMarker();
+        }
+        Text label = new Text();
+        analysisLabels[row * cols + col] = label;
+        return bg.analysisMarker(label);
+    }
+
+    /** Starts analysis of current position or pauses it. Analysis stays
+     * paused while AI search is pending, so they don't share processor.
+     */
+    private void restartAnalysis() {
+        shownAnalysis = null;
+        // no game on start screen, so there is no position to analyze
+        if (analysisMode.equals(false) || pendingSearch != null
+            || playerTurn == null) {
+            if (analyzer != null) {
+                analyzer.pause();
+            }
+            return;
+        }
+        if (analyzer == null) {
+            analyzer = new MoveAnalyzer();
+        }
+        analyzer.analyze(board.getDiscMask(playerTurn),
+            board.getDiscMask(1 - playerTurn));
+    }
+
+    /** Starts timeline which pulls analysis results at fixed rate.
+     * Search thread may publish faster, only latest result is shown.
+     * Timeline is created on first use.
+     */
+    private void startAnalysisRefresh() {
+        if (analysisTimeline == null) {
+            analysisTimeline = new Timeline(new KeyFrame(
+                Duration.millis(analysisRefresh),
+                new EventHandler<ActionEvent>() {
+                @Override
+                public void handle(final ActionEvent event) {
+                    showAnalysis();
+                }
+            }));
+            analysisTimeline.setCycleCount(Timeline.INDEFINITE);
+        }
+        analysisTimeline.play();
+    }
+
+    /** Updates analysis labels with latest result. */
+    private void showAnalysis() {
+        if (analyzer == null || analysisMode.equals(false)) {
+            return;
+        }
+        MoveAnalyzer.Result result = analyzer.latest();
+        if (result == null || result == shownAnalysis) {
+            return;
+        }
+        shownAnalysis = result;
+        final int percent = 100;
+        for (int i = 0; i < result.size(); i++) {
+            Text label = analysisLabels[result.getSquare(i)];
+            if (label != null) {
+                label.setText(Math.round(result.getWinRate(i) * percent)
+                    + "%\n" + formatVisits(result.getVisits(i)));
+            }
+        }
+    }
+
+    /** Formats number of playouts in short form.
+     *
+     * @param visits number of playouts.
+     * @return e.g. 950, 12.5k or 3.1M.
+     */
+    private String formatVisits(final long visits) {
+        final double thousand = 1e3;
+        final double million = 1e6;
+        if (visits < thousand) {
+            return Long.toString(visits);
+        } else if (visits < million) {
+            return String.format(Locale.ROOT, "%.1fk", visits / thousand);
+        }
+        return String.format(Locale.ROOT, "%.1fM", visits / million);
+    }
+
+    /** Swaps markers of legal moves without redrawing board. */
+    private void swapMoveMarkers() {
+        for (Node square : bg.getBoardGridPane().getChildren()) {
+            Integer col = GridPane.getColumnIndex(square);
+            Integer row = GridPane.getRowIndex(square);
+            StackPane sp = (StackPane) square;
+            for (Integer[] move : board.getAllValidMoves()) {
+                if (row.equals(move[0]) && col.equals(move[1])
+                    && sp.getChildren().size() == 2) {
+                    sp.getChildren().set(1, makeMoveMarker(row, col));
+                }
+            }
+        }
+    }
+
+    /** Analysis mode key handler (A key toggles mode). */
+    private void onAnalysisKeyPress() {
+        stage.getScene().addEventHandler(KeyEvent.KEY_PRESSED,
+            new EventHandler<KeyEvent>() {
+            @Override
+            public void handle(final KeyEvent event) {
+                if (event.getCode() != KeyCode.A) {
+                    return;
+                }
+                analysisMode = !analysisMode;
+                Arrays.fill(analysisLabels, null);
+                // running timeline keeps JavaFX pulses going, so it is
+                // stopped outside analysis mode
+                if (analysisMode.equals(true)) {
+                    startAnalysisRefresh();
+                } else {
+                    analysisTimeline.stop();
+                }
+                if (playerTurn != null) {
+                    swapMoveMarkers();
+                }
+                restartAnalysis();
+            }
+        });
     }
 
     /** Resets game timer view. */
@@ -335,6 +902,18 @@ public class Controller {
 
     // ************** TIMER **************
 
+    /** Restores time left for current turn from saved game.
+     *
+     * @param game game snapshot.
+     */
+    private void restoreClock(final SavedGame game) {
+        if (isTimerOn.equals(true) && game.isTimerOn()
+            && game.getClockMillis() > 0) {
+            double elapsed = Math.max(0, turnTime - game.getClockMillis());
+            timeline.jumpTo(Duration.millis(elapsed));
+        }
+    }
+
     /** Resets game timer. */
     private void resetTimer() {
         timeline.stop();
@@ -410,6 +989,7 @@ public class Controller {
                 if (playerTurn == 0) {
                     view.getTopBorderPane().getTimerViewWhite()
                         .removeHighlight();
+                    recordMove(GameRecord.PASS);
                     changePlayerTurn();
                     board.getValidMoves(playerTurn);
                     updateBoardView();
@@ -417,6 +997,7 @@ public class Controller {
                 } else if (playerTurn == 1) {
                     view.getTopBorderPane().getTimerViewBlack()
                         .removeHighlight();
+                    recordMove(GameRecord.PASS);
                     changePlayerTurn();
                     board.getValidMoves(playerTurn);
                     updateBoardView();
@@ -428,15 +1009,21 @@ public class Controller {
     }
 
     
-    /** Switches player if there is no valid move. */
-    private void switchOnNoValidMoves() {
-        // switch player if there are no valid moves
-        if (board.getAllValidMoves().isEmpty()) {
+    /** Switches player if there is no valid move.
+     *
+     * @return game status of player to move before switch.
+     */
+    private int switchOnNoValidMoves() {
+        int status = board.getGameStatus(playerTurn);
+        // switch player if only opponent has valid moves
+        if (status == Board.STATUS_PASS) {
+            recordMove(GameRecord.PASS);
             changePlayerTurn();
             updatePointsCounters();
             updatePlayerTurnIndicators();
             board.getValidMoves(playerTurn);
         }
+        return status;
     }
 
     /**  Checks if placed move is on list.
@@ -470,8 +1057,10 @@ public class Controller {
 
         // player can place disc only on empty square
         if (Boolean.TRUE.equals(validMove)) {
+            final int cols = 8;
             board.modifyDiscState(row, col, playerTurn);
             board.flipAllDiscs(row, col, playerTurn);
+            recordMove(row * cols + col);
 
             if (isTimerOn.equals(true)) {
                 resetTimer();
@@ -496,6 +1085,9 @@ public class Controller {
                     Integer col = bg.getBoardGridPane().getColumnIndex(node);
                     Integer row = bg.getBoardGridPane().getRowIndex(node);
 
+                    if (pendingSearch != null) {
+                        return;
+                    }
                     runOnClick(row, col);
                     randomMoveGenerator();
 
@@ -520,6 +1112,16 @@ public class Controller {
                 Optional<ButtonType> option = alert.showAndWait();
                 boolean buttonType = ButtonType.OK.equals(option.get());
                 if (Boolean.TRUE.equals(buttonType)) {
+                    dumpMetrics();
+                    // let pending save finish
+                    ioExecutor.shutdown();
+                    try {
+                        ioExecutor.awaitTermination(ioExitTimeout,
+                            TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    closeJournal();
                     System.exit(0);
                 } else {
                     if (timeline != null && isTimerOn.equals(true)) {
@@ -551,9 +1153,11 @@ public class Controller {
                     timeline.pause();
                 }
 
+                cancelAiMove();
                 initPlayer();
                 setPlayerTurn(initPlayerTurn);
                 board.initBoard();
+                resetGameRecord(playerTurn);
                 board.getValidMoves(playerTurn);
                 updateBoardView();
                 removeSummary();
@@ -572,44 +1176,29 @@ public class Controller {
                 FileChooser fileChooser = new FileChooser();
                 fileChooser.setInitialFileName("REVERSI_GAME_SAVE_"
                      + getDateTime());
-                Disc[][] boardGrid = board.getBoardGrid();
 
                 if (timeline != null) {
                     timeline.pause();
                 }
 
-                try {
-                    File file = fileChooser.showSaveDialog(stage);
-                    if (file != null) {
-
-                        writeBoardStateToFile(file, boardGrid);
-
+                File file = fileChooser.showSaveDialog(stage);
+                // clock runs again while file is written
+                if (timeline != null && isTimerOn.equals(true)) {
+                    timeline.play();
+                }
+                if (file == null) {
+                    return;
+                }
+                writeBoardStateToFile(file).whenComplete((v, e) ->
+                    Platform.runLater(() -> {
+                        if (e != null) {
+                            showError("Can't save file!");
+                            return;
+                        }
                         Alert alert = new Alert(AlertType.INFORMATION);
                         alert.setContentText("File saved!");
-
-                        Optional<ButtonType> option = alert.showAndWait();
-                        boolean buttonType = ButtonType.OK.equals(option.get());
-                        if (Boolean.TRUE.equals(buttonType)) {
-                            if (timeline != null && isTimerOn.equals(true)) {
-                                timeline.play();
-                            }
-                        }
-                    } else {
-                        if (timeline != null && isTimerOn.equals(true)) {
-                            timeline.play();
-                        }
-                    }
-                } catch (IOException | NullPointerException e) {
-                    if (e.getMessage() == null) {
-                        Alert alert = new Alert(AlertType.ERROR);
-                        alert.setContentText("Board is empty!");
                         alert.show();
-                    } else {
-                        Alert alert = new Alert(AlertType.ERROR);
-                        alert.setContentText("Can't save file!");
-                        alert.show();
-                    }
-                }
+                    }));
             }
         });
     }
@@ -630,67 +1219,55 @@ public class Controller {
                 // loading file when previous game ended
                 removeSummary();
 
-                try {
-                    File file = fileChooser.showOpenDialog(stage);
-                    if (file != null) {
-                        FileReader fr = new FileReader(file);
-                        BufferedReader br = new BufferedReader(fr);
-                        String line;
-                        while ((line = br.readLine()) != null) {
-                            if (line.length() > 1) {
-                                String[] splitLine = line.split(",");
-                                int row = Integer.valueOf(splitLine[0]);
-                                int col = Integer.valueOf(splitLine[1]);
-                                int discState = Integer.valueOf(splitLine[2]);
-                                board.getDiscFromBoard(row, col)
-                                    .setState(discState);
-                            } else {
-                                int playerState = Integer.valueOf(line);
-                                setPlayerTurn(playerState);
-                            }
-                        }
-                        br.close();
-
-                        if (timeline != null) {
-                            resetTimer();
-                            if (isTimerOn.equals(false)) {
-                                view.getTopBorderPane().getTimerViewWhite()
-                                    .switchOffTimer();
-                                view.getTopBorderPane().getTimerViewBlack()
-                                    .switchOffTimer();
-                            }
-                            board.getValidMoves(playerTurn);
-                            updateBoardView();
-                        } else {
-                            timeline = new Timeline();
-                            initPlayer();
-                            board.getValidMoves(playerTurn);
-                            updateBoardView();
-                        }
-                    } else {
-                        if (timeline != null && isTimerOn.equals(true)) {
-                            timeline.play();
-                        }
-                    }
-                } catch (NumberFormatException | IOException
-                    | NullPointerException e) {
-
-                    if (e.getMessage() == null) {
-                        Alert alert = new Alert(AlertType.ERROR);
-                        alert.setAlertType(AlertType.ERROR);
-                        alert.setContentText("File is empty!");
-                        alert.show();
-                    } else {
-                        Alert alert = new Alert(AlertType.ERROR);
-                        alert.setAlertType(AlertType.ERROR);
-                        alert.setContentText("Can't read file!");
-                        alert.show();
+                File file = fileChooser.showOpenDialog(stage);
+                if (file == null) {
+                    if (timeline != null && isTimerOn.equals(true)) {
+                        timeline.play();
                     }
+                    return;
                 }
+                readBoardStateFromFile(file).whenComplete((game, e) ->
+                    Platform.runLater(() -> {
+                        if (e != null) {
+                            if (timeline != null && isTimerOn.equals(true)) {
+                                timeline.play();
+                            }
+                            showError("Can't read file!");
+                            return;
+                        }
+                        showLoadedGame(game);
+                    }));
             }
         });
     }
 
+    /** Shows loaded game in view and restarts clock.
+     *
+     * @param game game snapshot.
+     */
+    private void showLoadedGame(final SavedGame game) {
+        cancelAiMove();
+        applyLoadedGame(game);
+        if (timeline != null) {
+            resetTimer();
+            if (isTimerOn.equals(false)) {
+                view.getTopBorderPane().getTimerViewWhite()
+                    .switchOffTimer();
+                view.getTopBorderPane().getTimerViewBlack()
+                    .switchOffTimer();
+            }
+            board.getValidMoves(playerTurn);
+            updateBoardView();
+            restoreClock(game);
+        } else {
+            timeline = new Timeline();
+            initPlayer();
+            board.getValidMoves(playerTurn);
+            updateBoardView();
+            restoreClock(game);
+        }
+    }
+
     /** Timed game button click handler. */
     private void onTimerButtonClick() {
         view.getTopBorderPane().getNewTimedGameButton()
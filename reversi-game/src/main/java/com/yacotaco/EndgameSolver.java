@@ -0,0 +1,243 @@
+package com.yacotaco;
+
+/**
+ * EndgameSolver class.
+ * Exact search of positions with few empty squares: alpha-beta negamax
+ * on bit masks to the end of game. Moves leaving opponent fewest replies
+ * are searched first while many squares are empty. Stable discs of
+ * opponent bound best reachable score, which cuts nodes where that bound
+ * is not above alpha.
+ *
+ * Score is final disc difference from point of view of player to move;
+ * empty squares left at the end count for the winner.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+public final class EndgameSolver {
+    /** Number of squares on board. */
+    private static final int SQUARES = 64;
+    /** Empty squares from which moves are ordered by mobility. */
+    private static final int ORDER_EMPTIES = 7;
+    /** Largest number of legal moves. */
+    private static final int MAX_MOVES = 32;
+    /** Corner squares. */
+    private static final long CORNERS = 0x8100000000000081L;
+    /** Empty squares from which stability cutoff is tried. */
+    private static final int STABILITY_EMPTIES = 5;
+
+    /** Searched nodes. */
+    private long nodes;
+    /** Exact score found by last bestMove. */
+    private int score;
+
+    /** EndgameSolver constructor. */
+    public EndgameSolver() {
+    }
+
+    /**
+     * Gets exact score of position. Score is narrowed by null window
+     * searches (MTD(f) from draw), which keep alpha close to score, so
+     * stability cutoffs apply in more nodes.
+     *
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @return final disc difference for player to move.
+     */
+    public int solve(final long own, final long opp) {
+        int lower = -SQUARES;
+        int upper = SQUARES;
+        int guess = 0;
+        while (lower < upper) {
+            int beta = guess == lower ? guess + 1 : guess;
+            guess = search(own, opp, beta - 1, beta, false);
+            if (guess < beta) {
+                upper = guess;
+            } else {
+                lower = guess;
+            }
+        }
+        return lower;
+    }
+
+    /**
+     * Gets move with best exact score. Score of best move is exact, so
+     * it is kept as score of position (see {@link #getScore()}) and
+     * position needn't be solved again.
+     *
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @return square of best move or -1 if player has no legal move.
+     */
+    public int bestMove(final long own, final long opp) {
+        long moves = BitBoard.validMoves(own, opp);
+        if (moves == 0) {
+            score = solve(own, opp);
+            return -1;
+        }
+        int best = -1;
+        int alpha = -SQUARES - 1;
+        while (moves != 0) {
+            int square = Long.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+            long flipped = BitBoard.flips(square, own, opp);
+            int value = -search(opp & ~flipped,
+                own | flipped | (1L << square), -SQUARES, -alpha, false);
+            if (value > alpha) {
+                alpha = value;
+                best = square;
+            }
+        }
+        score = alpha;
+        return best;
+    }
+
+    /**
+     * Gets exact score of position searched by last bestMove.
+     *
+     * @return final disc difference for player to move.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Gets number of searched nodes since creation.
+     *
+     * @return nodes.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Negamax search.
+     *
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @param alpha lower bound.
+     * @param beta upper bound.
+     * @param passed true if opponent has just passed.
+     * @return score for player to move.
+     */
+    private int search(final long own, final long opp, final int alpha,
+        final int beta, final boolean passed) {
+        nodes++;
+        long moves = BitBoard.validMoves(own, opp);
+        if (moves == 0) {
+            if (passed) {
+                return finalScore(own, opp);
+            }
+            return -search(opp, own, -beta, -alpha, true);
+        }
+        int empties = SQUARES - Long.bitCount(own | opp);
+        int b = beta;
+        // bound can't reach alpha unless opponent has enough discs;
+        // without corner it rarely has stable ones
+        if (empties >= STABILITY_EMPTIES && (opp & CORNERS) != 0
+            && alpha >= SQUARES - 2 * Long.bitCount(opp)) {
+            // opponent keeps its stable discs whatever is played
+            int bound = SQUARES - 2 * Long.bitCount(BitBoard.stable(opp, own));
+            if (bound <= alpha) {
+                return bound;
+            }
+            b = Math.min(b, bound);
+        }
+        if (empties >= ORDER_EMPTIES) {
+            return searchOrdered(own, opp, moves, alpha, b);
+        }
+        int best = -SQUARES - 1;
+        int a = alpha;
+        while (moves != 0) {
+            int square = Long.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+            long flipped = BitBoard.flips(square, own, opp);
+            int score = -search(opp & ~flipped,
+                own | flipped | (1L << square), -b, -a, false);
+            if (score > best) {
+                best = score;
+                if (score > a) {
+                    a = score;
+                    if (a >= b) {
+                        break;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Negamax search with moves ordered by opponent mobility.
+     *
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @param moves legal moves.
+     * @param alpha lower bound.
+     * @param beta upper bound.
+     * @return score for player to move.
+     */
+    private int searchOrdered(final long own, final long opp,
+        final long moves, final int alpha, final int beta) {
+        long[] childOwn = new long[MAX_MOVES];
+        long[] childOpp = new long[MAX_MOVES];
+        int[] mobility = new int[MAX_MOVES];
+        int count = 0;
+        long left = moves;
+        while (left != 0) {
+            int square = Long.numberOfTrailingZeros(left);
+            left &= left - 1;
+            long flipped = BitBoard.flips(square, own, opp);
+            long nextOwn = opp & ~flipped;
+            long nextOpp = own | flipped | (1L << square);
+            int replies = Long.bitCount(BitBoard.validMoves(nextOwn, nextOpp));
+            // insertion sort by replies
+            int i = count++;
+            while (i > 0 && mobility[i - 1] > replies) {
+                childOwn[i] = childOwn[i - 1];
+                childOpp[i] = childOpp[i - 1];
+                mobility[i] = mobility[i - 1];
+                i--;
+            }
+            childOwn[i] = nextOwn;
+            childOpp[i] = nextOpp;
+            mobility[i] = replies;
+        }
+        int best = -SQUARES - 1;
+        int a = alpha;
+        for (int i = 0; i < count; i++) {
+            int score = -search(childOwn[i], childOpp[i], -beta, -a, false);
+            if (score > best) {
+                best = score;
+                if (score > a) {
+                    a = score;
+                    if (a >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Gets score of finished game.
+     *
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @return disc difference with empty squares given to winner.
+     */
+    private static int finalScore(final long own, final long opp) {
+        int ownCount = Long.bitCount(own);
+        int oppCount = Long.bitCount(opp);
+        int empties = SQUARES - ownCount - oppCount;
+        int diff = ownCount - oppCount;
+        if (diff > 0) {
+            return diff + empties;
+        } else if (diff < 0) {
+            return diff - empties;
+        }
+        return 0;
+    }
+}
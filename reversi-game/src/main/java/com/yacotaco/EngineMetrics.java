@@ -0,0 +1,587 @@
+package com.yacotaco;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * EngineMetrics class.
+ * Counters and histograms of engine work. Counters are striped
+ * {@link LongAdder}s, so hot paths (playouts, search) can update them from
+ * many threads without contention. Each AI move is measured by
+ * {@link Think}: wall time, work done by its search, bytes allocated by
+ * thinking thread and garbage collections during it. Measurement of last
+ * move is published as one immutable {@link LastThink}, so readers never
+ * mix fields of two moves.
+ *
+ * Shared instance is registered as JMX MBean on first use (unless
+ * reversi.jmx is false or code runs as native image) and can be dumped as
+ * JSON.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+public final class EngineMetrics implements EngineMetricsMBean {
+    /** JMX object name. */
+    public static final String OBJECT_NAME = "com.yacotaco:type=EngineMetrics";
+    /** System property turning JMX registration off when "false". */
+    public static final String JMX_PROPERTY = "reversi.jmx";
+    /** Nanoseconds in millisecond. */
+    private static final double NANOS_PER_MILLI = 1e6;
+    /** Nanoseconds in second. */
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /** Holder of shared instance, registered on first use. */
+    private static final class Holder {
+        /** Shared instance. */
+        private static final EngineMetrics INSTANCE = register();
+    }
+
+    /** Generated legal moves. */
+    private final LongAdder movesGenerated = new LongAdder();
+    /** Searched nodes. */
+    private final LongAdder nodesSearched = new LongAdder();
+    /** Random playouts. */
+    private final LongAdder playouts = new LongAdder();
+    /** Position cache hits. */
+    private final LongAdder cacheHits = new LongAdder();
+    /** Position cache misses. */
+    private final LongAdder cacheMisses = new LongAdder();
+    /** Opening book hits. */
+    private final LongAdder bookHits = new LongAdder();
+    /** Opening book misses. */
+    private final LongAdder bookMisses = new LongAdder();
+    /** AI think time in nanoseconds. */
+    private final Histogram thinkTime = new Histogram();
+    /** Bytes allocated per AI move. */
+    private final Histogram allocations = new Histogram();
+    /** Measurement of last AI move. */
+    private volatile LastThink last = LastThink.NONE;
+    /** Time from launch warm-up start to steady state (-1 - not yet). */
+    private volatile long warmupMillis = -1;
+    /** Playouts per second at end of warm-up. */
+    private volatile double warmupRate;
+
+    /**
+     * EngineMetrics constructor.
+     */
+    EngineMetrics() {
+    }
+
+    /**
+     * Gets shared instance.
+     *
+     * @return metrics.
+     */
+    public static EngineMetrics get() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Creates shared instance and registers it in platform MBean server.
+     * Starting platform MBean server takes hundreds of milliseconds, so
+     * it is done on its own thread and first caller does not wait.
+     *
+     * @return metrics.
+     */
+    private static EngineMetrics register() {
+        final EngineMetrics metrics = new EngineMetrics();
+        if (!Boolean.parseBoolean(System.getProperty(JMX_PROPERTY, "true"))
+            || System.getProperty("org.graalvm.nativeimage.imagecode")
+                != null) {
+            return metrics;
+        }
+        Thread registration = new Thread(() -> {
+            try {
+                MBeanServer server =
+                    ManagementFactory.getPlatformMBeanServer();
+                server.registerMBean(metrics, new ObjectName(OBJECT_NAME));
+            } catch (JMException | SecurityException e) {
+                // metrics still work, only JMX view is missing
+            }
+        }, "metrics-jmx");
+        registration.setDaemon(true);
+        registration.start();
+        return metrics;
+    }
+
+    /**
+     * Adds generated legal moves.
+     *
+     * @param count number of moves.
+     */
+    public void addMovesGenerated(final long count) {
+        movesGenerated.add(count);
+    }
+
+    /**
+     * Adds searched nodes.
+     *
+     * @param count number of nodes.
+     */
+    public void addNodes(final long count) {
+        nodesSearched.add(count);
+    }
+
+    /**
+     * Adds finished playouts.
+     *
+     * @param count number of playouts.
+     */
+    public void addPlayouts(final long count) {
+        playouts.add(count);
+    }
+
+    /**
+     * Records position cache lookup.
+     *
+     * @param hit true if position was found.
+     */
+    public void cacheLookup(final boolean hit) {
+        (hit ? cacheHits : cacheMisses).increment();
+    }
+
+    /**
+     * Records opening book lookup.
+     *
+     * @param hit true if book had move.
+     */
+    public void bookLookup(final boolean hit) {
+        (hit ? bookHits : bookMisses).increment();
+    }
+
+    /**
+     * Records end of launch warm-up. Kept by {@link #reset()}.
+     *
+     * @param millis time from warm-up start to steady state.
+     * @param playoutsPerSecond steady throughput.
+     */
+    public void warmedUp(final long millis, final double playoutsPerSecond) {
+        warmupRate = playoutsPerSecond;
+        warmupMillis = millis;
+    }
+
+    /**
+     * Starts measuring AI move on current thread.
+     *
+     * @return measurement to stop after move is chosen.
+     */
+    public Think startThink() {
+        return new Think();
+    }
+
+    @Override
+    public long getMovesGenerated() {
+        return movesGenerated.sum();
+    }
+
+    @Override
+    public long getNodesSearched() {
+        return nodesSearched.sum();
+    }
+
+    @Override
+    public long getPlayouts() {
+        return playouts.sum();
+    }
+
+    @Override
+    public double getCacheHitRate() {
+        return rate(cacheHits.sum(), cacheMisses.sum());
+    }
+
+    @Override
+    public double getBookHitRate() {
+        return rate(bookHits.sum(), bookMisses.sum());
+    }
+
+    @Override
+    public long getThinkCount() {
+        return thinkTime.count();
+    }
+
+    @Override
+    public double getThinkMeanMillis() {
+        long count = thinkTime.count();
+        return count == 0 ? 0 : thinkTime.sum() / NANOS_PER_MILLI / count;
+    }
+
+    @Override
+    public double getThinkP99Millis() {
+        final double p99 = 0.99;
+        return thinkTime.percentile(p99) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getThinkMaxMillis() {
+        return thinkTime.max() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getLastThinkMillis() {
+        return last.getThinkMillis();
+    }
+
+    @Override
+    public double getLastNodesPerSecond() {
+        return last.getNodesPerSecond();
+    }
+
+    @Override
+    public long getLastAllocatedBytes() {
+        return last.allocatedBytes;
+    }
+
+    @Override
+    public long getLastGcCount() {
+        return last.gcCount;
+    }
+
+    @Override
+    public long getLastGcMillis() {
+        return last.gcMillis;
+    }
+
+    @Override
+    public long getWarmupMillis() {
+        return warmupMillis;
+    }
+
+    @Override
+    public double getWarmupPlayoutsPerSecond() {
+        return warmupRate;
+    }
+
+    @Override
+    public String toJson() {
+        StringBuilder sb = new StringBuilder("{");
+        field(sb, "movesGenerated", getMovesGenerated());
+        field(sb, "nodesSearched", getNodesSearched());
+        field(sb, "playouts", getPlayouts());
+        field(sb, "cacheHits", cacheHits.sum());
+        field(sb, "cacheMisses", cacheMisses.sum());
+        field(sb, "bookHits", bookHits.sum());
+        field(sb, "bookMisses", bookMisses.sum());
+        field(sb, "thinkCount", getThinkCount());
+        field(sb, "thinkMeanMillis", getThinkMeanMillis());
+        field(sb, "thinkP99Millis", getThinkP99Millis());
+        field(sb, "thinkMaxMillis", getThinkMaxMillis());
+        field(sb, "allocatedBytesMean", allocations.count() == 0 ? 0
+            : allocations.sum() / allocations.count());
+        LastThink move = last;
+        field(sb, "lastThinkMillis", move.getThinkMillis());
+        field(sb, "lastNodesPerSecond", move.getNodesPerSecond());
+        field(sb, "lastAllocatedBytes", move.allocatedBytes);
+        field(sb, "lastGcCount", move.gcCount);
+        field(sb, "lastGcMillis", move.gcMillis);
+        field(sb, "warmupMillis", getWarmupMillis());
+        field(sb, "warmupPlayoutsPerSecond", getWarmupPlayoutsPerSecond());
+        sb.setCharAt(sb.length() - 1, '}');
+        return sb.toString();
+    }
+
+    @Override
+    public void reset() {
+        movesGenerated.reset();
+        nodesSearched.reset();
+        playouts.reset();
+        cacheHits.reset();
+        cacheMisses.reset();
+        bookHits.reset();
+        bookMisses.reset();
+        thinkTime.reset();
+        allocations.reset();
+        last = LastThink.NONE;
+    }
+
+    /**
+     * Appends JSON field followed by comma.
+     *
+     * @param sb builder.
+     * @param name field name.
+     * @param value field value.
+     */
+    private static void field(final StringBuilder sb, final String name,
+        final long value) {
+        sb.append('"').append(name).append("\":").append(value).append(',');
+    }
+
+    /**
+     * Appends JSON field followed by comma.
+     *
+     * @param sb builder.
+     * @param name field name.
+     * @param value field value.
+     */
+    private static void field(final StringBuilder sb, final String name,
+        final double value) {
+        sb.append('"').append(name).append("\":")
+            .append(String.format(Locale.ROOT, "%.3f", value)).append(',');
+    }
+
+    /**
+     * Computes hit rate.
+     *
+     * @param hits number of hits.
+     * @param misses number of misses.
+     * @return hit rate (0 if there were no lookups).
+     */
+    private static double rate(final long hits, final long misses) {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Measurement of one AI move, started by {@link #startThink()} and
+     * stopped on the same thread.
+     */
+    public final class Think {
+        /** Start time. */
+        private final long startNanos = System.nanoTime();
+        /** Bytes allocated by thread at start. */
+        private final long startBytes = allocatedBytes();
+        /** Garbage collections at start. */
+        private final long startGcCount = gcCount();
+        /** Garbage collection time at start. */
+        private final long startGcMillis = gcMillis();
+
+        /**
+         * Think constructor.
+         */
+        private Think() {
+        }
+
+        /**
+         * Stops measurement and records it. Work is passed by caller,
+         * since shared counters also count searches running at same
+         * time on other threads.
+         *
+         * @param work nodes and playouts of this move's search.
+         */
+        public void stop(final long work) {
+            long nanos = System.nanoTime() - startNanos;
+            long bytes = allocatedBytes();
+            long allocated = -1;
+            thinkTime.record(nanos);
+            if (bytes >= 0 && startBytes >= 0) {
+                allocated = bytes - startBytes;
+                allocations.record(allocated);
+            }
+            last = new LastThink(nanos, work, allocated,
+                gcCount() - startGcCount, gcMillis() - startGcMillis);
+        }
+    }
+
+    /**
+     * Immutable measurement of one finished AI move.
+     */
+    private static final class LastThink {
+        /** No move measured yet. */
+        static final LastThink NONE = new LastThink(0, 0, -1, 0, 0);
+        /** Think time in nanoseconds. */
+        final long nanos;
+        /** Nodes and playouts. */
+        final long work;
+        /** Bytes allocated (-1 - not measured). */
+        final long allocatedBytes;
+        /** Garbage collections. */
+        final long gcCount;
+        /** Garbage collection time in milliseconds. */
+        final long gcMillis;
+
+        /**
+         * LastThink constructor.
+         *
+         * @param thinkNanos think time in nanoseconds.
+         * @param moveWork nodes and playouts.
+         * @param bytes bytes allocated.
+         * @param collections garbage collections.
+         * @param collectionMillis garbage collection time.
+         */
+        LastThink(final long thinkNanos, final long moveWork,
+            final long bytes, final long collections,
+            final long collectionMillis) {
+            this.nanos = thinkNanos;
+            this.work = moveWork;
+            this.allocatedBytes = bytes;
+            this.gcCount = collections;
+            this.gcMillis = collectionMillis;
+        }
+
+        /**
+         * Gets think time.
+         *
+         * @return milliseconds.
+         */
+        double getThinkMillis() {
+            return nanos / NANOS_PER_MILLI;
+        }
+
+        /**
+         * Gets work rate.
+         *
+         * @return nodes and playouts per second.
+         */
+        double getNodesPerSecond() {
+            return nanos == 0 ? 0 : work * NANOS_PER_SECOND / nanos;
+        }
+    }
+
+    /**
+     * Gets bytes allocated by current thread.
+     *
+     * @return bytes or -1 if JVM doesn't measure it.
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sun =
+                (com.sun.management.ThreadMXBean) threads;
+            if (sun.isThreadAllocatedMemorySupported()
+                && sun.isThreadAllocatedMemoryEnabled()) {
+                return sun.getThreadAllocatedBytes(
+                    Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets number of garbage collections since JVM start.
+     *
+     * @return number of collections.
+     */
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : collectors()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    /**
+     * Gets garbage collection time since JVM start.
+     *
+     * @return milliseconds.
+     */
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : collectors()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+
+    /**
+     * Gets garbage collector beans.
+     *
+     * @return collectors.
+     */
+    private static List<GarbageCollectorMXBean> collectors() {
+        return ManagementFactory.getGarbageCollectorMXBeans();
+    }
+
+    /**
+     * Histogram with power of two buckets. Updates are lock-free striped
+     * adds.
+     */
+    static final class Histogram {
+        /** Number of buckets (one per bit of long). */
+        private static final int BUCKETS = Long.SIZE;
+        /** Counts per bucket (bucket i holds values below 2^i). */
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+        /** Sum of values. */
+        private final LongAdder sum = new LongAdder();
+        /** Largest value. */
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        /**
+         * Histogram constructor.
+         */
+        Histogram() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        /**
+         * Records value.
+         *
+         * @param value non-negative value.
+         */
+        void record(final long value) {
+            long v = Math.max(0, value);
+            buckets[Math.min(BUCKETS - 1, Long.SIZE
+                - Long.numberOfLeadingZeros(v))].increment();
+            sum.add(v);
+            max.accumulate(v);
+        }
+
+        /**
+         * Gets number of values.
+         *
+         * @return count.
+         */
+        long count() {
+            long count = 0;
+            for (LongAdder bucket : buckets) {
+                count += bucket.sum();
+            }
+            return count;
+        }
+
+        /**
+         * Gets sum of values.
+         *
+         * @return sum.
+         */
+        long sum() {
+            return sum.sum();
+        }
+
+        /**
+         * Gets largest value.
+         *
+         * @return max.
+         */
+        long max() {
+            return max.get();
+        }
+
+        /**
+         * Gets upper bound of bucket holding percentile.
+         *
+         * @param fraction percentile as fraction (0-1).
+         * @return value bound.
+         */
+        long percentile(final double fraction) {
+            long count = count();
+            long rank = (long) Math.ceil(count * fraction);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets[i].sum();
+                if (seen >= rank && seen > 0) {
+                    return Math.min(max(), i == 0 ? 0 : (1L << i) - 1);
+                }
+            }
+            return max();
+        }
+
+        /** Clears histogram. */
+        void reset() {
+            for (LongAdder bucket : buckets) {
+                bucket.reset();
+            }
+            sum.reset();
+            max.reset();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.yacotaco;
+
+/**
+ * EngineMetricsMBean interface.
+ * JMX view of {@link EngineMetrics}, registered as
+ * {@code com.yacotaco:type=EngineMetrics}.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+public interface EngineMetricsMBean {
+    /**
+     * Gets number of generated legal moves.
+     *
+     * @return number of moves.
+     */
+    long getMovesGenerated();
+
+    /**
+     * Gets number of searched nodes.
+     *
+     * @return number of nodes.
+     */
+    long getNodesSearched();
+
+    /**
+     * Gets number of random playouts.
+     *
+     * @return number of playouts.
+     */
+    long getPlayouts();
+
+    /**
+     * Gets share of position cache lookups which hit.
+     *
+     * @return hit rate (0-1).
+     */
+    double getCacheHitRate();
+
+    /**
+     * Gets share of opening book lookups which found move.
+     *
+     * @return hit rate (0-1).
+     */
+    double getBookHitRate();
+
+    /**
+     * Gets number of AI moves.
+     *
+     * @return number of moves.
+     */
+    long getThinkCount();
+
+    /**
+     * Gets mean AI think time.
+     *
+     * @return milliseconds.
+     */
+    double getThinkMeanMillis();
+
+    /**
+     * Gets 99th percentile of AI think time (bucket upper bound).
+     *
+     * @return milliseconds.
+     */
+    double getThinkP99Millis();
+
+    /**
+     * Gets longest AI think time.
+     *
+     * @return milliseconds.
+     */
+    double getThinkMaxMillis();
+
+    /**
+     * Gets think time of last AI move.
+     *
+     * @return milliseconds.
+     */
+    double getLastThinkMillis();
+
+    /**
+     * Gets nodes per second of last AI move.
+     *
+     * @return nodes and playouts per second.
+     */
+    double getLastNodesPerSecond();
+
+    /**
+     * Gets bytes allocated by thread of last AI move.
+     *
+     * @return bytes or -1 if JVM doesn't measure it.
+     */
+    long getLastAllocatedBytes();
+
+    /**
+     * Gets garbage collections during last AI move.
+     *
+     * @return number of collections.
+     */
+    long getLastGcCount();
+
+    /**
+     * Gets garbage collection time during last AI move.
+     *
+     * @return milliseconds.
+     */
+    long getLastGcMillis();
+
+    /**
+     * Gets time launch warm-up took to reach steady throughput.
+     *
+     * @return milliseconds or -1 if warm-up hasn't finished.
+     */
+    long getWarmupMillis();
+
+    /**
+     * Gets throughput reached by launch warm-up.
+     *
+     * @return playouts per second (0 if warm-up hasn't finished).
+     */
+    double getWarmupPlayoutsPerSecond();
+
+    /**
+     * Dumps all metrics as JSON.
+     *
+     * @return JSON object.
+     */
+    String toJson();
+
+    /** Resets all metrics. */
+    void reset();
+}
@@ -0,0 +1,212 @@
+package com.yacotaco;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EngineWarmup class.
+ * Background warm-up of engine code after launch. Until JIT compiles
+ * move generation, flipping and playouts, first AI move runs interpreted
+ * and does several times less work in its time than later moves.
+ *
+ * Warm-up thread (lowest priority, daemon) plays rounds of synthetic work
+ * on positions from random games: {@link Board} move generation and
+ * flipping as used by view, bit mask flips, and Monte Carlo playouts.
+ * Playouts per second of each round are measured; steady state is reached
+ * when last rounds differ by at most {@link #TOLERANCE}. Time to steady
+ * state and steady throughput are published to {@link EngineMetrics};
+ * its moves and playouts aren't counted there, so counters hold game work
+ * only.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+public final class EngineWarmup {
+    /** Number of warm-up positions. */
+    private static final int POSITIONS = 16;
+    /** Playouts per position in one round. */
+    private static final int PLAYOUTS = 500;
+    /** Consecutive rounds compared for steady state. */
+    private static final int STEADY_ROUNDS = 3;
+    /** Largest relative spread of steady rounds. */
+    private static final double TOLERANCE = 0.05;
+    /** Longest warm-up, in case throughput never settles. */
+    private static final long MAX_NANOS = TimeUnit.SECONDS.toNanos(20);
+    /** Nanoseconds in second. */
+    private static final double NANOS_PER_SECOND = 1e9;
+    /** Nanoseconds in millisecond. */
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    /** Warm-up thread. */
+    private final Thread thread;
+    /** Flag for cancelled warm-up. */
+    private volatile boolean cancelled;
+    /** Time to steady state in milliseconds (-1 until reached). */
+    private volatile long steadyMillis = -1;
+    /** Playouts per second in steady state. */
+    private volatile double steadyRate;
+
+    /**
+     * EngineWarmup constructor.
+     */
+    private EngineWarmup() {
+        this.thread = new Thread(this::run, "engine-warmup");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+    }
+
+    /**
+     * Starts warm-up thread.
+     *
+     * @return running warm-up.
+     */
+    public static EngineWarmup start() {
+        EngineWarmup warmup = new EngineWarmup();
+        warmup.thread.start();
+        return warmup;
+    }
+
+    /**
+     * Stops warm-up after current position, e.g. when real search starts
+     * and shouldn't share processor with it.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Waits for warm-up to end.
+     *
+     * @throws InterruptedException exception on interrupted wait.
+     */
+    public void await() throws InterruptedException {
+        thread.join();
+    }
+
+    /**
+     * Gets time from start to steady state.
+     *
+     * @return milliseconds or -1 if steady state wasn't reached (yet).
+     */
+    public long getSteadyMillis() {
+        return steadyMillis;
+    }
+
+    /**
+     * Gets throughput in steady state.
+     *
+     * @return playouts per second (0 if steady state wasn't reached).
+     */
+    public double getSteadyRate() {
+        return steadyRate;
+    }
+
+    /** Warm-up thread: plays rounds until throughput settles. */
+    private void run() {
+        long start = System.nanoTime();
+        long[][] positions = positions(start);
+        Board board = new Board();
+        MonteCarloSearch search = new MonteCarloSearch(start);
+        // synthetic work mustn't show up as moves generated or playouts
+        board.setMetricsOn(false);
+        search.setMetricsOn(false);
+        double[] rates = new double[STEADY_ROUNDS];
+        int rounds = 0;
+        while (!cancelled && System.nanoTime() - start < MAX_NANOS) {
+            long roundStart = System.nanoTime();
+            for (long[] position : positions) {
+                if (cancelled) {
+                    return;
+                }
+                playBoard(board, position);
+                search.reset(position[0], position[1]);
+                search.run(PLAYOUTS);
+            }
+            long nanos = System.nanoTime() - roundStart;
+            rates[rounds++ % STEADY_ROUNDS] =
+                (double) POSITIONS * PLAYOUTS * NANOS_PER_SECOND / nanos;
+            if (rounds >= STEADY_ROUNDS && isSteady(rates)) {
+                double sum = 0;
+                for (double rate : rates) {
+                    sum += rate;
+                }
+                steadyRate = sum / STEADY_ROUNDS;
+                steadyMillis = (System.nanoTime() - start) / NANOS_PER_MILLI;
+                EngineMetrics.get().warmedUp(steadyMillis, steadyRate);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Checks spread of last rounds.
+     *
+     * @param rates playouts per second of last rounds.
+     * @return true if rates differ by at most tolerance.
+     */
+    private static boolean isSteady(final double[] rates) {
+        double min = Double.MAX_VALUE;
+        double max = 0;
+        for (double rate : rates) {
+            min = Math.min(min, rate);
+            max = Math.max(max, rate);
+        }
+        return max <= min * (1 + TOLERANCE);
+    }
+
+    /**
+     * Plays first legal move of position on board, the way view does.
+     *
+     * @param board board reused between positions.
+     * @param position own and opponent masks and player to move.
+     */
+    private static void playBoard(final Board board, final long[] position) {
+        int player = (int) position[2];
+        long white = player == 0 ? position[0] : position[1];
+        long black = player == 0 ? position[1] : position[0];
+        board.setDiscMasks(white, black);
+        board.getValidMoves(player);
+        Integer[] move = board.getAllValidMoves().get(0);
+        board.modifyDiscState(move[0], move[1], player);
+        board.flipAllDiscs(move[0], move[1], player);
+        board.clearFlipedDiscsToMark();
+        board.getGameStatus(1 - player);
+    }
+
+    /**
+     * Makes positions from random games, spread from opening to endgame.
+     * Every position has legal move for player to move.
+     *
+     * @param seed random seed.
+     * @return positions as own mask, opponent mask and player.
+     */
+    private static long[][] positions(final long seed) {
+        final int maxPly = 56;
+        Playout random = new Playout(seed);
+        long[][] positions = new long[POSITIONS][];
+        int count = 0;
+        while (count < POSITIONS) {
+            int target = count * maxPly / POSITIONS;
+            long own = GameRecord.INITIAL_WHITE;
+            long opp = GameRecord.INITIAL_BLACK;
+            int player = 0;
+            for (int ply = 0; ply < target; ply++) {
+                long moves = BitBoard.validMoves(own, opp);
+                if (moves != 0) {
+                    int square = random.pick(moves);
+                    long flipped = BitBoard.flips(square, own, opp);
+                    own |= flipped | (1L << square);
+                    opp &= ~flipped;
+                }
+                long swap = own;
+                own = opp;
+                opp = swap;
+                player = 1 - player;
+            }
+            if (BitBoard.validMoves(own, opp) != 0) {
+                positions[count++] = new long[] {own, opp, player};
+            }
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,224 @@
+package com.yacotaco;
+
+/**
+ * FlipTables class.
+ * Disc flipping by table lookup. Each of 4 lines through placed disc (row,
+ * column, diagonal, anti-diagonal) is gathered into 8-bit own and opponent
+ * occupancy, flipped discs of line are read from table indexed by position
+ * on line and occupancy, and scattered back to board mask.
+ *
+ * Line occupancy is indexed in base 3 (empty, own, opponent), so table has
+ * 8 * 3^8 entries of one byte.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+public final class FlipTables {
+    /** Squares on line. */
+    private static final int LINE = 8;
+    /** Number of line states (3^8). */
+    private static final int STATES = 6561;
+    /** Byte mask. */
+    private static final int BYTE = 0xFF;
+    /** Shift of top byte. */
+    private static final int TOP_BYTE = 56;
+    /** Gathers column 0 into top byte, row 7 as bit 0. */
+    private static final long COLUMN_MAGIC = 0x8040201008040201L;
+    /** Base 3 value of line bits (bit i as digit i). */
+    private static final int[] TERNARY = new int[BYTE + 1];
+    /** Flipped line squares for position on line and line state. */
+    private static final byte[] FLIPS = new byte[LINE * STATES];
+    /** Column 0 squares of line bits, bit i as row 7 - i. */
+    private static final long[] COLUMN = new long[BYTE + 1];
+    /** Diagonal (row - col constant) through each square. */
+    private static final long[] DIAGONAL = new long[BitBoard.SQUARES];
+    /** Anti-diagonal (row + col constant) through each square. */
+    private static final long[] ANTI_DIAGONAL = new long[BitBoard.SQUARES];
+
+    static {
+        for (int bits = 0; bits <= BYTE; bits++) {
+            int value = 0;
+            for (int i = LINE - 1; i >= 0; i--) {
+                value = value * 3 + ((bits >>> i) & 1);
+            }
+            TERNARY[bits] = value;
+            for (int i = 0; i < LINE; i++) {
+                if ((bits & (1 << i)) != 0) {
+                    COLUMN[bits] |= 1L << ((LINE - 1 - i) * LINE);
+                }
+            }
+        }
+        for (int x = 0; x < LINE; x++) {
+            for (int own = 0; own <= BYTE; own++) {
+                int free = ~own & BYTE;
+                // every opponent subset of squares free of own discs
+                for (int opp = free;; opp = (opp - 1) & free) {
+                    FLIPS[x * STATES + TERNARY[own] + 2 * TERNARY[opp]] =
+                        (byte) lineFlips(x, own, opp);
+                    if (opp == 0) {
+                        break;
+                    }
+                }
+            }
+        }
+        for (int square = 0; square < BitBoard.SQUARES; square++) {
+            int row = square / LINE;
+            int col = square % LINE;
+            for (int r = 0; r < LINE; r++) {
+                int c = col + r - row;
+                if (c >= 0 && c < LINE) {
+                    DIAGONAL[square] |= 1L << (r * LINE + c);
+                }
+                c = col - r + row;
+                if (c >= 0 && c < LINE) {
+                    ANTI_DIAGONAL[square] |= 1L << (r * LINE + c);
+                }
+            }
+        }
+    }
+
+    /**
+     * FlipTables constructor.
+     */
+    private FlipTables() {
+    }
+
+    /**
+     * Computes flipped squares of line by walking both directions. Used
+     * only to fill table.
+     *
+     * @param x position of placed disc.
+     * @param own own line bits.
+     * @param opp opponent line bits.
+     * @return flipped line bits.
+     */
+    private static int lineFlips(final int x, final int own, final int opp) {
+        int flipped = 0;
+        for (int step = -1; step <= 1; step += 2) {
+            int run = 0;
+            int i = x + step;
+            while (i >= 0 && i < LINE && (opp & (1 << i)) != 0) {
+                run |= 1 << i;
+                i += step;
+            }
+            if (i >= 0 && i < LINE && (own & (1 << i)) != 0) {
+                flipped |= run;
+            }
+        }
+        return flipped;
+    }
+
+    /**
+     * Looks up flipped squares of line.
+     *
+     * @param x position of placed disc on line.
+     * @param own own line bits.
+     * @param opp opponent line bits.
+     * @return flipped line bits.
+     */
+    private static int line(final int x, final int own, final int opp) {
+        // placed square itself is not part of line state
+        int placed = ~(1 << x);
+        return FLIPS[x * STATES + TERNARY[own & placed]
+            + 2 * TERNARY[opp & placed]] & BYTE;
+    }
+
+    /**
+     * Gets squares flipped by move.
+     *
+     * @param square square of move (row * 8 + col).
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @return bit mask of flipped discs (empty if move is illegal).
+     */
+    public static long flips(final int square, final long own,
+        final long opp) {
+        return rowFlips(square, own, opp) | columnFlips(square, own, opp)
+            | diagonalFlips(square, own, opp);
+    }
+
+    /**
+     * Gets squares flipped by move in its row.
+     *
+     * @param square square of move.
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @return bit mask of flipped discs.
+     */
+    public static long rowFlips(final int square, final long own,
+        final long opp) {
+        int shift = square & ~(LINE - 1);
+        int flipped = line(square & (LINE - 1),
+            (int) (own >>> shift) & BYTE, (int) (opp >>> shift) & BYTE);
+        return (long) flipped << shift;
+    }
+
+    /**
+     * Gets squares flipped by move in its column.
+     *
+     * @param square square of move.
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @return bit mask of flipped discs.
+     */
+    public static long columnFlips(final int square, final long own,
+        final long opp) {
+        int col = square & (LINE - 1);
+        int flipped = line(LINE - 1 - square / LINE, column(own, col),
+            column(opp, col));
+        return COLUMN[flipped] << col;
+    }
+
+    /**
+     * Gets squares flipped by move on both its diagonals.
+     *
+     * @param square square of move.
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @return bit mask of flipped discs.
+     */
+    public static long diagonalFlips(final int square, final long own,
+        final long opp) {
+        int col = square & (LINE - 1);
+        long diagonal = DIAGONAL[square];
+        long anti = ANTI_DIAGONAL[square];
+        int flipped = line(col, gather(own & diagonal),
+            gather(opp & diagonal));
+        int antiFlipped = line(col, gather(own & anti), gather(opp & anti));
+        return (scatter(flipped) & diagonal) | (scatter(antiFlipped) & anti);
+    }
+
+    /**
+     * Gathers column into line bits, row 7 as bit 0.
+     *
+     * @param x bit mask.
+     * @param col column.
+     * @return line bits.
+     */
+    private static int column(final long x, final int col) {
+        return (int) ((((x >>> col) & BitBoard.FILE_A) * COLUMN_MAGIC)
+            >>> TOP_BYTE);
+    }
+
+    /**
+     * Gathers squares with at most one square per column into line bits
+     * indexed by column.
+     *
+     * @param x bit mask.
+     * @return line bits.
+     */
+    private static int gather(final long x) {
+        return (int) ((x * BitBoard.FILE_A) >>> TOP_BYTE);
+    }
+
+    /**
+     * Copies line bits to every row.
+     *
+     * @param line line bits indexed by column.
+     * @return bit mask.
+     */
+    private static long scatter(final int line) {
+        return line * BitBoard.FILE_A;
+    }
+}
@@ -0,0 +1,985 @@
+package com.yacotaco;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ObjLongConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * GameDatabase class.
+ * Append-only store of game records in memory-mapped file with hash index
+ * from position to offsets of games which reached it.
+ *
+ * File is split into fixed size mapped segments. Each record is stored as
+ * payload length, payload and CRC32 of payload; records never cross
+ * segment boundary (zero length marks padding to next segment). File
+ * header keeps end of committed data, records appended after last flush
+ * are recovered on open when their checksum is valid.
+ *
+ * One writer may append while any number of threads read and query.
+ * Index is kept in memory and saved next to database file on close
+ * ({@code <file>.idx}), so only games appended after last close are
+ * indexed on open. It holds one posting (12 bytes of heap) per indexed
+ * position of each game, at most {@link #MAX_POSTINGS} of them (about 35
+ * million fully indexed games); larger archives need maxIndexedPly to
+ * index only their openings. Append fails when index is full.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+public class GameDatabase implements Closeable {
+    /** File magic ("RVDB"). */
+    private static final int MAGIC = 0x52564442;
+    /** Index file magic ("RVIX"). */
+    private static final int INDEX_MAGIC = 0x52564958;
+    /** Format version. */
+    private static final int VERSION = 1;
+    /** Size of file header in bytes. */
+    private static final int FILE_HEADER = 16;
+    /** Offset of committed size in file header. */
+    private static final int COMMITTED_OFFSET = 8;
+    /** Size of mapped segment in bytes. */
+    private static final long SEGMENT_SIZE = 1L << 26;
+    /** Size of record length and checksum in bytes. */
+    private static final int FRAME = 8;
+    /** Maximum size of record payload in bytes. */
+    private static final int MAX_PAYLOAD = 1 << 16;
+    /** Flag bit for finished game. */
+    private static final int FLAG_FINISHED = 1;
+    /** Size of index file I/O buffer in bytes. */
+    private static final int IO_BUFFER = 1 << 20;
+    /** Largest number of index postings (largest Java array). */
+    public static final int MAX_POSTINGS = Integer.MAX_VALUE - 8;
+
+    /** Database file path. */
+    private final Path path;
+    /** Index file path. */
+    private final Path indexPath;
+    /** Database file channel. */
+    private final FileChannel channel;
+    /** Mapped segments (replaced by writer when file grows). */
+    private volatile MappedByteBuffer[] segments;
+    /** End of committed data visible to readers. */
+    private volatile long committed;
+    /** Number of games in database. */
+    private volatile long gameCount;
+    /** Lock guarding position index. */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /** Position index. */
+    private final PositionIndex index = new PositionIndex();
+    /** Maximum ply indexed for each game. */
+    private final int indexDepth;
+    /** Writer buffer for record payload. */
+    private final ByteBuffer payload = ByteBuffer.allocate(MAX_PAYLOAD);
+
+    /**
+     * GameDatabase constructor. Opens or creates database file.
+     *
+     * @param file database file path.
+     * @param maxIndexedPly maximum ply indexed for each game.
+     * @throws IOException exception on read or corrupted file.
+     */
+    public GameDatabase(final Path file, final int maxIndexedPly)
+        throws IOException {
+        this.path = file;
+        this.indexPath = file.resolveSibling(file.getFileName() + ".idx");
+        this.indexDepth = maxIndexedPly;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.segments = new MappedByteBuffer[0];
+        long size = channel.size();
+        if (size == 0) {
+            MappedByteBuffer first = segment(0);
+            first.putInt(0, MAGIC);
+            first.putInt(Integer.BYTES, VERSION);
+            first.putLong(COMMITTED_OFFSET, FILE_HEADER);
+            committed = FILE_HEADER;
+        } else {
+            for (long start = 0; start < size; start += SEGMENT_SIZE) {
+                segment((int) (start / SEGMENT_SIZE));
+            }
+            MappedByteBuffer first = segments[0];
+            if (first.getInt(0) != MAGIC
+                || first.getInt(Integer.BYTES) != VERSION) {
+                channel.close();
+                throw new IOException("Not a game database: " + file);
+            }
+            committed = first.getLong(COMMITTED_OFFSET);
+        }
+        long indexed = loadIndex();
+        recover();
+        indexFrom(indexed);
+    }
+
+    /**
+     * GameDatabase constructor. Opens or creates database file with all
+     * plies indexed.
+     *
+     * @param file database file path.
+     * @throws IOException exception on read or corrupted file.
+     */
+    public GameDatabase(final Path file) throws IOException {
+        this(file, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Gets database file path.
+     *
+     * @return file path.
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Gets number of games in database.
+     *
+     * @return number of games.
+     */
+    public long getGameCount() {
+        return gameCount;
+    }
+
+    /**
+     * Appends game and indexes all positions reached in it.
+     *
+     * @param record game record.
+     * @return offset of stored game.
+     * @throws IOException exception on write or illegal game.
+     */
+    public synchronized long append(final GameRecord record)
+        throws IOException {
+        // replay may insert missing passes, at most one per move
+        final long[] keys = new long[maxPositions(record)];
+        final int[] count = new int[1];
+        boolean legal = record.replay((ply, white, black, turn) -> {
+            if (ply <= indexDepth) {
+                keys[count[0]++] = positionKey(white, black, turn);
+            }
+        });
+        if (!legal) {
+            throw new IOException("Illegal move in game record");
+        }
+
+        lock.writeLock().lock();
+        try {
+            // fail before storing game which couldn't be indexed
+            index.reserve(count[0]);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        payload.clear();
+        encode(record, payload);
+        payload.flip();
+        int length = payload.remaining();
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+
+        long offset = committed;
+        long inSegment = offset % SEGMENT_SIZE;
+        if (inSegment + FRAME + length > SEGMENT_SIZE) {
+            if (SEGMENT_SIZE - inSegment >= Integer.BYTES) {
+                segment((int) (offset / SEGMENT_SIZE))
+                    .putInt((int) inSegment, 0);
+            }
+            offset += SEGMENT_SIZE - inSegment;
+            inSegment = 0;
+        }
+        ByteBuffer out = segment((int) (offset / SEGMENT_SIZE)).duplicate();
+        out.position((int) inSegment);
+        out.putInt(length);
+        out.put(payload);
+        out.putInt((int) crc.getValue());
+
+        // publish data before index so queries never see unwritten games
+        committed = offset + FRAME + length;
+        gameCount++;
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < count[0]; i++) {
+                index.add(keys[i], offset);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return offset;
+    }
+
+    /**
+     * Reads game stored at offset.
+     *
+     * @param offset offset returned by append or query.
+     * @return game record.
+     * @throws IOException exception on corrupted record.
+     */
+    public GameRecord read(final long offset) throws IOException {
+        if (offset < FILE_HEADER || offset >= committed) {
+            throw new IOException("Bad game offset " + offset);
+        }
+        ByteBuffer in = frame(offset);
+        if (in == null) {
+            throw new IOException("Corrupted game at " + offset);
+        }
+        return decode(in, offset);
+    }
+
+    /**
+     * Finds all games which reached position.
+     *
+     * @param white white discs.
+     * @param black black discs.
+     * @param turn player to move (0 - white, 1 - black).
+     * @return offsets of games in order of appending.
+     */
+    public long[] findGames(final long white, final long black,
+        final int turn) {
+        long key = positionKey(white, black, turn);
+        lock.readLock().lock();
+        try {
+            return index.find(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds all games which reached current position of board.
+     *
+     * @param board Board class object.
+     * @param turn player to move (0 - white, 1 - black).
+     * @return offsets of games in order of appending.
+     */
+    public long[] findGames(final Board board, final int turn) {
+        final int whiteState = 0;
+        final int blackState = 1;
+        return findGames(board.getDiscMask(whiteState),
+            board.getDiscMask(blackState), turn);
+    }
+
+    /**
+     * Visits all games in order of appending.
+     *
+     * @param visitor receives game record and its offset.
+     * @throws IOException exception on corrupted record.
+     */
+    public void forEach(final ObjLongConsumer<GameRecord> visitor)
+        throws IOException {
+        long end = committed;
+        long offset = FILE_HEADER;
+        while ((offset = nextFrame(offset, end)) >= 0) {
+            visitor.accept(read(offset), offset);
+            offset += FRAME + lengthAt(offset);
+        }
+    }
+
+    /**
+     * Visits all games of database file in order of appending without
+     * opening database: file is mapped read only, no index is built and
+     * nothing is written. Records appended after last flush are visited
+     * while their checksum is valid. Meant for tools which read whole
+     * database once.
+     *
+     * @param file database file path.
+     * @param visitor receives game record and its offset.
+     * @throws IOException exception on read or corrupted file.
+     */
+    public static void scan(final Path file,
+        final ObjLongConsumer<GameRecord> visitor) throws IOException {
+        try (FileChannel in = FileChannel.open(file,
+            StandardOpenOption.READ)) {
+            long size = in.size();
+            long end = FILE_HEADER;
+            for (long start = 0; start < size; start += SEGMENT_SIZE) {
+                ByteBuffer seg = in.map(FileChannel.MapMode.READ_ONLY,
+                    start, Math.min(SEGMENT_SIZE, size - start));
+                int at = 0;
+                if (start == 0) {
+                    if (seg.limit() < FILE_HEADER || seg.getInt(0) != MAGIC
+                        || seg.getInt(Integer.BYTES) != VERSION) {
+                        throw new IOException("Not a game database: "
+                            + file);
+                    }
+                    end = seg.getLong(COMMITTED_OFFSET);
+                    at = FILE_HEADER;
+                }
+                // zero length is padding, or end of data in last segment
+                while (seg.limit() - at >= FRAME && seg.getInt(at) != 0) {
+                    long offset = start + at;
+                    ByteBuffer payload = frame(seg, at);
+                    if (payload == null && offset < end) {
+                        throw new IOException("Corrupted game at " + offset);
+                    } else if (payload == null) {
+                        // torn append after last flush
+                        return;
+                    }
+                    at += FRAME + payload.remaining();
+                    visitor.accept(decode(payload, offset), offset);
+                }
+            }
+        }
+    }
+
+    /**
+     * Forces appended games to disk and stores committed size in header.
+     *
+     * @throws IOException exception on write.
+     */
+    public synchronized void flush() throws IOException {
+        MappedByteBuffer[] mapped = segments;
+        for (int i = mapped.length - 1; i >= 0; i--) {
+            mapped[i].force();
+        }
+        mapped[0].putLong(COMMITTED_OFFSET, committed);
+        mapped[0].force();
+    }
+
+    /**
+     * Flushes games, saves index and closes file. File keeps size of its
+     * mapped segments: end of data is in header, and truncating file which
+     * may still be mapped (by this or other process) makes access to cut
+     * pages fail with SIGBUS.
+     *
+     * @throws IOException exception on write.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        saveIndex();
+        channel.close();
+    }
+
+    /**
+     * Computes index key of position.
+     *
+     * @param white white discs.
+     * @param black black discs.
+     * @param turn player to move (0 - white, 1 - black).
+     * @return non-zero 64-bit hash.
+     */
+    static long positionKey(final long white, final long black,
+        final int turn) {
+        final int s1 = 31;
+        final int s2 = 29;
+        final int s3 = 32;
+        long h = white * 0x9E3779B97F4A7C15L;
+        h ^= Long.rotateLeft(black * 0xC2B2AE3D27D4EB4FL, s1) + turn;
+        h ^= h >>> s2;
+        h *= 0xBF58476D1CE4E5B9L;
+        h ^= h >>> s3;
+        return h == 0 ? 1 : h;
+    }
+
+    // ************** FILE ACCESS **************
+
+    /**
+     * Gets mapped segment, mapping it (and growing file) when needed.
+     *
+     * @param number segment number.
+     * @return mapped segment.
+     * @throws IOException exception on map.
+     */
+    private MappedByteBuffer segment(final int number) throws IOException {
+        MappedByteBuffer[] mapped = segments;
+        if (number < mapped.length) {
+            return mapped[number];
+        }
+        MappedByteBuffer[] grown = Arrays.copyOf(mapped, number + 1);
+        for (int i = mapped.length; i <= number; i++) {
+            grown[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+                i * SEGMENT_SIZE, SEGMENT_SIZE);
+        }
+        segments = grown;
+        return grown[number];
+    }
+
+    /**
+     * Gets payload length stored at offset.
+     *
+     * @param offset record offset.
+     * @return payload length.
+     */
+    private int lengthAt(final long offset) {
+        return segments[(int) (offset / SEGMENT_SIZE)]
+            .getInt((int) (offset % SEGMENT_SIZE));
+    }
+
+    /**
+     * Finds first record at or after offset, skipping segment padding.
+     *
+     * @param offset start offset.
+     * @param end end of data.
+     * @return record offset or -1 if there are no more records.
+     */
+    private long nextFrame(final long offset, final long end) {
+        long at = offset;
+        while (at < end) {
+            long inSegment = at % SEGMENT_SIZE;
+            if (SEGMENT_SIZE - inSegment < FRAME
+                || lengthAt(at) == 0) {
+                at += SEGMENT_SIZE - inSegment;
+                continue;
+            }
+            return at;
+        }
+        return -1;
+    }
+
+    /**
+     * Gets payload of record with valid checksum.
+     *
+     * @param offset record offset.
+     * @return buffer with payload or null if record is invalid.
+     */
+    private ByteBuffer frame(final long offset) {
+        MappedByteBuffer[] mapped = segments;
+        int number = (int) (offset / SEGMENT_SIZE);
+        if (number >= mapped.length) {
+            return null;
+        }
+        return frame(mapped[number], (int) (offset % SEGMENT_SIZE));
+    }
+
+    /**
+     * Gets payload of record in segment with valid length and checksum.
+     *
+     * @param seg mapped segment.
+     * @param inSegment record offset in segment.
+     * @return buffer with payload or null if record is invalid.
+     */
+    private static ByteBuffer frame(final ByteBuffer seg,
+        final int inSegment) {
+        int length = seg.getInt(inSegment);
+        if (length <= 0 || length > MAX_PAYLOAD
+            || inSegment + FRAME + (long) length > seg.limit()) {
+            return null;
+        }
+        ByteBuffer in = seg.duplicate();
+        in.limit(inSegment + Integer.BYTES + length);
+        in.position(inSegment + Integer.BYTES);
+        CRC32 crc = new CRC32();
+        crc.update(in.duplicate());
+        if (seg.getInt(inSegment + Integer.BYTES + length)
+            != (int) crc.getValue()) {
+            return null;
+        }
+        return in.slice();
+    }
+
+    /**
+     * Recovers records appended after last flush and counts games.
+     *
+     * @throws IOException exception on map.
+     */
+    private void recover() throws IOException {
+        long count = 0;
+        long offset = FILE_HEADER;
+        long end = committed;
+        while ((offset = nextFrame(offset, end)) >= 0) {
+            count++;
+            offset += FRAME + lengthAt(offset);
+        }
+        long size = (long) segments.length * SEGMENT_SIZE;
+        offset = end;
+        while (offset < size) {
+            long inSegment = offset % SEGMENT_SIZE;
+            if (SEGMENT_SIZE - inSegment < FRAME || lengthAt(offset) == 0) {
+                offset += SEGMENT_SIZE - inSegment;
+                continue;
+            }
+            ByteBuffer in = frame(offset);
+            if (in == null) {
+                break;
+            }
+            offset += FRAME + in.remaining();
+            committed = offset;
+            count++;
+        }
+        gameCount = count;
+    }
+
+    // ************** INDEX **************
+
+    /**
+     * Indexes games stored after offset.
+     *
+     * @param from offset covered by loaded index.
+     * @throws IOException exception on corrupted record.
+     */
+    private void indexFrom(final long from) throws IOException {
+        long end = committed;
+        long offset = from;
+        lock.writeLock().lock();
+        try {
+            while ((offset = nextFrame(offset, end)) >= 0) {
+                final long gameOffset = offset;
+                GameRecord record = read(offset);
+                index.reserve(maxPositions(record));
+                record.replay((ply, white, black, turn) -> {
+                    if (ply <= indexDepth) {
+                        index.add(positionKey(white, black, turn),
+                            gameOffset);
+                    }
+                });
+                offset += FRAME + lengthAt(offset);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets largest number of positions replay of record visits: replay
+     * may insert missing passes, at most one per move.
+     *
+     * @param record game record.
+     * @return number of positions.
+     */
+    private static int maxPositions(final GameRecord record) {
+        return 2 * record.getMoveCount() + 2;
+    }
+
+    /**
+     * Loads saved index if it matches database.
+     *
+     * @return offset covered by loaded index.
+     */
+    private long loadIndex() {
+        if (!Files.exists(indexPath)) {
+            return FILE_HEADER;
+        }
+        final int header = 16;
+        try (FileChannel in = FileChannel.open(indexPath,
+            StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(header);
+            readFully(in, head);
+            head.flip();
+            if (head.getInt() != INDEX_MAGIC
+                || head.getInt() != indexDepth) {
+                return FILE_HEADER;
+            }
+            long covered = head.getLong();
+            if (covered > committed) {
+                return FILE_HEADER;
+            }
+            index.read(in);
+            return covered;
+        } catch (IOException | RuntimeException e) {
+            index.clear();
+            return FILE_HEADER;
+        }
+    }
+
+    /**
+     * Saves index next to database file.
+     *
+     * @throws IOException exception on write.
+     */
+    private void saveIndex() throws IOException {
+        final int header = 16;
+        lock.readLock().lock();
+        try {
+            ByteBuffer head = ByteBuffer.allocate(header);
+            head.putInt(INDEX_MAGIC).putInt(indexDepth).putLong(committed);
+            head.flip();
+            Path tmp = indexPath.resolveSibling(indexPath.getFileName()
+                + ".tmp");
+            try (FileChannel out = FileChannel.open(tmp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (head.hasRemaining()) {
+                    out.write(head);
+                }
+                index.write(out);
+            }
+            Files.move(tmp, indexPath, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads from channel until buffer is full.
+     *
+     * @param in input channel.
+     * @param buffer target buffer.
+     * @throws IOException exception on read or end of file.
+     */
+    private static void readFully(final FileChannel in,
+        final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+    }
+
+    // ************** RECORD ENCODING **************
+
+    /**
+     * Encodes game record into buffer.
+     *
+     * @param record game record.
+     * @param out output buffer.
+     */
+    private static void encode(final GameRecord record, final ByteBuffer out) {
+        out.putLong(record.getStartWhite());
+        out.putLong(record.getStartBlack());
+        out.putLong(record.getStartTime());
+        out.put((byte) record.getStartTurn());
+        out.put((byte) (record.isFinished() ? FLAG_FINISHED : 0));
+        out.put((byte) record.getResult());
+        putString(out, record.getWhiteName());
+        putString(out, record.getBlackName());
+        out.putShort((short) record.getMoveCount());
+        long previous = record.getStartTime();
+        for (int i = 0; i < record.getMoveCount(); i++) {
+            out.put((byte) record.getSquare(i));
+            out.putInt((int) (record.getTimestamp(i) - previous));
+            out.putInt(record.getClockMillis(i));
+            previous = record.getTimestamp(i);
+        }
+    }
+
+    /**
+     * Decodes game record from payload of record with valid checksum.
+     *
+     * @param in buffer with payload.
+     * @param offset record offset (for error message).
+     * @return game record.
+     * @throws IOException exception on truncated payload.
+     */
+    private static GameRecord decode(final ByteBuffer in, final long offset)
+        throws IOException {
+        try {
+            return decode(in);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Corrupted game at " + offset);
+        }
+    }
+
+    /**
+     * Decodes game record from buffer.
+     *
+     * @param in buffer with payload.
+     * @return game record.
+     */
+    private static GameRecord decode(final ByteBuffer in) {
+        GameRecord record = new GameRecord();
+        long white = in.getLong();
+        long black = in.getLong();
+        long time = in.getLong();
+        int turn = in.get();
+        record.reset(white, black, turn, time);
+        boolean finished = (in.get() & FLAG_FINISHED) != 0;
+        int result = in.get();
+        record.setWhiteName(getString(in));
+        record.setBlackName(getString(in));
+        int moves = in.getShort() & 0xFFFF;
+        for (int i = 0; i < moves; i++) {
+            int square = in.get();
+            time += in.getInt();
+            record.addMove(square, time, in.getInt());
+        }
+        if (finished) {
+            record.setResult(result);
+        }
+        return record;
+    }
+
+    /**
+     * Puts string with length prefix.
+     *
+     * @param out output buffer.
+     * @param value string value.
+     */
+    private static void putString(final ByteBuffer out, final String value) {
+        final int maxLength = 255;
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, maxLength);
+        out.put((byte) length);
+        out.put(bytes, 0, length);
+    }
+
+    /**
+     * Gets string with length prefix.
+     *
+     * @param in input buffer.
+     * @return string value.
+     */
+    private static String getString(final ByteBuffer in) {
+        byte[] bytes = new byte[in.get() & 0xFF];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * PositionIndex class.
+     * Open addressing hash table from position key to linked list of game
+     * offsets, stored in primitive arrays. Room for postings is reserved
+     * before they are added, so full index is found before game is
+     * stored.
+     */
+    private static final class PositionIndex {
+        /** Initial table capacity. */
+        private static final int INITIAL_CAPACITY = 1 << 12;
+        /** Largest key table capacity (power of two). */
+        private static final int MAX_TABLE = 1 << 30;
+        /** Position keys (0 - empty slot). */
+        private long[] keys = new long[INITIAL_CAPACITY];
+        /** Newest posting of each key. */
+        private int[] heads = new int[INITIAL_CAPACITY];
+        /** Number of keys. */
+        private int entries;
+        /** Game offset of each posting. */
+        private long[] offsets = new long[INITIAL_CAPACITY];
+        /** Next (older) posting of same key or -1. */
+        private int[] next = new int[INITIAL_CAPACITY];
+        /** Number of postings. */
+        private int postings;
+
+        /** Removes all keys and postings. */
+        void clear() {
+            keys = new long[INITIAL_CAPACITY];
+            heads = new int[INITIAL_CAPACITY];
+            entries = 0;
+            postings = 0;
+        }
+
+        /**
+         * Grows arrays so that postings of new keys can be added. Key
+         * table is kept at most half full until it reaches its largest
+         * capacity, then three quarters.
+         *
+         * @param more number of postings to be added.
+         * @throws IOException exception if index can't hold them.
+         */
+        void reserve(final int more) throws IOException {
+            long needed = (long) postings + more;
+            if (needed > MAX_POSTINGS) {
+                throw new IOException("Position index full: " + postings
+                    + " postings");
+            }
+            if (needed > offsets.length) {
+                long grown = offsets.length + (offsets.length >> 1);
+                int capacity = (int) Math.min(MAX_POSTINGS,
+                    Math.max(needed, grown));
+                offsets = Arrays.copyOf(offsets, capacity);
+                next = Arrays.copyOf(next, capacity);
+            }
+            long keyCount = (long) entries + more;
+            int capacity = keys.length;
+            while (keyCount * 2 > capacity && capacity < MAX_TABLE) {
+                capacity *= 2;
+            }
+            if (keyCount > capacity / 4 * 3) {
+                throw new IOException("Position index full: " + entries
+                    + " positions");
+            }
+            if (capacity != keys.length) {
+                rehash(capacity);
+            }
+        }
+
+        /**
+         * Adds game offset to key. Room must be reserved first.
+         *
+         * @param key position key.
+         * @param offset game offset.
+         */
+        void add(final long key, final long offset) {
+            int slot = slot(keys, key);
+            if (keys[slot] == 0) {
+                keys[slot] = key;
+                heads[slot] = -1;
+                entries++;
+            }
+            offsets[postings] = offset;
+            next[postings] = heads[slot];
+            heads[slot] = postings++;
+        }
+
+        /**
+         * Finds offsets of key.
+         *
+         * @param key position key.
+         * @return offsets in order of adding.
+         */
+        long[] find(final long key) {
+            int slot = slot(keys, key);
+            if (keys[slot] == 0) {
+                return new long[0];
+            }
+            int n = 0;
+            for (int p = heads[slot]; p >= 0; p = next[p]) {
+                n++;
+            }
+            long[] result = new long[n];
+            for (int p = heads[slot]; p >= 0; p = next[p]) {
+                result[--n] = offsets[p];
+            }
+            return result;
+        }
+
+        /**
+         * Finds slot of key or empty slot where it belongs.
+         *
+         * @param table key table.
+         * @param key position key.
+         * @return slot index.
+         */
+        private static int slot(final long[] table, final long key) {
+            final int shift = 32;
+            int mask = table.length - 1;
+            int slot = (int) (key ^ (key >>> shift)) & mask;
+            while (table[slot] != 0 && table[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        /**
+         * Grows key table.
+         *
+         * @param capacity new capacity (power of two).
+         */
+        private void rehash(final int capacity) {
+            long[] newKeys = new long[capacity];
+            int[] newHeads = new int[capacity];
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) {
+                    int slot = slot(newKeys, keys[i]);
+                    newKeys[slot] = keys[i];
+                    newHeads[slot] = heads[i];
+                }
+            }
+            keys = newKeys;
+            heads = newHeads;
+        }
+
+        /**
+         * Writes index arrays to channel.
+         *
+         * @param out output channel.
+         * @throws IOException exception on write.
+         */
+        void write(final FileChannel out) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER);
+            buffer.putInt(keys.length).putInt(entries).putInt(postings);
+            for (int i = 0; i < keys.length; i++) {
+                if (buffer.remaining() < Long.BYTES) {
+                    drain(out, buffer);
+                }
+                buffer.putLong(keys[i]);
+            }
+            for (int i = 0; i < heads.length; i++) {
+                if (buffer.remaining() < Integer.BYTES) {
+                    drain(out, buffer);
+                }
+                buffer.putInt(heads[i]);
+            }
+            for (int i = 0; i < postings; i++) {
+                if (buffer.remaining() < Long.BYTES + Integer.BYTES) {
+                    drain(out, buffer);
+                }
+                buffer.putLong(offsets[i]).putInt(next[i]);
+            }
+            drain(out, buffer);
+        }
+
+        /**
+         * Reads index arrays from channel.
+         *
+         * @param in input channel positioned after file header.
+         * @throws IOException exception on read or truncated file.
+         */
+        void read(final FileChannel in) throws IOException {
+            final int header = 12;
+            ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER);
+            buffer.limit(header);
+            readFully(in, buffer);
+            buffer.flip();
+            int capacity = buffer.getInt();
+            int keyCount = buffer.getInt();
+            int postingCount = buffer.getInt();
+            if (Integer.bitCount(capacity) != 1 || postingCount < 0) {
+                throw new IOException("Corrupted index");
+            }
+            long[] newKeys = new long[capacity];
+            int[] newHeads = new int[capacity];
+            long[] newOffsets = new long[Math.max(postingCount,
+                INITIAL_CAPACITY)];
+            int[] newNext = new int[newOffsets.length];
+            buffer.clear().flip();
+            for (int i = 0; i < capacity; i++) {
+                fill(in, buffer, Long.BYTES);
+                newKeys[i] = buffer.getLong();
+            }
+            for (int i = 0; i < capacity; i++) {
+                fill(in, buffer, Integer.BYTES);
+                newHeads[i] = buffer.getInt();
+            }
+            for (int i = 0; i < postingCount; i++) {
+                fill(in, buffer, Long.BYTES + Integer.BYTES);
+                newOffsets[i] = buffer.getLong();
+                newNext[i] = buffer.getInt();
+            }
+            keys = newKeys;
+            heads = newHeads;
+            entries = keyCount;
+            offsets = newOffsets;
+            next = newNext;
+            postings = postingCount;
+        }
+
+        /**
+         * Writes buffer content to channel and clears buffer.
+         *
+         * @param out output channel.
+         * @param buffer buffer in write mode.
+         * @throws IOException exception on write.
+         */
+        private static void drain(final FileChannel out,
+            final ByteBuffer buffer) throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        /**
+         * Makes sure buffer has at least given number of bytes to read.
+         *
+         * @param in input channel.
+         * @param buffer buffer in read mode.
+         * @param bytes required bytes.
+         * @throws IOException exception on read or end of file.
+         */
+        private static void fill(final FileChannel in,
+            final ByteBuffer buffer, final int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (in.read(buffer) < 0) {
+                    throw new IOException("Truncated index");
+                }
+            }
+            buffer.flip();
+        }
+    }
+}
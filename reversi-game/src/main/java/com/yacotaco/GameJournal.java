@@ -0,0 +1,384 @@
+package com.yacotaco;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * GameJournal class.
+ * Append-only journal of current game for recovery after crash or power
+ * loss. Every move, pass and clock value is appended as it is played;
+ * starting new game truncates journal, so it holds at most one game.
+ *
+ * Appends never block caller. Journal thread writes all records appended
+ * since its last write in one go and forces them to disk with one fsync
+ * (group commit), so per-move cost is a buffer copy and a record is
+ * durable within one fsync latency.
+ *
+ * Layout (big endian): magic, version, then records of type byte,
+ * payload and CRC32 of type and payload. Recovery stops at first torn or
+ * corrupted record.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+public final class GameJournal implements Closeable {
+    /** File magic ("RVJL"). */
+    public static final int MAGIC = 0x52564A4C;
+    /** Current format version. */
+    public static final short VERSION = 1;
+    /** Record of game start. */
+    private static final byte START = 1;
+    /** Record of move or pass. */
+    private static final byte MOVE = 2;
+    /** Record of game end. */
+    private static final byte END = 3;
+    /** Size of magic and version in bytes. */
+    private static final int PREFIX_SIZE = 6;
+    /** Payload of start record: masks, turn, start time. */
+    private static final int START_SIZE = 25;
+    /** Payload of move record: square, clock, timestamp. */
+    private static final int MOVE_SIZE = 13;
+    /** Payload of end record: result. */
+    private static final int END_SIZE = 4;
+    /** Size of checksum in bytes. */
+    private static final int CHECKSUM_SIZE = 4;
+
+    /** Journal file. */
+    private final FileChannel channel;
+    /** Journal thread. */
+    private final Thread writer;
+    /** Records not yet written, guarded by this. */
+    private List<ByteBuffer> pending = new ArrayList<ByteBuffer>();
+    /** Flag for truncating file before pending records, guarded by this. */
+    private boolean truncate;
+    /** Number of appended records, guarded by this. */
+    private long appended;
+    /** Number of records forced to disk, guarded by this. */
+    private long synced;
+    /** Number of fsync calls, guarded by this. */
+    private long syncs;
+    /** Last write failure, guarded by this. */
+    private IOException failure;
+    /** Flag for closed journal, guarded by this. */
+    private boolean closed;
+
+    /**
+     * GameJournal constructor. Starts journal thread.
+     *
+     * @param file open journal file.
+     */
+    private GameJournal(final FileChannel file) {
+        this.channel = file;
+        this.writer = new Thread(this::work, "game-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Opens journal for writing. Existing content is kept until first
+     * {@link #begin(GameRecord)}, so it can be recovered before.
+     *
+     * @param path journal file.
+     * @return journal.
+     * @throws IOException exception on open.
+     */
+    public static GameJournal open(final Path path) throws IOException {
+        FileChannel file = FileChannel.open(path, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE);
+        file.position(file.size());
+        return new GameJournal(file);
+    }
+
+    /**
+     * Starts journal of new game. Previous game is dropped and record
+     * with its moves so far is written.
+     *
+     * @param record game record.
+     */
+    public synchronized void begin(final GameRecord record) {
+        pending.clear();
+        truncate = true;
+        ByteBuffer prefix = ByteBuffer.allocate(PREFIX_SIZE);
+        prefix.putInt(MAGIC).putShort(VERSION).flip();
+        pending.add(prefix);
+        ByteBuffer start = record(START, START_SIZE);
+        start.putLong(record.getStartWhite()).putLong(record.getStartBlack())
+            .put((byte) record.getStartTurn()).putLong(record.getStartTime());
+        add(start);
+        for (int i = 0; i < record.getMoveCount(); i++) {
+            add(moveRecord(record.getSquare(i), record.getClockMillis(i),
+                record.getTimestamp(i)));
+        }
+    }
+
+    /**
+     * Appends move or pass.
+     *
+     * @param square row * 8 + col or GameRecord.PASS.
+     * @param clockMillis time left on mover clock or GameRecord.NO_CLOCK.
+     * @param timestamp epoch milliseconds.
+     */
+    public synchronized void move(final int square, final int clockMillis,
+        final long timestamp) {
+        add(moveRecord(square, clockMillis, timestamp));
+    }
+
+    /**
+     * Appends end of game. Finished game is not recovered.
+     *
+     * @param result white discs minus black discs.
+     */
+    public synchronized void end(final int result) {
+        ByteBuffer end = record(END, END_SIZE);
+        end.putInt(result);
+        add(end);
+    }
+
+    /**
+     * Waits until all appended records are on disk.
+     *
+     * @throws IOException last write failure.
+     * @throws InterruptedException exception on interrupted wait.
+     */
+    public synchronized void sync() throws IOException, InterruptedException {
+        long target = appended;
+        while (synced < target && failure == null && !closed) {
+            wait();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Gets number of fsync calls, each covering one batch of records.
+     *
+     * @return number of syncs.
+     */
+    public synchronized long getSyncCount() {
+        return syncs;
+    }
+
+    /**
+     * Gets number of appended records.
+     *
+     * @return number of records.
+     */
+    public synchronized long getRecordCount() {
+        return appended;
+    }
+
+    /**
+     * Writes pending records and closes journal.
+     *
+     * @throws IOException exception on write or close.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            sync();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        channel.close();
+    }
+
+    /**
+     * Makes move record.
+     *
+     * @param square square or pass.
+     * @param clockMillis clock value.
+     * @param timestamp epoch milliseconds.
+     * @return record without checksum.
+     */
+    private static ByteBuffer moveRecord(final int square,
+        final int clockMillis, final long timestamp) {
+        ByteBuffer move = record(MOVE, MOVE_SIZE);
+        move.put((byte) square).putInt(clockMillis).putLong(timestamp);
+        return move;
+    }
+
+    /**
+     * Allocates record with type byte written.
+     *
+     * @param type record type.
+     * @param size payload size.
+     * @return buffer positioned after type.
+     */
+    private static ByteBuffer record(final byte type, final int size) {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + size + CHECKSUM_SIZE);
+        buffer.put(type);
+        return buffer;
+    }
+
+    /**
+     * Appends checksum to record and queues it for journal thread.
+     *
+     * @param buffer record positioned before checksum.
+     */
+    private void add(final ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+        pending.add(buffer);
+        appended++;
+        notifyAll();
+    }
+
+    /** Journal thread loop: writes and forces batches of records. */
+    private void work() {
+        while (true) {
+            List<ByteBuffer> batch;
+            boolean truncateFirst;
+            long target;
+            synchronized (this) {
+                while (pending.isEmpty() && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (closed) {
+                    return;
+                }
+                batch = pending;
+                pending = new ArrayList<ByteBuffer>();
+                truncateFirst = truncate;
+                truncate = false;
+                target = appended;
+            }
+            IOException error = null;
+            try {
+                if (truncateFirst) {
+                    channel.truncate(0);
+                    channel.position(0);
+                }
+                ByteBuffer[] buffers = batch.toArray(new ByteBuffer[0]);
+                long left = 0;
+                for (ByteBuffer buffer : buffers) {
+                    left += buffer.remaining();
+                }
+                while (left > 0) {
+                    left -= channel.write(buffers);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                error = e;
+            }
+            synchronized (this) {
+                if (error != null) {
+                    failure = error;
+                } else {
+                    synced = target;
+                    syncs++;
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Recovers unfinished game from journal.
+     *
+     * @param path journal file.
+     * @return game snapshot or null if there is no unfinished game.
+     * @throws IOException exception on read.
+     */
+    public static SavedGame recover(final Path path) throws IOException {
+        ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (buffer.remaining() < PREFIX_SIZE || buffer.getInt() != MAGIC
+            || buffer.getShort() != VERSION) {
+            return null;
+        }
+        GameRecord record = null;
+        while (buffer.hasRemaining()) {
+            int start = buffer.position();
+            byte type = buffer.get();
+            int size = type == START ? START_SIZE : type == MOVE ? MOVE_SIZE
+                : type == END ? END_SIZE : -1;
+            if (size < 0 || buffer.remaining() < size + CHECKSUM_SIZE) {
+                break;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.array(), start, 1 + size);
+            if (buffer.getInt(start + 1 + size) != (int) crc.getValue()) {
+                break;
+            }
+            if (type == START) {
+                record = new GameRecord();
+                long white = buffer.getLong();
+                long black = buffer.getLong();
+                int turn = buffer.get();
+                record.reset(white, black, turn, buffer.getLong());
+            } else if (type == MOVE && record != null) {
+                int square = buffer.get();
+                int clock = buffer.getInt();
+                record.addMove(square, buffer.getLong(), clock);
+            } else {
+                // finished game needs no recovery
+                record = null;
+                buffer.position(buffer.position() + size);
+            }
+            buffer.position(buffer.position() + CHECKSUM_SIZE);
+        }
+        return record == null ? null : toSavedGame(record);
+    }
+
+    /**
+     * Converts recovered record to game snapshot.
+     *
+     * @param record recovered game record.
+     * @return game snapshot or null if record has illegal move.
+     */
+    private static SavedGame toSavedGame(final GameRecord record) {
+        final SavedGame game = new SavedGame();
+        boolean legal = record.replay((ply, white, black, turn) -> {
+            if (ply == record.getMoveCount()) {
+                game.setWhiteMask(white);
+                game.setBlackMask(black);
+                game.setPlayerTurn(turn);
+            }
+        });
+        if (!legal) {
+            return null;
+        }
+        int moves = record.getMoveCount();
+        game.setTimerOn(moves > 0
+            && record.getClockMillis(moves - 1) != GameRecord.NO_CLOCK);
+        // player to move gets back time left at their last move
+        for (int i = moves - 1; i >= 0; i--) {
+            if (record.getPlayer(i) == game.getPlayerTurn()
+                && record.getClockMillis(i) != GameRecord.NO_CLOCK) {
+                game.setClockMillis(record.getClockMillis(i));
+                break;
+            }
+        }
+        game.setStartWhiteMask(record.getStartWhite());
+        game.setStartBlackMask(record.getStartBlack());
+        game.setStartTurn(record.getStartTurn());
+        game.setMoves(record.getSquares());
+        game.setMoveClocks(record.getClocks());
+        return game;
+    }
+}
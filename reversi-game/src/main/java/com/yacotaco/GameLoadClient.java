@@ -0,0 +1,268 @@
+package com.yacotaco;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * GameLoadClient class.
+ * Load generator for {@link GameServer}. Opens many sessions at once and
+ * plays random games on all of them, measuring reply latency.
+ *
+ * Each client thread owns part of sessions and sends one request to each
+ * of them in turn, so all sessions stay open and active concurrently.
+ *
+ * Usage: {@code GameLoadClient [-port N] [-sessions N] [-threads N]
+ * [-games N] [-ai] [-server]}; with {@code -server} in-process server is
+ * started on free loopback port.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+public final class GameLoadClient {
+    /** Nanoseconds in millisecond. */
+    private static final double NANOS_PER_MILLI = 1e6;
+    /** Nanoseconds in second. */
+    private static final double NANOS_PER_SECOND = 1e9;
+    /** Index of legal moves in state reply. */
+    private static final int MOVES_FIELD = 3;
+
+    /** Server port. */
+    private final int port;
+    /** Flag for games against server AI. */
+    private final boolean ai;
+    /** Games played by each session. */
+    private final int games;
+    /** Reply latency in nanoseconds. */
+    private final EngineMetrics.Histogram latency =
+        new EngineMetrics.Histogram();
+    /** Finished games. */
+    private final LongAdder finishedGames = new LongAdder();
+    /** Error replies. */
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * GameLoadClient constructor.
+     *
+     * @param serverPort server port.
+     * @param aiGames true to play against server AI.
+     * @param gamesPerSession games played by each session.
+     */
+    public GameLoadClient(final int serverPort, final boolean aiGames,
+        final int gamesPerSession) {
+        this.port = serverPort;
+        this.ai = aiGames;
+        this.games = gamesPerSession;
+    }
+
+    /** Connection with its last state reply. */
+    private final class Connection {
+        /** Socket. */
+        private final Socket socket;
+        /** Reply reader. */
+        private final BufferedReader reader;
+        /** Request stream. */
+        private final OutputStream out;
+        /** Last reply split into fields. */
+        private String[] state;
+        /** Games left. */
+        private int gamesLeft = games;
+
+        /**
+         * Connection constructor. Connects and starts first game.
+         *
+         * @throws IOException exception on connect.
+         */
+        Connection() throws IOException {
+            this.socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            socket.setTcpNoDelay(true);
+            this.reader = new BufferedReader(new InputStreamReader(
+                socket.getInputStream(), StandardCharsets.US_ASCII));
+            this.out = socket.getOutputStream();
+            request(ai ? "NEW AI" : "NEW");
+        }
+
+        /**
+         * Sends request and reads reply.
+         *
+         * @param line request line.
+         * @throws IOException exception on connection.
+         */
+        void request(final String line) throws IOException {
+            long start = System.nanoTime();
+            send(line);
+            String reply = reader.readLine();
+            latency.record(System.nanoTime() - start);
+            if (reply == null) {
+                throw new IOException("Connection closed by server");
+            }
+            if (!reply.startsWith("STATE")) {
+                errors.increment();
+                request("BOARD");
+                return;
+            }
+            state = reply.split(" ");
+        }
+
+        /**
+         * Sends request without reply.
+         *
+         * @param line request line.
+         * @throws IOException exception on connection.
+         */
+        void send(final String line) throws IOException {
+            out.write((line + "\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        }
+
+        /**
+         * Plays one random move or starts next game.
+         *
+         * @param random random generator.
+         * @return false when all games are played.
+         * @throws IOException exception on connection.
+         */
+        boolean step(final SplittableRandom random) throws IOException {
+            if (state[MOVES_FIELD].equals("-")) {
+                finishedGames.increment();
+                if (--gamesLeft == 0) {
+                    send("QUIT");
+                    return false;
+                }
+                request(ai ? "NEW AI" : "NEW");
+                return true;
+            }
+            String[] moves = state[MOVES_FIELD].split(",");
+            request("MOVE " + moves[random.nextInt(moves.length)]);
+            return true;
+        }
+
+        /** Closes connection. */
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // nothing left to do
+            }
+        }
+    }
+
+    /**
+     * Runs load on thread's share of sessions.
+     *
+     * @param sessions number of sessions.
+     * @param seed random seed.
+     * @throws IOException exception on connection.
+     */
+    private void drive(final int sessions, final long seed)
+        throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Connection> active = new ArrayList<Connection>();
+        try {
+            for (int i = 0; i < sessions; i++) {
+                active.add(new Connection());
+            }
+            while (!active.isEmpty()) {
+                for (int i = active.size() - 1; i >= 0; i--) {
+                    if (!active.get(i).step(random)) {
+                        active.remove(i).close();
+                    }
+                }
+            }
+        } finally {
+            for (Connection connection : active) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Runs load test from command line.
+     *
+     * @param args options.
+     * @throws Exception exception on connection or interrupted wait.
+     */
+    public static void main(final String[] args) throws Exception {
+        int port = GameServer.DEFAULT_PORT;
+        int sessions = 1000;
+        int threads = 8;
+        int games = 1;
+        boolean ai = false;
+        boolean local = false;
+        for (int i = 0; i < args.length; i++) {
+            boolean hasValue = i + 1 < args.length;
+            if (args[i].equals("-port") && hasValue) {
+                port = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-sessions") && hasValue) {
+                sessions = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-threads") && hasValue) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-games") && hasValue) {
+                games = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-ai")) {
+                ai = true;
+            } else if (args[i].equals("-server")) {
+                local = true;
+            }
+        }
+        GameServer server = null;
+        if (local) {
+            server = new GameServer(0, GameServer.DEFAULT_THINK_MILLIS,
+                Runtime.getRuntime().availableProcessors());
+            port = server.getPort();
+            Thread serverThread = new Thread(server, "game-server");
+            serverThread.setDaemon(true);
+            serverThread.start();
+        }
+        final GameLoadClient client = new GameLoadClient(port, ai, games);
+        List<Thread> workers = new ArrayList<Thread>();
+        final List<Exception> failures = new ArrayList<Exception>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            final int share = sessions / threads
+                + (t < sessions % threads ? 1 : 0);
+            final long seed = start + t;
+            Thread worker = new Thread(() -> {
+                try {
+                    client.drive(share, seed);
+                } catch (IOException e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            }, "load-client-" + t);
+            worker.start();
+            workers.add(worker);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double seconds = (System.nanoTime() - start) / NANOS_PER_SECOND;
+        EngineMetrics.Histogram latency = client.latency;
+        final double p50 = 0.5;
+        final double p99 = 0.99;
+        System.out.printf("%d sessions, %d games, %d requests in %.2fs"
+            + " (%.0f req/s), %d errors, %d failed threads%n", sessions,
+            client.finishedGames.sum(), latency.count(), seconds,
+            latency.count() / seconds, client.errors.sum(), failures.size());
+        System.out.printf("latency p50 <%.2fms p99 <%.2fms max %.2fms%n",
+            latency.percentile(p50) / NANOS_PER_MILLI,
+            latency.percentile(p99) / NANOS_PER_MILLI,
+            latency.max() / NANOS_PER_MILLI);
+        for (Exception e : failures) {
+            System.err.println(e);
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+}
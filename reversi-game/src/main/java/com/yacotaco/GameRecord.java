@@ -0,0 +1,441 @@
+package com.yacotaco;
+
+import java.util.Arrays;
+
+/**
+ * GameRecord class.
+ * Complete record of one game: start position, every move or pass with
+ * timestamp and clock value, and final result.
+ *
+ * Player of each entry is derived from the start turn, because passes
+ * are recorded explicitly and players simply alternate.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+public class GameRecord {
+    /** Square value used for pass. */
+    public static final int PASS = SavedGame.PASS;
+    /** Clock value used when game is not timed. */
+    public static final int NO_CLOCK = -1;
+    /** White discs of initial position (d4, e5). */
+    public static final long INITIAL_WHITE = (1L << 27) | (1L << 36);
+    /** Black discs of initial position (e4, d5). */
+    public static final long INITIAL_BLACK = (1L << 28) | (1L << 35);
+    /**
+     * Player to move first in move strings (black), as in standard
+     * notation. App games start with white to move from the same discs.
+     */
+    public static final int MOVE_STRING_TURN = 1;
+    /** Initial capacity of move arrays. */
+    private static final int INITIAL_CAPACITY = 64;
+    /** Number of columns on board. */
+    private static final int COLS = 8;
+    /** Symmetry which mirrors columns. */
+    private static final int MIRROR_COLUMNS = 1;
+
+    /** White discs at start of game. */
+    private long startWhite = INITIAL_WHITE;
+    /** Black discs at start of game. */
+    private long startBlack = INITIAL_BLACK;
+    /** Player to move at start of game (0 - white, 1 - black). */
+    private int startTurn;
+    /** Start time in epoch milliseconds. */
+    private long startTime;
+    /** Name of white player. */
+    private String whiteName = "";
+    /** Name of black player. */
+    private String blackName = "";
+    /** Flag for finished game. */
+    private boolean finished;
+    /** Final white discs minus black discs. */
+    private int result;
+    /** Played squares (row * 8 + col) or PASS. */
+    private byte[] squares = new byte[INITIAL_CAPACITY];
+    /** Epoch milliseconds of each move. */
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    /** Time left on mover clock in milliseconds or NO_CLOCK. */
+    private int[] clocks = new int[INITIAL_CAPACITY];
+    /** Number of recorded moves. */
+    private int size;
+
+    /**
+     * PositionVisitor interface.
+     * Receives positions reached during replay.
+     */
+    public interface PositionVisitor {
+        /**
+         * Visits position.
+         *
+         * @param ply number of moves played before position.
+         * @param white white discs.
+         * @param black black discs.
+         * @param turn player to move (0 - white, 1 - black).
+         */
+        void visit(int ply, long white, long black, int turn);
+    }
+
+    /** GameRecord constructor. */
+    public GameRecord() {
+    }
+
+    /**
+     * Clears record and sets new start position.
+     *
+     * @param white white discs.
+     * @param black black discs.
+     * @param turn player to move (0 - white, 1 - black).
+     * @param time start time in epoch milliseconds.
+     */
+    public void reset(final long white, final long black, final int turn,
+        final long time) {
+        this.startWhite = white;
+        this.startBlack = black;
+        this.startTurn = turn;
+        this.startTime = time;
+        this.finished = false;
+        this.result = 0;
+        this.size = 0;
+    }
+
+    /**
+     * Adds move or pass to record.
+     *
+     * @param square row * 8 + col or PASS.
+     * @param timestamp epoch milliseconds of move.
+     * @param clockMillis time left on mover clock or NO_CLOCK.
+     */
+    public void addMove(final int square, final long timestamp,
+        final int clockMillis) {
+        if (size == squares.length) {
+            int capacity = size * 2;
+            squares = Arrays.copyOf(squares, capacity);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            clocks = Arrays.copyOf(clocks, capacity);
+        }
+        squares[size] = (byte) square;
+        timestamps[size] = timestamp;
+        clocks[size] = clockMillis;
+        size++;
+    }
+
+    /**
+     * Inserts pass before move at given index.
+     * Used when move list without passes is replayed.
+     *
+     * @param index index of move.
+     */
+    public void insertPass(final int index) {
+        long timestamp = index > 0 ? timestamps[index - 1] : startTime;
+        addMove(PASS, timestamp, NO_CLOCK);
+        int length = size - 1 - index;
+        System.arraycopy(squares, index, squares, index + 1, length);
+        System.arraycopy(timestamps, index, timestamps, index + 1, length);
+        System.arraycopy(clocks, index, clocks, index + 1, length);
+        squares[index] = (byte) PASS;
+        timestamps[index] = timestamp;
+        clocks[index] = NO_CLOCK;
+    }
+
+    /**
+     * Removes all moves from given index to the end.
+     *
+     * @param index first removed move.
+     */
+    public void truncate(final int index) {
+        size = Math.min(size, Math.max(0, index));
+    }
+
+    /**
+     * Gets number of recorded moves (passes included).
+     *
+     * @return number of moves.
+     */
+    public int getMoveCount() {
+        return size;
+    }
+
+    /**
+     * Gets square of move.
+     *
+     * @param index index of move.
+     * @return row * 8 + col or PASS.
+     */
+    public int getSquare(final int index) {
+        return squares[index];
+    }
+
+    /**
+     * Gets player of move.
+     *
+     * @param index index of move.
+     * @return 0 - white, 1 - black.
+     */
+    public int getPlayer(final int index) {
+        return (startTurn + index) & 1;
+    }
+
+    /**
+     * Gets timestamp of move.
+     *
+     * @param index index of move.
+     * @return epoch milliseconds.
+     */
+    public long getTimestamp(final int index) {
+        return timestamps[index];
+    }
+
+    /**
+     * Gets clock value of move.
+     *
+     * @param index index of move.
+     * @return time left on mover clock in milliseconds or NO_CLOCK.
+     */
+    public int getClockMillis(final int index) {
+        return clocks[index];
+    }
+
+    /**
+     * Gets played squares.
+     *
+     * @return copy of squares (row * 8 + col or PASS).
+     */
+    public byte[] getSquares() {
+        return Arrays.copyOf(squares, size);
+    }
+
+    /**
+     * Gets clock values of all moves.
+     *
+     * @return copy of clocks (milliseconds or NO_CLOCK).
+     */
+    public int[] getClocks() {
+        return Arrays.copyOf(clocks, size);
+    }
+
+    /**
+     * Converts square to transcript coordinates (e.g. "f5").
+     *
+     * @param square row * 8 + col or PASS.
+     * @return coordinates or "pa" for pass.
+     */
+    public static String squareToString(final int square) {
+        if (square == PASS) {
+            return "pa";
+        }
+        char col = (char) ('a' + square % COLS);
+        char row = (char) ('1' + square / COLS);
+        return new String(new char[] {col, row});
+    }
+
+    /**
+     * Converts transcript coordinates to square.
+     *
+     * @param col column letter (a-h, case insensitive).
+     * @param row row digit (1-8).
+     * @return row * 8 + col.
+     */
+    public static int parseSquare(final char col, final char row) {
+        int c = Character.toLowerCase(col) - 'a';
+        int r = row - '1';
+        if (c < 0 || c >= COLS || r < 0 || r >= COLS) {
+            throw new IllegalArgumentException("Bad square " + col + row);
+        }
+        return r * COLS + c;
+    }
+
+    /**
+     * Gets move string in common transcript format (e.g. "f5d6c3").
+     * Forced passes are omitted, as readers infer them from position.
+     * Turn given up with legal moves left (timeout) is written as "pa",
+     * and so is forced pass just before it, so string can still be
+     * replayed.
+     *
+     * Move strings start from initial position with black to move. Game
+     * started by white is the same game with colours swapped, and with
+     * colours swapped initial position is mirrored by columns, so its
+     * squares are mirrored too.
+     *
+     * @return move string.
+     */
+    public String toMoveString() {
+        int symmetry = startTurn == MOVE_STRING_TURN
+            ? Symmetry.IDENTITY : MIRROR_COLUMNS;
+        StringBuilder sb = new StringBuilder(size * 2);
+        long white = startWhite;
+        long black = startBlack;
+        for (int i = 0; i < size; i++) {
+            int turn = getPlayer(i);
+            long own = turn == 0 ? white : black;
+            long opp = turn == 0 ? black : white;
+            int square = squares[i];
+            if (square == PASS) {
+                // forced pass before timeout is written, so that timeout
+                // isn't read as that pass
+                if (BitBoard.validMoves(own, opp) != 0
+                    || (i + 1 < size && squares[i + 1] == PASS)) {
+                    sb.append(squareToString(PASS));
+                }
+                continue;
+            }
+            sb.append(squareToString(
+                Symmetry.transformSquare(square, symmetry)));
+            long flipped = BitBoard.flips(square, own, opp);
+            own |= flipped | (1L << square);
+            opp &= ~flipped;
+            white = turn == 0 ? own : opp;
+            black = turn == 0 ? opp : own;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Gets white discs at start of game.
+     *
+     * @return bit mask.
+     */
+    public long getStartWhite() {
+        return startWhite;
+    }
+
+    /**
+     * Gets black discs at start of game.
+     *
+     * @return bit mask.
+     */
+    public long getStartBlack() {
+        return startBlack;
+    }
+
+    /**
+     * Gets player to move at start of game.
+     *
+     * @return 0 - white, 1 - black.
+     */
+    public int getStartTurn() {
+        return startTurn;
+    }
+
+    /**
+     * Gets start time.
+     *
+     * @return epoch milliseconds.
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Gets name of white player.
+     *
+     * @return name.
+     */
+    public String getWhiteName() {
+        return whiteName;
+    }
+
+    /**
+     * Sets name of white player.
+     *
+     * @param name name.
+     */
+    public void setWhiteName(final String name) {
+        this.whiteName = name == null ? "" : name;
+    }
+
+    /**
+     * Gets name of black player.
+     *
+     * @return name.
+     */
+    public String getBlackName() {
+        return blackName;
+    }
+
+    /**
+     * Sets name of black player.
+     *
+     * @param name name.
+     */
+    public void setBlackName(final String name) {
+        this.blackName = name == null ? "" : name;
+    }
+
+    /**
+     * Sets final result.
+     *
+     * @param whiteMinusBlack white discs minus black discs.
+     */
+    public void setResult(final int whiteMinusBlack) {
+        this.result = whiteMinusBlack;
+        this.finished = true;
+    }
+
+    /**
+     * Checks if final result is known.
+     *
+     * @return true if game is finished.
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Gets final result.
+     *
+     * @return white discs minus black discs (0 if game is not finished).
+     */
+    public int getResult() {
+        return result;
+    }
+
+    /**
+     * Replays moves from start position and visits position before each
+     * move and final position. Missing passes (e.g. from move strings) are
+     * inserted into record.
+     *
+     * @param visitor position visitor (may be null).
+     * @return false if record contains illegal move.
+     */
+    public boolean replay(final PositionVisitor visitor) {
+        long white = startWhite;
+        long black = startBlack;
+        int i = 0;
+        while (i < size) {
+            int turn = getPlayer(i);
+            long own = turn == 0 ? white : black;
+            long opp = turn == 0 ? black : white;
+            int square = squares[i];
+            long flipped = 0L;
+            if (square != PASS) {
+                if (square < 0 || ((own | opp) & (1L << square)) != 0) {
+                    return false;
+                }
+                flipped = BitBoard.flips(square, own, opp);
+                if (flipped == 0) {
+                    if (BitBoard.validMoves(own, opp) != 0
+                        || BitBoard.validMoves(opp, own) == 0) {
+                        return false;
+                    }
+                    insertPass(i);
+                    continue;
+                }
+            }
+            if (visitor != null) {
+                visitor.visit(i, white, black, turn);
+            }
+            if (square != PASS) {
+                own |= flipped | (1L << square);
+                opp &= ~flipped;
+                white = turn == 0 ? own : opp;
+                black = turn == 0 ? opp : own;
+            }
+            i++;
+        }
+        if (visitor != null) {
+            visitor.visit(size, white, black, getPlayer(size));
+        }
+        return true;
+    }
+}
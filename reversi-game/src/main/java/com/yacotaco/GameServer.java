@@ -0,0 +1,489 @@
+package com.yacotaco;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GameServer class.
+ * Headless server hosting many games over line protocol on loopback.
+ * One selector thread serves all connections (each connection is one game
+ * session with own board); AI moves are searched by {@link SearchScheduler}
+ * and handed back to selector thread.
+ *
+ * Protocol (one command per line, exactly one reply line per command):
+ * <ul>
+ * <li>{@code NEW} - new game, client plays both sides,</li>
+ * <li>{@code NEW AI} - new game, client plays black, server plays white,
+ * </li>
+ * <li>{@code MOVE f5} - plays move of side to move,</li>
+ * <li>{@code BOARD} - current state,</li>
+ * <li>{@code QUIT} - closes connection.</li>
+ * </ul>
+ * State reply: {@code STATE <board> <turn> <moves>} where board is 64
+ * characters row by row ({@code .} empty, {@code O} white, {@code *}
+ * black), turn is {@code O}, {@code *} or {@code -} when game is over and
+ * moves are legal moves separated by commas ({@code -} if none). Passes
+ * are played automatically. Errors are replied as {@code ERR <message>}.
+ *
+ * Games start from standard position with black to move, as in move
+ * strings ({@link GameRecord#MOVE_STRING_TURN}), so e.g. {@code MOVE f5}
+ * is legal first move.
+ *
+ * Usage: {@code GameServer [-port N] [-think ms] [-threads N]}
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+public class GameServer implements Closeable, Runnable {
+    /** Default port. */
+    public static final int DEFAULT_PORT = 5151;
+    /** Default AI think time in milliseconds. */
+    public static final int DEFAULT_THINK_MILLIS = 50;
+    /** Longest accepted command line. */
+    private static final int MAX_LINE = 256;
+    /** Connections waiting to be accepted. */
+    private static final int BACKLOG = 1024;
+    /** White player. */
+    private static final int WHITE = 0;
+    /** Black player. */
+    private static final int BLACK = 1;
+    /** No AI in session. */
+    private static final int NO_AI = -1;
+
+    /** Listening channel. */
+    private final ServerSocketChannel server;
+    /** Selector of all channels. */
+    private final Selector selector;
+    /** Scheduler of AI searches. */
+    private final SearchScheduler scheduler;
+    /** AI think time in nanoseconds. */
+    private final long thinkNanos;
+    /** AI moves ready to be applied by selector thread. */
+    private final Queue<Session> finished =
+        new ConcurrentLinkedQueue<Session>();
+    /** Flag for running server. */
+    private volatile boolean running = true;
+
+    /**
+     * GameServer constructor. Binds to loopback.
+     *
+     * @param port port (0 for any free port).
+     * @param thinkMillis AI think time in milliseconds.
+     * @param threads number of AI threads.
+     * @throws IOException exception on bind.
+     */
+    public GameServer(final int port, final int thinkMillis,
+        final int threads) throws IOException {
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+            port), BACKLOG);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        this.thinkNanos = TimeUnit.MILLISECONDS.toNanos(thinkMillis);
+        this.scheduler = new SearchScheduler(threads, thinkMillis);
+    }
+
+    /**
+     * Gets bound port.
+     *
+     * @return port number.
+     * @throws IOException exception on closed channel.
+     */
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    /** Runs selector loop until server is closed. */
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select();
+                Session session;
+                while ((session = finished.poll()) != null) {
+                    session.aiMoved();
+                }
+                Iterator<SelectionKey> keys =
+                    selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+            }
+        } catch (IOException e) {
+            if (running) {
+                throw new IllegalStateException(e);
+            }
+        } finally {
+            release();
+        }
+    }
+
+    /** Closes all channels and selector. Called by selector thread. */
+    private void release() {
+        scheduler.close();
+        for (SelectionKey key : selector.keys()) {
+            try {
+                key.channel().close();
+            } catch (IOException e) {
+                // closing anyway
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // closing anyway
+        }
+    }
+
+    /**
+     * Handles ready channel.
+     *
+     * @param key selection key.
+     * @throws IOException exception on accept.
+     */
+    private void handle(final SelectionKey key) throws IOException {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            SocketChannel channel;
+            while ((channel = server.accept()) != null) {
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                SelectionKey clientKey = channel.register(selector,
+                    SelectionKey.OP_READ);
+                clientKey.attach(new Session(channel, clientKey));
+            }
+            return;
+        }
+        Session session = (Session) key.attachment();
+        try {
+            if (key.isReadable()) {
+                session.read();
+            }
+            if (key.isValid() && key.isWritable()) {
+                session.flush();
+            }
+        } catch (IOException e) {
+            session.close();
+        }
+    }
+
+    /** Stops server. Channels are closed by selector thread. */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /** Game session of one connection. Used only by selector thread. */
+    private final class Session {
+        /** Client channel. */
+        private final SocketChannel channel;
+        /** Selection key of channel. */
+        private final SelectionKey key;
+        /** Received bytes not yet parsed. */
+        private final ByteBuffer in = ByteBuffer.allocate(MAX_LINE);
+        /** Bytes waiting to be sent. */
+        private ByteBuffer out = ByteBuffer.allocate(MAX_LINE);
+        /** White discs. */
+        private long white = GameRecord.INITIAL_WHITE;
+        /** Black discs. */
+        private long black = GameRecord.INITIAL_BLACK;
+        /** Player to move (0 - white, 1 - black, -1 - game over). */
+        private int turn = GameRecord.MOVE_STRING_TURN;
+        /** Color played by AI or NO_AI. */
+        private int aiColor = NO_AI;
+        /** Flag for AI move being computed. */
+        private boolean thinking;
+        /** AI move computed by scheduler (-1 if search failed). */
+        private volatile int aiMove;
+        /** Flag for closed session. */
+        private volatile boolean closed;
+
+        /**
+         * Session constructor.
+         *
+         * @param socket client channel.
+         * @param selectionKey selection key of channel.
+         */
+        Session(final SocketChannel socket, final SelectionKey selectionKey) {
+            this.channel = socket;
+            this.key = selectionKey;
+        }
+
+        /**
+         * Reads available bytes and executes complete lines.
+         *
+         * @throws IOException exception on read.
+         */
+        void read() throws IOException {
+            if (channel.read(in) < 0) {
+                close();
+                return;
+            }
+            int start = 0;
+            for (int i = 0; i < in.position(); i++) {
+                if (in.get(i) == '\n') {
+                    String line = new String(in.array(), start, i - start,
+                        StandardCharsets.US_ASCII).trim();
+                    start = i + 1;
+                    if (!line.isEmpty()) {
+                        execute(line);
+                    }
+                    if (closed) {
+                        return;
+                    }
+                }
+            }
+            if (start == 0 && !in.hasRemaining()) {
+                reply("ERR line too long");
+                close();
+                return;
+            }
+            // keep incomplete line at buffer start
+            in.flip();
+            in.position(start);
+            in.compact();
+        }
+
+        /**
+         * Executes command.
+         *
+         * @param line command line.
+         */
+        private void execute(final String line) {
+            String[] words = line.split("\\s+");
+            String command = words[0].toUpperCase();
+            if (command.equals("QUIT")) {
+                close();
+            } else if (thinking) {
+                reply("ERR AI is thinking");
+            } else if (command.equals("NEW")) {
+                white = GameRecord.INITIAL_WHITE;
+                black = GameRecord.INITIAL_BLACK;
+                turn = GameRecord.MOVE_STRING_TURN;
+                boolean ai = words.length > 1
+                    && words[1].equalsIgnoreCase("AI");
+                aiColor = ai ? WHITE : NO_AI;
+                replyState();
+            } else if (command.equals("BOARD")) {
+                replyState();
+            } else if (command.equals("MOVE") && words.length == 2) {
+                move(words[1]);
+            } else {
+                reply("ERR unknown command");
+            }
+        }
+
+        /**
+         * Plays move of client.
+         *
+         * @param move move in a1-h8 notation.
+         */
+        private void move(final String move) {
+            if (turn < 0 || turn == aiColor) {
+                reply("ERR not your turn");
+                return;
+            }
+            int square = -1;
+            try {
+                if (move.length() == 2) {
+                    square = GameRecord.parseSquare(move.charAt(0),
+                        move.charAt(1));
+                }
+            } catch (IllegalArgumentException e) {
+                square = -1;
+            }
+            long own = turn == WHITE ? white : black;
+            long opp = turn == WHITE ? black : white;
+            if (square < 0
+                || (BitBoard.validMoves(own, opp) & (1L << square)) == 0) {
+                reply("ERR illegal move");
+                return;
+            }
+            play(square);
+            startAi();
+        }
+
+        /**
+         * Plays legal move of side to move, then passes if needed.
+         *
+         * @param square row * 8 + col.
+         */
+        private void play(final int square) {
+            long own = turn == WHITE ? white : black;
+            long opp = turn == WHITE ? black : white;
+            long flipped = BitBoard.flips(square, own, opp);
+            own |= flipped | (1L << square);
+            opp &= ~flipped;
+            white = turn == WHITE ? own : opp;
+            black = turn == WHITE ? opp : own;
+            // opponent of mover is to move next
+            int status = BitBoard.status(opp, own);
+            if (status == BitBoard.MOVE) {
+                turn = 1 - turn;
+            } else if (status == BitBoard.GAME_OVER) {
+                turn = -1;
+            }
+        }
+
+        /** Submits AI move if AI is to move, replies state otherwise. */
+        private void startAi() {
+            if (turn < 0 || turn != aiColor) {
+                replyState();
+                return;
+            }
+            thinking = true;
+            final long own = turn == WHITE ? white : black;
+            final long opp = turn == WHITE ? black : white;
+            scheduler.submit(own, opp, System.nanoTime() + thinkNanos)
+                .whenComplete((square, error) -> {
+                    if (closed) {
+                        return;
+                    }
+                    // failure is reported by selector thread too
+                    aiMove = error != null ? -1 : square;
+                    finished.add(this);
+                    selector.wakeup();
+                });
+        }
+
+        /** Applies computed AI move (on selector thread). */
+        void aiMoved() {
+            thinking = false;
+            if (closed) {
+                return;
+            }
+            if (aiMove < 0) {
+                reply("ERR AI search failed");
+                return;
+            }
+            play(aiMove);
+            startAi();
+        }
+
+        /** Replies current state. */
+        private void replyState() {
+            final int cols = 8;
+            StringBuilder sb = new StringBuilder("STATE ");
+            for (int square = 0; square < cols * cols; square++) {
+                long bit = 1L << square;
+                sb.append((white & bit) != 0 ? 'O'
+                    : (black & bit) != 0 ? '*' : '.');
+            }
+            sb.append(' ').append(turn == WHITE ? 'O'
+                : turn == BLACK ? '*' : '-').append(' ');
+            long moves = 0;
+            if (turn >= 0) {
+                moves = turn == WHITE ? BitBoard.validMoves(white, black)
+                    : BitBoard.validMoves(black, white);
+            }
+            if (moves == 0) {
+                sb.append('-');
+            }
+            while (moves != 0) {
+                sb.append(GameRecord.squareToString(
+                    Long.numberOfTrailingZeros(moves)));
+                moves &= moves - 1;
+                if (moves != 0) {
+                    sb.append(',');
+                }
+            }
+            reply(sb.toString());
+        }
+
+        /**
+         * Queues reply line and tries to send it.
+         *
+         * @param line reply without line end.
+         */
+        private void reply(final String line) {
+            byte[] bytes = (line + "\n").getBytes(StandardCharsets.US_ASCII);
+            if (out.remaining() < bytes.length) {
+                ByteBuffer bigger = ByteBuffer.allocate(Math.max(
+                    out.capacity() * 2, out.position() + bytes.length));
+                out.flip();
+                bigger.put(out);
+                out = bigger;
+            }
+            out.put(bytes);
+            try {
+                flush();
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        /**
+         * Sends queued bytes, waits for writable channel if needed.
+         *
+         * @throws IOException exception on write.
+         */
+        void flush() throws IOException {
+            out.flip();
+            channel.write(out);
+            out.compact();
+            if (!key.isValid()) {
+                return;
+            }
+            if (out.position() > 0) {
+                key.interestOps(SelectionKey.OP_READ
+                    | SelectionKey.OP_WRITE);
+            } else {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        /** Closes connection. */
+        void close() {
+            closed = true;
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // connection is dropped anyway
+            }
+        }
+    }
+
+    /**
+     * Starts server from command line.
+     *
+     * @param args [-port N] [-think ms] [-threads N]
+     * @throws IOException exception on bind.
+     */
+    public static void main(final String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        int think = DEFAULT_THINK_MILLIS;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("-port")) {
+                port = Integer.parseInt(args[i + 1]);
+            } else if (args[i].equals("-think")) {
+                think = Integer.parseInt(args[i + 1]);
+            } else if (args[i].equals("-threads")) {
+                threads = Integer.parseInt(args[i + 1]);
+            }
+        }
+        GameServer gameServer = new GameServer(port, think, threads);
+        System.out.println("Listening on 127.0.0.1:" + gameServer.getPort());
+        gameServer.run();
+    }
+}
@@ -0,0 +1,213 @@
+package com.yacotaco;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * HeadlessEngine class.
+ * Command line engine without JavaFX: answers best move of position given
+ * as moves from start position in standard notation (transcript like
+ * "f5d6c3", black moves first, forced passes omitted, "pa" for turn given
+ * up with legal moves left). It uses only engine classes, so it can be
+ * compiled ahead of time to native image (profile "native") and started
+ * per request.
+ *
+ * With moves argument one position is answered; without it every line of
+ * standard input is one position and gets one reply line:
+ * <ul>
+ * <li>{@code f4 winrate 0.534 playouts 12000} - searched move,</li>
+ * <li>{@code f4 exact 6} - move of exactly solved position with final
+ * disc difference for player to move,</li>
+ * <li>{@code pass} - player to move has no legal move,</li>
+ * <li>{@code end 40 24} - game is over (white and black discs),</li>
+ * <li>{@code ERR message} - moves can't be replayed.</li>
+ * </ul>
+ *
+ * Usage: {@code HeadlessEngine [-budget ms] [-playouts N] [-exact empties]
+ * [-seed N] [moves]}
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+public final class HeadlessEngine {
+    /** Default search budget per position in milliseconds. */
+    public static final int DEFAULT_BUDGET_MILLIS = 100;
+    /** Default largest number of empty squares solved exactly. */
+    public static final int DEFAULT_EXACT_EMPTIES = 14;
+    /** Nanoseconds in millisecond. */
+    private static final long NANOS_PER_MILLI = 1000000L;
+    /** Number of squares on board. */
+    private static final int SQUARES = 64;
+    /** White player. */
+    private static final int WHITE = 0;
+
+    /** Search budget per position in milliseconds. */
+    private final int budgetMillis;
+    /** Playouts per position, 0 for time budget. */
+    private final int playouts;
+    /** Largest number of empty squares solved exactly (-1 - never). */
+    private final int exactEmpties;
+    /** Search reused between positions. */
+    private final MonteCarloSearch search;
+
+    /**
+     * HeadlessEngine constructor.
+     *
+     * @param budget search budget per position in milliseconds.
+     * @param fixedPlayouts playouts per position, 0 for time budget.
+     * @param exact largest number of empty squares solved exactly.
+     * @param seed random seed of search.
+     */
+    public HeadlessEngine(final int budget, final int fixedPlayouts,
+        final int exact, final long seed) {
+        this.budgetMillis = budget;
+        this.playouts = fixedPlayouts;
+        this.exactEmpties = exact;
+        this.search = new MonteCarloSearch(seed);
+    }
+
+    /**
+     * Answers best move of position.
+     *
+     * @param moves moves from start position, whitespace is ignored.
+     * @return reply line.
+     */
+    public String answer(final String moves) {
+        String line = moves.replaceAll("\\s", "");
+        if (line.length() % 2 != 0) {
+            return "ERR odd number of move characters";
+        }
+        long white = GameRecord.INITIAL_WHITE;
+        long black = GameRecord.INITIAL_BLACK;
+        int turn = GameRecord.MOVE_STRING_TURN;
+        for (int i = 0; i < line.length(); i += 2) {
+            if (line.regionMatches(true, i, "pa", 0, 2)) {
+                turn = 1 - turn;
+                continue;
+            }
+            long own = turn == WHITE ? white : black;
+            long opp = turn == WHITE ? black : white;
+            if (BitBoard.validMoves(own, opp) == 0) {
+                // pass is implied by next move
+                turn = 1 - turn;
+                long swap = own;
+                own = opp;
+                opp = swap;
+            }
+            int square;
+            try {
+                square = GameRecord.parseSquare(line.charAt(i),
+                    line.charAt(i + 1));
+            } catch (IllegalArgumentException e) {
+                return "ERR " + e.getMessage();
+            }
+            if ((BitBoard.validMoves(own, opp) & (1L << square)) == 0) {
+                return "ERR illegal move " + line.substring(i, i + 2);
+            }
+            long flipped = BitBoard.flips(square, own, opp);
+            own |= flipped | (1L << square);
+            opp &= ~flipped;
+            white = turn == WHITE ? own : opp;
+            black = turn == WHITE ? opp : own;
+            turn = 1 - turn;
+        }
+        long own = turn == WHITE ? white : black;
+        long opp = turn == WHITE ? black : white;
+        int status = BitBoard.status(own, opp);
+        if (status == BitBoard.GAME_OVER) {
+            return "end " + Long.bitCount(white) + " " + Long.bitCount(black);
+        } else if (status == BitBoard.PASS) {
+            return "pass";
+        }
+        return bestMove(own, opp);
+    }
+
+    /**
+     * Finds best move of position with legal move.
+     *
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @return reply line.
+     */
+    private String bestMove(final long own, final long opp) {
+        int empties = SQUARES - Long.bitCount(own | opp);
+        if (empties <= exactEmpties) {
+            EndgameSolver solver = new EndgameSolver();
+            int square = solver.bestMove(own, opp);
+            return GameRecord.squareToString(square) + " exact "
+                + solver.getScore();
+        }
+        int square;
+        if (playouts > 0) {
+            search.reset(own, opp);
+            search.run(playouts);
+            square = search.bestMove();
+        } else {
+            square = search.bestMove(own, opp,
+                System.nanoTime() + budgetMillis * NANOS_PER_MILLI);
+        }
+        double winRate = 0;
+        for (int i = 0; i < search.size(); i++) {
+            if (search.getSquare(i) == square) {
+                winRate = search.getWinRate(i);
+            }
+        }
+        return String.format(Locale.ROOT, "%s winrate %.3f playouts %d",
+            GameRecord.squareToString(square), winRate, search.getTotal());
+    }
+
+    /**
+     * Runs engine from command line.
+     *
+     * @param args options and moves.
+     * @throws IOException exception on reading standard input.
+     */
+    public static void main(final String[] args) throws IOException {
+        int budget = DEFAULT_BUDGET_MILLIS;
+        int fixedPlayouts = 0;
+        int exact = DEFAULT_EXACT_EMPTIES;
+        long seed = System.nanoTime();
+        String moves = null;
+        for (int i = 0; i < args.length; i++) {
+            boolean hasValue = i + 1 < args.length;
+            if (args[i].equals("-budget") && hasValue) {
+                budget = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-playouts") && hasValue) {
+                fixedPlayouts = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-exact") && hasValue) {
+                exact = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-seed") && hasValue) {
+                seed = Long.parseLong(args[++i]);
+            } else if (moves == null && !args[i].startsWith("-")) {
+                moves = args[i];
+            } else {
+                System.err.println("Usage: HeadlessEngine [-budget ms]"
+                    + " [-playouts N] [-exact empties] [-seed N] [moves]");
+                System.exit(1);
+            }
+        }
+        // short-lived process has no use for JMX view of metrics
+        if (System.getProperty(EngineMetrics.JMX_PROPERTY) == null) {
+            System.setProperty(EngineMetrics.JMX_PROPERTY, "false");
+        }
+        HeadlessEngine engine = new HeadlessEngine(budget, fixedPlayouts,
+            exact, seed);
+        PrintStream out = System.out;
+        if (moves != null) {
+            out.println(engine.answer(moves));
+            return;
+        }
+        BufferedReader in = new BufferedReader(new InputStreamReader(
+            System.in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = in.readLine()) != null) {
+            out.println(engine.answer(line));
+            out.flush();
+        }
+    }
+}
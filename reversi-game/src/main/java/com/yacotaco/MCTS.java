@@ -37,9 +37,24 @@ public class MCTS {
 
     // Simulation
     public class Simulation {
+        /** Random playout kernel. */
+        private final Playout playout;
 
         public Simulation() {
+            this.playout = new Playout(System.nanoTime());
+        }
 
+        /**
+         * Plays random game to the end.
+         *
+         * @param own discs of player to move.
+         * @param opp discs of opponent.
+         * @return 1 for win, 0.5 for draw, 0 for loss of player to move.
+         */
+        public double simulate(final long own, final long opp) {
+            int diff = playout.play(own, opp);
+            playout.flushMetrics();
+            return diff > 0 ? 1.0 : diff == 0 ? 0.5 : 0.0;
         }
 
     }
@@ -0,0 +1,238 @@
+package com.yacotaco;
+
+/**
+ * MonteCarloSearch class.
+ * Flat Monte Carlo search over legal moves of one position: random
+ * playouts are spread between moves by UCB1 and move with most playouts
+ * is chosen. Instance is reused between positions and is not thread-safe.
+ *
+ * With {@link PatternEvaluator} set, evaluation of each move is prior of
+ * its win rate: it counts as {@link #PRIOR_PLAYOUTS} playouts in UCB1, so
+ * playouts go to moves evaluator likes first, until real results outweigh
+ * it.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+public final class MonteCarloSearch {
+    /** UCB1 exploration constant. */
+    private static final double EXPLORATION = 1.4;
+    /** Playouts between deadline checks. */
+    private static final int BATCH = 64;
+    /** Largest number of legal moves. */
+    private static final int MAX_MOVES = 32;
+    /** Weight of evaluator prior in playouts. */
+    private static final double PRIOR_PLAYOUTS = 8;
+    /** Disc difference for which prior win rate is about 73%. */
+    private static final double PRIOR_SCALE = 8;
+
+    /** Random playout kernel. */
+    private final Playout playout;
+    /** Squares of moves. */
+    private final int[] squares = new int[MAX_MOVES];
+    /** Own discs of player to move after each move (opponent). */
+    private final long[] childOwn = new long[MAX_MOVES];
+    /** Opponent discs after each move (player who moved). */
+    private final long[] childOpp = new long[MAX_MOVES];
+    /** Playouts of each move. */
+    private final long[] visits = new long[MAX_MOVES];
+    /** Wins of each move (draw is half). */
+    private final double[] wins = new double[MAX_MOVES];
+    /** Prior win rate of each move. */
+    private final double[] priors = new double[MAX_MOVES];
+    /** Evaluator giving priors of moves (optional). */
+    private PatternEvaluator evaluator;
+    /** Weight of priors in current search (0 without evaluator). */
+    private double priorWeight;
+    /** Number of legal moves. */
+    private int count;
+    /** Sum of playouts. */
+    private long total;
+
+    /**
+     * MonteCarloSearch constructor.
+     *
+     * @param seed random seed.
+     */
+    public MonteCarloSearch(final long seed) {
+        this.playout = new Playout(seed);
+    }
+
+    /**
+     * Sets evaluator giving priors of moves, used from next reset.
+     *
+     * @param priorEvaluator evaluator or null for plain playouts.
+     */
+    public void setEvaluator(final PatternEvaluator priorEvaluator) {
+        this.evaluator = priorEvaluator;
+    }
+
+    /**
+     * Turns counting of playouts in engine metrics on or off.
+     *
+     * @param on false for search which isn't game work (warm-up).
+     */
+    public void setMetricsOn(final boolean on) {
+        playout.setMetricsOn(on);
+    }
+
+    /**
+     * Starts search of new position. Statistics are cleared.
+     *
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     */
+    public void reset(final long own, final long opp) {
+        long moves = BitBoard.validMoves(own, opp);
+        count = 0;
+        total = 0;
+        priorWeight = evaluator != null ? PRIOR_PLAYOUTS : 0;
+        while (moves != 0) {
+            int square = Long.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+            long flipped = BitBoard.flips(square, own, opp);
+            squares[count] = square;
+            // after move opponent is to move
+            childOwn[count] = opp & ~flipped;
+            childOpp[count] = own | flipped | (1L << square);
+            visits[count] = 0;
+            wins[count] = 0;
+            if (evaluator != null) {
+                // evaluation is for opponent, who is to move
+                double score = -evaluator.evaluate(childOwn[count],
+                    childOpp[count]);
+                priors[count] = 1 / (1 + Math.exp(-score / PRIOR_SCALE));
+            }
+            count++;
+        }
+    }
+
+    /**
+     * Runs playouts.
+     *
+     * @param playouts number of playouts.
+     */
+    public void run(final int playouts) {
+        if (count == 0) {
+            return;
+        }
+        for (int p = 0; p < playouts; p++) {
+            int i = select();
+            int result = playout.play(childOwn[i], childOpp[i]);
+            visits[i]++;
+            wins[i] += result < 0 ? 1.0 : result == 0 ? 0.5 : 0.0;
+            total++;
+        }
+        playout.flushMetrics();
+    }
+
+    /**
+     * Searches position until deadline and picks move.
+     *
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @param deadline System.nanoTime() value to stop at.
+     * @return square of best move or -1 if there is no legal move.
+     */
+    public int bestMove(final long own, final long opp, final long deadline) {
+        reset(own, opp);
+        if (count == 1) {
+            return squares[0];
+        }
+        do {
+            run(BATCH);
+        } while (count > 0 && System.nanoTime() - deadline < 0);
+        return bestMove();
+    }
+
+    /**
+     * Gets move with most playouts.
+     *
+     * @return square of move or -1 if there is no legal move.
+     */
+    public int bestMove() {
+        int best = -1;
+        long bestVisits = -1;
+        for (int i = 0; i < count; i++) {
+            if (visits[i] > bestVisits) {
+                bestVisits = visits[i];
+                best = squares[i];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Selects move to try by UCB1, with evaluator prior counted as
+     * playouts when evaluator is set.
+     *
+     * @return index of move.
+     */
+    private int select() {
+        double log = Math.log(total + 1);
+        int best = 0;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            double n = visits[i] + priorWeight;
+            if (n == 0) {
+                return i;
+            }
+            double score = (wins[i] + priorWeight * priors[i]) / n
+                + EXPLORATION * Math.sqrt(log / n);
+            if (score > bestScore) {
+                bestScore = score;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Gets number of legal moves.
+     *
+     * @return number of moves.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Gets number of playouts since reset.
+     *
+     * @return number of playouts.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Gets square of move.
+     *
+     * @param i move index.
+     * @return row * 8 + col.
+     */
+    public int getSquare(final int i) {
+        return squares[i];
+    }
+
+    /**
+     * Gets playouts of move.
+     *
+     * @param i move index.
+     * @return number of playouts.
+     */
+    public long getVisits(final int i) {
+        return visits[i];
+    }
+
+    /**
+     * Gets win rate of move.
+     *
+     * @param i move index.
+     * @return win rate (0-1) for player to move.
+     */
+    public double getWinRate(final int i) {
+        return visits[i] == 0 ? 0 : wins[i] / visits[i];
+    }
+}
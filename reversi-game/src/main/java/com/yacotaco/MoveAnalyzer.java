@@ -0,0 +1,235 @@
+package com.yacotaco;
+
+/**
+ * MoveAnalyzer class.
+ * Background analysis of all legal moves of position. Worker thread keeps
+ * running {@link MonteCarloSearch} until position is changed or analysis
+ * is paused.
+ *
+ * Worker publishes immutable {@link Result} at most every
+ * {@link #PUBLISH_MILLIS} milliseconds; readers (JavaFX thread) poll
+ * {@link #latest()} at own rate, so result flow never floods UI thread no
+ * matter how fast search runs.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+public class MoveAnalyzer {
+    /** Minimum time between published results. */
+    public static final long PUBLISH_MILLIS = 50;
+    /** Playouts between checks of position change and publish time. */
+    private static final int BATCH = 256;
+
+    /** Worker thread. */
+    private final Thread worker;
+    /** Own discs of analysed position. */
+    private long rootOwn;
+    /** Opponent discs of analysed position. */
+    private long rootOpp;
+    /** Changed on every new position, guarded by this. */
+    private long generation;
+    /** Flag for running analysis, guarded by this. */
+    private boolean running;
+    /** Latest published result. */
+    private volatile Result latest;
+
+    /**
+     * MoveAnalyzer constructor. Starts idle worker thread.
+     */
+    public MoveAnalyzer() {
+        this.worker = new Thread(this::work, "move-analyzer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Starts analysis of new position. Previous results are dropped.
+     *
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     */
+    public synchronized void analyze(final long own, final long opp) {
+        rootOwn = own;
+        rootOpp = opp;
+        generation++;
+        running = true;
+        latest = null;
+        notifyAll();
+    }
+
+    /** Pauses analysis. Last result is dropped. */
+    public synchronized void pause() {
+        running = false;
+        generation++;
+        latest = null;
+    }
+
+    /**
+     * Gets latest published result.
+     *
+     * @return result or null if nothing was published for position yet.
+     */
+    public Result latest() {
+        return latest;
+    }
+
+    /** Worker thread loop. */
+    private void work() {
+        MonteCarloSearch search = new MonteCarloSearch(System.nanoTime());
+        while (true) {
+            long own;
+            long opp;
+            long gen;
+            synchronized (this) {
+                while (!running) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                own = rootOwn;
+                opp = rootOpp;
+                gen = generation;
+            }
+            search(search, own, opp, gen);
+        }
+    }
+
+    /**
+     * Searches position until it is changed or paused.
+     *
+     * @param search Monte Carlo search.
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @param gen generation of position.
+     */
+    private void search(final MonteCarloSearch search, final long own,
+        final long opp, final long gen) {
+        search.reset(own, opp);
+        long published = 0;
+        while (true) {
+            synchronized (this) {
+                if (generation != gen) {
+                    return;
+                }
+            }
+            if (search.size() == 0) {
+                publish(gen, search);
+                synchronized (this) {
+                    // nothing to analyse until position changes
+                    if (generation == gen) {
+                        running = false;
+                    }
+                }
+                return;
+            }
+            search.run(BATCH);
+            long now = System.currentTimeMillis();
+            if (now - published >= PUBLISH_MILLIS) {
+                publish(gen, search);
+                published = now;
+            }
+        }
+    }
+
+    /**
+     * Publishes copy of statistics if position wasn't changed meanwhile.
+     *
+     * @param gen generation of position.
+     * @param search search with statistics.
+     */
+    private synchronized void publish(final long gen,
+        final MonteCarloSearch search) {
+        if (generation != gen) {
+            return;
+        }
+        int count = search.size();
+        int[] squares = new int[count];
+        long[] visits = new long[count];
+        double[] rates = new double[count];
+        for (int i = 0; i < count; i++) {
+            squares[i] = search.getSquare(i);
+            visits[i] = search.getVisits(i);
+            rates[i] = search.getWinRate(i);
+        }
+        latest = new Result(gen, squares, visits, rates);
+    }
+
+    /** Immutable analysis snapshot of all legal moves. */
+    public static final class Result {
+        /** Generation of analysed position. */
+        private final long generation;
+        /** Squares of moves (row * 8 + col). */
+        private final int[] squares;
+        /** Playouts of each move. */
+        private final long[] visits;
+        /** Win rate of each move for player to move. */
+        private final double[] winRates;
+
+        /**
+         * Result constructor.
+         *
+         * @param gen generation of position.
+         * @param moveSquares squares of moves.
+         * @param moveVisits playouts of moves.
+         * @param moveWinRates win rates of moves.
+         */
+        private Result(final long gen, final int[] moveSquares,
+            final long[] moveVisits, final double[] moveWinRates) {
+            this.generation = gen;
+            this.squares = moveSquares;
+            this.visits = moveVisits;
+            this.winRates = moveWinRates;
+        }
+
+        /**
+         * Gets generation of analysed position.
+         *
+         * @return generation.
+         */
+        public long getGeneration() {
+            return generation;
+        }
+
+        /**
+         * Gets number of moves.
+         *
+         * @return number of legal moves.
+         */
+        public int size() {
+            return squares.length;
+        }
+
+        /**
+         * Gets square of move.
+         *
+         * @param i move index.
+         * @return row * 8 + col.
+         */
+        public int getSquare(final int i) {
+            return squares[i];
+        }
+
+        /**
+         * Gets playouts of move.
+         *
+         * @param i move index.
+         * @return number of playouts.
+         */
+        public long getVisits(final int i) {
+            return visits[i];
+        }
+
+        /**
+         * Gets win rate of move.
+         *
+         * @param i move index.
+         * @return win rate (0-1) for player to move.
+         */
+        public double getWinRate(final int i) {
+            return winRates[i];
+        }
+    }
+}
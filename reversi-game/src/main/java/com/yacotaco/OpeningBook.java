@@ -0,0 +1,160 @@
+package com.yacotaco;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * OpeningBook class.
+ * Looks up early game moves in sorted binary book file written by
+ * {@link OpeningBookBuilder}. File is memory-mapped and searched with
+ * binary search, so lookups don't load the book into heap.
+ *
+ * Positions are stored from side to move point of view (own and opponent
+ * discs) folded by {@link Symmetry} to one canonical representative.
+ * File layout: magic, version, entry count, then entries sorted by
+ * (own, opponent) as unsigned longs: own mask, opponent mask, games,
+ * points (2 per win, 1 per draw) and sum of final disc differences.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+public class OpeningBook implements Closeable {
+    /** File magic ("RVBK"). */
+    static final int MAGIC = 0x5256424B;
+    /** Format version. */
+    static final int VERSION = 1;
+    /** Size of file header in bytes. */
+    static final int HEADER_SIZE = 16;
+    /** Size of entry in bytes. */
+    static final int ENTRY_SIZE = 28;
+    /** Offset of games in entry. */
+    private static final int GAMES = 16;
+    /** Offset of points in entry. */
+    private static final int POINTS = 20;
+
+    /** Book file channel. */
+    private final FileChannel channel;
+    /** Mapped book file. */
+    private final MappedByteBuffer buffer;
+    /** Number of entries. */
+    private final int entries;
+    /** Minimum number of games for move to be played from book. */
+    private int minGames = 2;
+
+    /**
+     * OpeningBook constructor. Maps book file.
+     *
+     * @param path book file path.
+     * @throws IOException exception on read or corrupted file.
+     */
+    public OpeningBook(final Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        long size = channel.size();
+        if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IOException("Not an opening book: " + path);
+        }
+        this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        long count = buffer.getLong(Integer.BYTES * 2);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(Integer.BYTES)
+            != VERSION || HEADER_SIZE + count * ENTRY_SIZE > size) {
+            channel.close();
+            throw new IOException("Not an opening book: " + path);
+        }
+        this.entries = (int) count;
+    }
+
+    /**
+     * Sets minimum number of games for move to be played from book.
+     *
+     * @param games number of games.
+     */
+    public void setMinGames(final int games) {
+        this.minGames = games;
+    }
+
+    /**
+     * Gets number of positions in book.
+     *
+     * @return number of entries.
+     */
+    public int size() {
+        return entries;
+    }
+
+    /**
+     * Finds best book move for player to move.
+     * Each legal move is scored by book statistics of position after it.
+     *
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @return square (row * 8 + col) or -1 if position is out of book.
+     */
+    public int bestMove(final long own, final long opp) {
+        long moves = BitBoard.validMoves(own, opp);
+        int best = -1;
+        double bestScore = -1.0;
+        while (moves != 0) {
+            int square = Long.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+            long flipped = BitBoard.flips(square, own, opp);
+            // after move opponent is to move
+            long childOwn = opp & ~flipped;
+            long childOpp = own | flipped | (1L << square);
+            int entry = find(childOwn, childOpp);
+            if (entry < 0) {
+                continue;
+            }
+            int games = buffer.getInt(entry + GAMES);
+            if (games < minGames) {
+                continue;
+            }
+            double opponentScore = buffer.getInt(entry + POINTS)
+                / (2.0 * games);
+            double score = 1.0 - opponentScore;
+            if (score > bestScore) {
+                bestScore = score;
+                best = square;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Finds entry of position.
+     *
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @return entry offset in file or -1 if position is not in book.
+     */
+    private int find(final long own, final long opp) {
+        long[] key = new long[2];
+        Symmetry.canonical(own, opp, key);
+        int low = 0;
+        int high = entries - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int offset = HEADER_SIZE + mid * ENTRY_SIZE;
+            int cmp = Symmetry.compare(buffer.getLong(offset),
+                buffer.getLong(offset + Long.BYTES), key[0], key[1]);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,325 @@
+package com.yacotaco;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * OpeningBookBuilder class.
+ * Aggregates win statistics of early positions from finished games and
+ * writes sorted binary book read by {@link OpeningBook}.
+ *
+ * Usage: {@code OpeningBookBuilder [-plies N] [-min N] <book> <input>...}
+ * where input is transcript file or game database.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+public class OpeningBookBuilder {
+    /** Default number of plies taken from each game. */
+    public static final int DEFAULT_PLIES = 20;
+    /** Initial capacity of position table. */
+    private static final int INITIAL_CAPACITY = 1 << 16;
+    /** Size of output buffer in bytes. */
+    private static final int IO_BUFFER = 1 << 20;
+    /** Database file magic ("RVDB"). */
+    private static final int DATABASE_MAGIC = 0x52564442;
+
+    /** Number of plies taken from each game. */
+    private final int maxPly;
+    /** Canonical own masks (slot is empty when games is 0). */
+    private long[] owns = new long[INITIAL_CAPACITY];
+    /** Canonical opponent masks. */
+    private long[] opps = new long[INITIAL_CAPACITY];
+    /** Number of games which reached position. */
+    private int[] games = new int[INITIAL_CAPACITY];
+    /** Points of player to move (2 per win, 1 per draw). */
+    private int[] points = new int[INITIAL_CAPACITY];
+    /** Sum of final disc differences of player to move. */
+    private int[] discs = new int[INITIAL_CAPACITY];
+    /** Number of positions. */
+    private int size;
+    /** Number of games added. */
+    private long gameCount;
+
+    /**
+     * OpeningBookBuilder constructor.
+     *
+     * @param plies number of plies taken from each game.
+     */
+    public OpeningBookBuilder(final int plies) {
+        this.maxPly = plies;
+    }
+
+    /**
+     * Adds positions of finished game. Unfinished or illegal games are
+     * skipped.
+     *
+     * @param record game record.
+     * @return true if game was added.
+     */
+    public boolean add(final GameRecord record) {
+        if (!record.isFinished()) {
+            return false;
+        }
+        final int whiteResult = record.getResult();
+        final long[] whites = new long[maxPly + 1];
+        final long[] blacks = new long[maxPly + 1];
+        final int[] turns = new int[maxPly + 1];
+        final int[] count = new int[1];
+        boolean legal = record.replay((ply, white, black, turn) -> {
+            if (ply <= maxPly) {
+                whites[ply] = white;
+                blacks[ply] = black;
+                turns[ply] = turn;
+                count[0] = ply + 1;
+            }
+        });
+        if (!legal) {
+            return false;
+        }
+        long[] key = new long[2];
+        for (int ply = 0; ply < count[0]; ply++) {
+            int turn = turns[ply];
+            int result = turn == 0 ? whiteResult : -whiteResult;
+            if (turn == 0) {
+                Symmetry.canonical(whites[ply], blacks[ply], key);
+            } else {
+                Symmetry.canonical(blacks[ply], whites[ply], key);
+            }
+            addPosition(key[0], key[1], result);
+        }
+        gameCount++;
+        return true;
+    }
+
+    /**
+     * Adds result to position statistics.
+     *
+     * @param own canonical own mask.
+     * @param opp canonical opponent mask.
+     * @param result final disc difference of player to move.
+     */
+    private void addPosition(final long own, final long opp,
+        final int result) {
+        if (size * 2 >= owns.length) {
+            rehash(owns.length * 2);
+        }
+        int slot = slot(owns, opps, games, own, opp);
+        if (games[slot] == 0) {
+            owns[slot] = own;
+            opps[slot] = opp;
+            size++;
+        }
+        games[slot]++;
+        points[slot] += Integer.signum(result) + 1;
+        discs[slot] += result;
+    }
+
+    /**
+     * Finds slot of position or empty slot where it belongs.
+     *
+     * @param ownTable own masks.
+     * @param oppTable opponent masks.
+     * @param gameTable games (0 marks empty slot).
+     * @param own own mask.
+     * @param opp opponent mask.
+     * @return slot index.
+     */
+    private static int slot(final long[] ownTable, final long[] oppTable,
+        final int[] gameTable, final long own, final long opp) {
+        int mask = ownTable.length - 1;
+        int slot = (int) GameDatabase.positionKey(own, opp, 0) & mask;
+        while (gameTable[slot] != 0
+            && (ownTable[slot] != own || oppTable[slot] != opp)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Grows position table.
+     *
+     * @param capacity new capacity (power of two).
+     */
+    private void rehash(final int capacity) {
+        long[] newOwns = new long[capacity];
+        long[] newOpps = new long[capacity];
+        int[] newGames = new int[capacity];
+        int[] newPoints = new int[capacity];
+        int[] newDiscs = new int[capacity];
+        for (int i = 0; i < owns.length; i++) {
+            if (games[i] != 0) {
+                int slot = slot(newOwns, newOpps, newGames, owns[i],
+                    opps[i]);
+                newOwns[slot] = owns[i];
+                newOpps[slot] = opps[i];
+                newGames[slot] = games[i];
+                newPoints[slot] = points[i];
+                newDiscs[slot] = discs[i];
+            }
+        }
+        owns = newOwns;
+        opps = newOpps;
+        games = newGames;
+        points = newPoints;
+        discs = newDiscs;
+    }
+
+    /**
+     * Gets number of distinct positions collected.
+     *
+     * @return number of positions.
+     */
+    public int getPositionCount() {
+        return size;
+    }
+
+    /**
+     * Gets number of games added.
+     *
+     * @return number of games.
+     */
+    public long getGameCount() {
+        return gameCount;
+    }
+
+    /**
+     * Writes sorted book file.
+     *
+     * @param path book file path.
+     * @param minGames positions seen in fewer games are dropped.
+     * @return number of written positions.
+     * @throws IOException exception on write.
+     */
+    public int write(final Path path, final int minGames) throws IOException {
+        List<Integer> order = new ArrayList<Integer>();
+        for (int i = 0; i < owns.length; i++) {
+            if (games[i] >= Math.max(1, minGames)) {
+                order.add(i);
+            }
+        }
+        Integer[] sorted = order.toArray(new Integer[0]);
+        Arrays.sort(sorted, (a, b) -> Symmetry.compare(owns[a], opps[a],
+            owns[b], opps[b]));
+
+        try (FileChannel out = FileChannel.open(path,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER);
+            buffer.putInt(OpeningBook.MAGIC).putInt(OpeningBook.VERSION)
+                .putLong(sorted.length);
+            for (int i : sorted) {
+                if (buffer.remaining() < OpeningBook.ENTRY_SIZE) {
+                    drain(out, buffer);
+                }
+                buffer.putLong(owns[i]).putLong(opps[i]).putInt(games[i])
+                    .putInt(points[i]).putInt(discs[i]);
+            }
+            drain(out, buffer);
+        }
+        return sorted.length;
+    }
+
+    /**
+     * Adds all finished games from transcript file or game database.
+     *
+     * @param input input file path.
+     * @throws IOException exception on read.
+     */
+    public void addFile(final Path input) throws IOException {
+        forEachGame(input, record -> add(record));
+    }
+
+    /**
+     * Reads all games from transcript file or game database.
+     *
+     * @param input input file path.
+     * @param consumer consumer of game records.
+     * @throws IOException exception on read.
+     */
+    static void forEachGame(final Path input,
+        final Consumer<GameRecord> consumer) throws IOException {
+        boolean database;
+        try (InputStream in = Files.newInputStream(input)) {
+            byte[] magic = new byte[Integer.BYTES];
+            database = in.read(magic) == magic.length
+                && ByteBuffer.wrap(magic).getInt() == DATABASE_MAGIC;
+        }
+        if (database) {
+            GameDatabase.scan(input, (record, offset) ->
+                consumer.accept(record));
+        } else {
+            try (BufferedReader br = Files.newBufferedReader(input,
+                StandardCharsets.UTF_8);
+                TranscriptReader reader = new TranscriptReader(br)) {
+                GameRecord record;
+                while ((record = reader.next()) != null) {
+                    consumer.accept(record);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes buffer content to channel and clears buffer.
+     *
+     * @param out output channel.
+     * @param buffer buffer in write mode.
+     * @throws IOException exception on write.
+     */
+    private static void drain(final FileChannel out, final ByteBuffer buffer)
+        throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Builds book from command line.
+     *
+     * @param args [-plies N] [-min N] book input...
+     * @throws IOException exception on read or write.
+     */
+    public static void main(final String[] args) throws IOException {
+        int plies = DEFAULT_PLIES;
+        int minGames = 2;
+        List<String> files = new ArrayList<String>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-plies") && i + 1 < args.length) {
+                plies = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-min") && i + 1 < args.length) {
+                minGames = Integer.parseInt(args[++i]);
+            } else {
+                files.add(args[i]);
+            }
+        }
+        if (files.size() < 2) {
+            System.err.println("Usage: OpeningBookBuilder [-plies N]"
+                + " [-min N] <book> <input>...");
+            System.exit(1);
+        }
+        OpeningBookBuilder builder = new OpeningBookBuilder(plies);
+        for (String file : files.subList(1, files.size())) {
+            builder.addFile(Paths.get(file));
+        }
+        int written = builder.write(Paths.get(files.get(0)), minGames);
+        System.out.println(builder.getGameCount() + " games, "
+            + builder.getPositionCount() + " positions, " + written
+            + " written");
+    }
+}
@@ -0,0 +1,459 @@
+package com.yacotaco;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * PatternEvaluator class.
+ * Table-driven position evaluation. Each pattern (edge, corner, line and
+ * diagonal groups of squares) is read as ternary number (0 - empty,
+ * 1 - own, 2 - opponent disc) which indexes weight table shared by all
+ * symmetric copies of pattern. Mobility difference and stable disc
+ * difference are two more tables. Weights are split into game phases by
+ * number of discs.
+ *
+ * Default weights reproduce classic square values and mobility; trained
+ * weights are stored in weight file (magic, version, weight count, scale,
+ * weights quantized to shorts, CRC32) written by {@link WeightTrainer}.
+ * Version 1 files, written before stability table, are read with zero
+ * stability weights.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+public final class PatternEvaluator {
+    /** Number of game phases. */
+    public static final int PHASES = 4;
+    /** Largest mobility difference with own weight. */
+    public static final int MAX_MOBILITY = 20;
+    /** Number of mobility table entries. */
+    private static final int MOBILITY_SIZE = 2 * MAX_MOBILITY + 1;
+    /** Largest stable disc difference with own weight. */
+    public static final int MAX_STABILITY = 32;
+    /** Number of stability table entries. */
+    private static final int STABILITY_SIZE = 2 * MAX_STABILITY + 1;
+    /** Number of columns on board. */
+    private static final int COLS = 8;
+    /** Largest pattern size. */
+    private static final int MAX_PATTERN = 10;
+    /** Powers of 3. */
+    private static final int[] POW3 = new int[MAX_PATTERN + 1];
+    /** Base pattern squares as {row, col} pairs. */
+    private static final int[][][] BASE_PATTERNS = {
+        // edge with X squares
+        {{0, 0}, {0, 1}, {0, 2}, {0, 3}, {0, 4}, {0, 5}, {0, 6}, {0, 7},
+            {1, 1}, {1, 6}},
+        // corner 3x3
+        {{0, 0}, {0, 1}, {0, 2}, {1, 0}, {1, 1}, {1, 2}, {2, 0}, {2, 1},
+            {2, 2}},
+        // corner 2x5
+        {{0, 0}, {0, 1}, {0, 2}, {0, 3}, {0, 4}, {1, 0}, {1, 1}, {1, 2},
+            {1, 3}, {1, 4}},
+        // lines 2, 3 and 4
+        line(1, 0, 0, 1, COLS),
+        line(2, 0, 0, 1, COLS),
+        line(3, 0, 0, 1, COLS),
+        // diagonals of length 8 to 4
+        line(0, 0, 1, 1, 8),
+        line(0, 1, 1, 1, 7),
+        line(0, 2, 1, 1, 6),
+        line(0, 3, 1, 1, 5),
+        line(0, 4, 1, 1, 4)};
+    /** Classic square values used for default weights. */
+    private static final int[] SQUARE_VALUES = {
+        100, -20, 10, 5, 5, 10, -20, 100,
+        -20, -50, -2, -2, -2, -2, -50, -20,
+        10, -2, -1, -1, -1, -1, -2, 10,
+        5, -2, -1, -1, -1, -1, -2, 5,
+        5, -2, -1, -1, -1, -1, -2, 5,
+        10, -2, -1, -1, -1, -1, -2, 10,
+        -20, -50, -2, -2, -2, -2, -50, -20,
+        100, -20, 10, 5, 5, 10, -20, 100};
+    /** Scale of square values (square value 10 is worth one disc). */
+    private static final float SQUARE_SCALE = 0.1f;
+    /** Weight file magic ("RVEW"). */
+    private static final int MAGIC = 0x52564557;
+    /** Weight file version. */
+    private static final int VERSION = 2;
+    /** Weight file version without stability table. */
+    private static final int VERSION_NO_STABILITY = 1;
+    /** Size of weight file header in bytes. */
+    private static final int HEADER_SIZE = 16;
+
+    /** Squares of every pattern instance. */
+    private static final int[][] INSTANCES;
+    /** Pattern type of every instance. */
+    private static final int[] INSTANCE_TYPE;
+    /** Offset of each pattern type table inside phase block. */
+    private static final int[] TYPE_OFFSET;
+    /** Offset of mobility table inside phase block. */
+    private static final int MOBILITY_OFFSET;
+    /** Offset of stability table inside phase block. */
+    private static final int STABILITY_OFFSET;
+    /** Number of weights in phase block. */
+    private static final int PHASE_SIZE;
+
+    static {
+        POW3[0] = 1;
+        for (int i = 1; i < POW3.length; i++) {
+            POW3[i] = POW3[i - 1] * 3;
+        }
+        List<int[]> instances = new ArrayList<int[]>();
+        List<Integer> types = new ArrayList<Integer>();
+        TYPE_OFFSET = new int[BASE_PATTERNS.length];
+        int offset = 0;
+        for (int type = 0; type < BASE_PATTERNS.length; type++) {
+            int[][] base = BASE_PATTERNS[type];
+            Set<String> seen = new HashSet<String>();
+            for (int s = 0; s < Symmetry.COUNT; s++) {
+                int[] squares = new int[base.length];
+                for (int i = 0; i < base.length; i++) {
+                    squares[i] = Symmetry.transformSquare(
+                        base[i][0] * COLS + base[i][1], s);
+                }
+                int[] sorted = squares.clone();
+                Arrays.sort(sorted);
+                if (seen.add(Arrays.toString(sorted))) {
+                    instances.add(squares);
+                    types.add(type);
+                }
+            }
+            TYPE_OFFSET[type] = offset;
+            offset += POW3[base.length];
+        }
+        MOBILITY_OFFSET = offset;
+        STABILITY_OFFSET = offset + MOBILITY_SIZE;
+        PHASE_SIZE = STABILITY_OFFSET + STABILITY_SIZE;
+        INSTANCES = instances.toArray(new int[0][]);
+        INSTANCE_TYPE = new int[types.size()];
+        for (int i = 0; i < INSTANCE_TYPE.length; i++) {
+            INSTANCE_TYPE[i] = types.get(i);
+        }
+    }
+
+    /** Holder of default evaluator, built on first use. */
+    private static final class DefaultHolder {
+        /** Default evaluator. */
+        private static final PatternEvaluator INSTANCE =
+            new PatternEvaluator(defaultWeights());
+    }
+
+    /** Weights of all phases. */
+    private final float[] weights;
+
+    /**
+     * PatternEvaluator constructor.
+     *
+     * @param phaseWeights weights of all phases (see getWeightCount).
+     */
+    public PatternEvaluator(final float[] phaseWeights) {
+        if (phaseWeights.length != getWeightCount()) {
+            throw new IllegalArgumentException("Expected "
+                + getWeightCount() + " weights");
+        }
+        this.weights = phaseWeights;
+    }
+
+    /**
+     * Gets evaluator with default weights.
+     *
+     * @return shared evaluator.
+     */
+    public static PatternEvaluator getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * Gets copy of evaluator weights.
+     *
+     * @return weights of all phases.
+     */
+    public float[] getWeights() {
+        return weights.clone();
+    }
+
+    /**
+     * Reads evaluator from weight file.
+     *
+     * @param path weight file path.
+     * @return evaluator with weights from file.
+     * @throws IOException exception on read or corrupted file.
+     */
+    public static PatternEvaluator read(final Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        int magic = buffer.remaining() >= HEADER_SIZE ? buffer.getInt() : 0;
+        int version = buffer.remaining() >= HEADER_SIZE ? buffer.getInt() : 0;
+        // version 1 phase block ends before stability table
+        int phaseSize = version == VERSION_NO_STABILITY
+            ? STABILITY_OFFSET : PHASE_SIZE;
+        int count = PHASES * phaseSize;
+        int size = HEADER_SIZE + count * Short.BYTES + Integer.BYTES;
+        if (buffer.capacity() != size || magic != MAGIC
+            || (version != VERSION && version != VERSION_NO_STABILITY)
+            || buffer.getInt() != count) {
+            throw new IOException("Not a weight file: " + path);
+        }
+        if (buffer.getInt(size - Integer.BYTES)
+            != checksum(buffer.array(), size - Integer.BYTES)) {
+            throw new IOException("Weight file is corrupted: " + path);
+        }
+        float scale = buffer.getFloat();
+        float[] phaseWeights = new float[getWeightCount()];
+        for (int i = 0; i < count; i++) {
+            phaseWeights[i / phaseSize * PHASE_SIZE + i % phaseSize] =
+                buffer.getShort() * scale;
+        }
+        return new PatternEvaluator(phaseWeights);
+    }
+
+    /**
+     * Writes weights to file. Weights are quantized to shorts.
+     *
+     * @param path weight file path.
+     * @param phaseWeights weights of all phases.
+     * @throws IOException exception on write.
+     */
+    public static void write(final Path path, final float[] phaseWeights)
+        throws IOException {
+        float max = 0f;
+        for (float w : phaseWeights) {
+            max = Math.max(max, Math.abs(w));
+        }
+        float scale = max > 0f ? max / Short.MAX_VALUE : 1f;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE
+            + phaseWeights.length * Short.BYTES + Integer.BYTES);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(phaseWeights.length)
+            .putFloat(scale);
+        for (float w : phaseWeights) {
+            buffer.putShort((short) Math.round(w / scale));
+        }
+        buffer.putInt(checksum(buffer.array(), buffer.position()));
+        Files.write(path, buffer.array());
+    }
+
+    /**
+     * Computes CRC32 checksum of bytes.
+     *
+     * @param bytes byte array.
+     * @param length number of bytes from start.
+     * @return checksum.
+     */
+    private static int checksum(final byte[] bytes, final int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Gets number of weights of evaluator.
+     *
+     * @return number of weights.
+     */
+    public static int getWeightCount() {
+        return PHASES * PHASE_SIZE;
+    }
+
+    /**
+     * Gets number of features of every position.
+     *
+     * @return number of pattern instances plus mobility and stability.
+     */
+    public static int getFeatureCount() {
+        return INSTANCES.length + 2;
+    }
+
+    /**
+     * Evaluates position from point of view of player to move.
+     *
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @return expected final disc difference.
+     */
+    public float evaluate(final long own, final long opp) {
+        int base = phase(own, opp) * PHASE_SIZE;
+        float score = 0f;
+        for (int i = 0; i < INSTANCES.length; i++) {
+            score += weights[base + TYPE_OFFSET[INSTANCE_TYPE[i]]
+                + index(INSTANCES[i], own, opp)];
+        }
+        return score + weights[base + MOBILITY_OFFSET
+            + mobilityIndex(own, opp)]
+            + weights[base + STABILITY_OFFSET + stabilityIndex(own, opp)];
+    }
+
+    /**
+     * Evaluates board from point of view of player.
+     *
+     * @param board Board class object.
+     * @param player player (0 - white, 1 - black).
+     * @return expected final disc difference.
+     */
+    public float evaluate(final Board board, final int player) {
+        return evaluate(board.getDiscMask(player),
+            board.getDiscMask(1 - player));
+    }
+
+    /**
+     * Collects weight indices used to evaluate position.
+     * Score is sum of weights at these indices.
+     *
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @param out array of getFeatureCount() size receiving indices.
+     */
+    public static void features(final long own, final long opp,
+        final int[] out) {
+        int base = phase(own, opp) * PHASE_SIZE;
+        for (int i = 0; i < INSTANCES.length; i++) {
+            out[i] = base + TYPE_OFFSET[INSTANCE_TYPE[i]]
+                + index(INSTANCES[i], own, opp);
+        }
+        out[INSTANCES.length] = base + MOBILITY_OFFSET
+            + mobilityIndex(own, opp);
+        out[INSTANCES.length + 1] = base + STABILITY_OFFSET
+            + stabilityIndex(own, opp);
+    }
+
+    /**
+     * Gets game phase of position.
+     *
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @return phase (0 - opening, PHASES - 1 - endgame).
+     */
+    private static int phase(final long own, final long opp) {
+        final int startDiscs = 4;
+        final int span = BitBoard.SQUARES - startDiscs;
+        int discs = Long.bitCount(own | opp) - startDiscs;
+        return Math.min(PHASES - 1, Math.max(0, discs * PHASES / span));
+    }
+
+    /**
+     * Computes ternary index of pattern instance.
+     *
+     * @param squares squares of instance.
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @return index (0 - empty, 1 - own, 2 - opponent disc per digit).
+     */
+    private static int index(final int[] squares, final long own,
+        final long opp) {
+        int index = 0;
+        for (int i = squares.length - 1; i >= 0; i--) {
+            int square = squares[i];
+            index = index * 3 + (int) ((own >>> square) & 1)
+                + 2 * (int) ((opp >>> square) & 1);
+        }
+        return index;
+    }
+
+    /**
+     * Gets mobility table index.
+     *
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @return index of clamped mobility difference.
+     */
+    private static int mobilityIndex(final long own, final long opp) {
+        int mobility = Long.bitCount(BitBoard.validMoves(own, opp))
+            - Long.bitCount(BitBoard.validMoves(opp, own));
+        return Math.max(-MAX_MOBILITY, Math.min(MAX_MOBILITY, mobility))
+            + MAX_MOBILITY;
+    }
+
+    /**
+     * Gets stability table index.
+     *
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @return index of clamped stable disc difference.
+     */
+    private static int stabilityIndex(final long own, final long opp) {
+        int stability = Long.bitCount(BitBoard.stable(own, opp))
+            - Long.bitCount(BitBoard.stable(opp, own));
+        return Math.max(-MAX_STABILITY, Math.min(MAX_STABILITY, stability))
+            + MAX_STABILITY;
+    }
+
+    /**
+     * Makes pattern along line.
+     *
+     * @param row start row.
+     * @param col start column.
+     * @param dRow row step.
+     * @param dCol column step.
+     * @param length number of squares.
+     * @return squares as {row, col} pairs.
+     */
+    private static int[][] line(final int row, final int col, final int dRow,
+        final int dCol, final int length) {
+        int[][] squares = new int[length][];
+        for (int i = 0; i < length; i++) {
+            squares[i] = new int[] {row + i * dRow, col + i * dCol};
+        }
+        return squares;
+    }
+
+    /**
+     * Builds default weights from classic square values and mobility.
+     * Value of each square is split between all instances covering it.
+     *
+     * @return weights of all phases.
+     */
+    public static float[] defaultWeights() {
+        int[] coverage = new int[BitBoard.SQUARES];
+        for (int[] squares : INSTANCES) {
+            for (int square : squares) {
+                coverage[square]++;
+            }
+        }
+        float[] phase = new float[PHASE_SIZE];
+        // instances of one type share table, first one defines it
+        boolean[] done = new boolean[BASE_PATTERNS.length];
+        for (int i = 0; i < INSTANCES.length; i++) {
+            int type = INSTANCE_TYPE[i];
+            if (done[type]) {
+                continue;
+            }
+            done[type] = true;
+            int[] squares = INSTANCES[i];
+            for (int index = 0; index < POW3[squares.length]; index++) {
+                float value = 0f;
+                int digits = index;
+                for (int square : squares) {
+                    int cell = digits % 3;
+                    digits /= 3;
+                    float w = SQUARE_VALUES[square] * SQUARE_SCALE
+                        / coverage[square];
+                    if (cell == 1) {
+                        value += w;
+                    } else if (cell == 2) {
+                        value -= w;
+                    }
+                }
+                phase[TYPE_OFFSET[type] + index] = value;
+            }
+        }
+        for (int m = -MAX_MOBILITY; m <= MAX_MOBILITY; m++) {
+            phase[MOBILITY_OFFSET + m + MAX_MOBILITY] = m;
+        }
+        // stable disc is one disc of final score
+        for (int d = -MAX_STABILITY; d <= MAX_STABILITY; d++) {
+            phase[STABILITY_OFFSET + d + MAX_STABILITY] = d;
+        }
+        float[] all = new float[PHASES * PHASE_SIZE];
+        for (int p = 0; p < PHASES; p++) {
+            System.arraycopy(phase, 0, all, p * PHASE_SIZE, PHASE_SIZE);
+        }
+        return all;
+    }
+}
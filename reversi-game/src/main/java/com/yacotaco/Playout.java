@@ -0,0 +1,193 @@
+package com.yacotaco;
+
+/**
+ * Playout class.
+ * Plays random games to the end on bit masks, used by Monte Carlo
+ * simulation. Each instance has own xorshift random generator, so
+ * instances must not be shared between threads, but need no locking.
+ *
+ * While many squares are empty, legal moves of each ply are generated
+ * and one is picked uniformly. From {@link #PROBE_EMPTIES} empty squares
+ * on, generating all moves costs more than trying them: random empty
+ * squares next to opponent discs are flipped until one flips something,
+ * which picks uniformly among legal moves too (probed plies add no
+ * generated moves). Counters of playouts and generated moves are kept in
+ * instance and added to {@link EngineMetrics} in batches, so a playout
+ * doesn't touch shared memory.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+public final class Playout {
+    /** Shared engine metrics. */
+    private static final EngineMetrics METRICS = EngineMetrics.get();
+    /** Empty squares from which moves are probed instead of generated. */
+    private static final int PROBE_EMPTIES = 12;
+    /** Playouts counted in instance before they are added to metrics. */
+    private static final int METRICS_BATCH = 256;
+    /** Random generator state (never 0). */
+    private long state;
+    /** Playouts not yet added to metrics. */
+    private long playouts;
+    /** Generated moves not yet added to metrics. */
+    private long generated;
+    /** Flag for adding counters to metrics. */
+    private boolean metricsOn = true;
+
+    /**
+     * Playout constructor.
+     *
+     * @param seed random seed.
+     */
+    public Playout(final long seed) {
+        this.state = mix(seed);
+    }
+
+    /**
+     * Plays random game to the end.
+     *
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @return final disc difference from point of view of player to move.
+     */
+    public int play(final long own, final long opp) {
+        long me = own;
+        long other = opp;
+        boolean flipped = false;
+        boolean passed = false;
+        int empties = BitBoard.SQUARES - Long.bitCount(own | opp);
+        while (true) {
+            int square = -1;
+            long flips = 0;
+            if (empties > PROBE_EMPTIES) {
+                long moves = BitBoard.validMoves(me, other);
+                int count = Long.bitCount(moves);
+                generated += count;
+                if (count != 0) {
+                    square = pick(moves, count);
+                    flips = BitBoard.flips(square, me, other);
+                }
+            } else {
+                // legal move flips something; try empties next to
+                // opponent discs in random order
+                long left = ~(me | other) & BitBoard.neighbours(other);
+                for (int count = Long.bitCount(left); count > 0; count--) {
+                    int probe = pick(left, count);
+                    flips = BitBoard.flips(probe, me, other);
+                    if (flips != 0) {
+                        square = probe;
+                        break;
+                    }
+                    left &= ~(1L << probe);
+                }
+            }
+            if (square < 0) {
+                if (passed) {
+                    break;
+                }
+                passed = true;
+            } else {
+                passed = false;
+                me |= flips | (1L << square);
+                other &= ~flips;
+                empties--;
+            }
+            long swap = me;
+            me = other;
+            other = swap;
+            flipped = !flipped;
+        }
+        if (++playouts >= METRICS_BATCH) {
+            flushMetrics();
+        }
+        int diff = Long.bitCount(me) - Long.bitCount(other);
+        return flipped ? -diff : diff;
+    }
+
+    /**
+     * Adds playouts and generated moves counted since last call to
+     * {@link EngineMetrics}. Called by search at its end, so work of
+     * search is in metrics when it returns.
+     */
+    public void flushMetrics() {
+        if (playouts != 0 && metricsOn) {
+            METRICS.addPlayouts(playouts);
+            METRICS.addMovesGenerated(generated);
+        }
+        playouts = 0;
+        generated = 0;
+    }
+
+    /**
+     * Turns adding of counters to engine metrics on or off. Counters of
+     * playouts played while it is off are dropped.
+     *
+     * @param on false for playouts which aren't game work (warm-up).
+     */
+    public void setMetricsOn(final boolean on) {
+        this.metricsOn = on;
+    }
+
+    /**
+     * Picks random set bit.
+     *
+     * @param moves non-zero bit mask.
+     * @return index of chosen bit.
+     */
+    public int pick(final long moves) {
+        return pick(moves, Long.bitCount(moves));
+    }
+
+    /**
+     * Picks random set bit.
+     *
+     * @param moves non-zero bit mask.
+     * @param count number of set bits.
+     * @return index of chosen bit.
+     */
+    private int pick(final long moves, final int count) {
+        final int half = 32;
+        // high 32 random bits scaled to [0, count)
+        int skip = (int) (((next() >>> half) * count) >>> half);
+        long left = moves;
+        for (int i = 0; i < skip; i++) {
+            left &= left - 1;
+        }
+        return Long.numberOfTrailingZeros(left);
+    }
+
+    /**
+     * Gets next random number (xorshift64*).
+     *
+     * @return random 64-bit value.
+     */
+    public long next() {
+        final int a = 12;
+        final int b = 25;
+        final int c = 27;
+        long x = state;
+        x ^= x >>> a;
+        x ^= x << b;
+        x ^= x >>> c;
+        state = x;
+        return x * 0x2545F4914F6CDD1DL;
+    }
+
+    /**
+     * Mixes seed into non-zero generator state (splitmix64 finalizer).
+     *
+     * @param seed seed.
+     * @return state.
+     */
+    private static long mix(final long seed) {
+        final int a = 30;
+        final int b = 27;
+        final int c = 31;
+        long z = seed + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> a)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> b)) * 0x94D049BB133111EBL;
+        z ^= z >>> c;
+        return z != 0 ? z : 0x9E3779B97F4A7C15L;
+    }
+}
@@ -0,0 +1,408 @@
+package com.yacotaco;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * PositionCache class.
+ * Bounded concurrent cache of search results (best move, score, effort)
+ * keyed by canonical position, so symmetric positions share one entry.
+ *
+ * Cache is split into segments locked independently. Each segment keeps
+ * entries in LRU order and admits new entry in place of least recently
+ * used one only if new position was requested more often (TinyLFU
+ * admission with small count-min sketch of 4-bit counters), so one-off
+ * positions of midgame can't push out frequent opening positions.
+ *
+ * Size limit is given in megabytes and converted to entries with
+ * estimated {@link #ENTRY_BYTES} per entry.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+public final class PositionCache {
+    /** Estimated heap bytes of one entry (key, value and map node). */
+    public static final int ENTRY_BYTES = 128;
+    /** Default size in megabytes. */
+    public static final int DEFAULT_MEGABYTES = 16;
+    /** Number of segments (power of two). */
+    private static final int SEGMENTS = 16;
+    /** Bytes in megabyte. */
+    private static final long MEGABYTE = 1L << 20;
+    /** Shared cache, created on first use. */
+    private static PositionCache shared;
+
+    /** Segments. */
+    private final Segment[] segments = new Segment[SEGMENTS];
+    /** Shared engine metrics. */
+    private final EngineMetrics metrics = EngineMetrics.get();
+
+    /**
+     * PositionCache constructor.
+     *
+     * @param megabytes size limit in megabytes.
+     */
+    public PositionCache(final int megabytes) {
+        long entries = megabytes * MEGABYTE / ENTRY_BYTES;
+        int perSegment = (int) Math.max(1, entries / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    /**
+     * Gets cache shared by whole application. Size is read from
+     * {@code reversi.cache.mb} system property.
+     *
+     * @return shared cache.
+     */
+    public static synchronized PositionCache shared() {
+        if (shared == null) {
+            shared = new PositionCache(Integer.getInteger("reversi.cache.mb",
+                DEFAULT_MEGABYTES));
+        }
+        return shared;
+    }
+
+    /**
+     * Gets cached result of position.
+     *
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @return result with move in orientation of given position or null.
+     */
+    public Entry get(final long own, final long opp) {
+        long[] key = new long[2];
+        int symmetry = Symmetry.canonical(own, opp, key);
+        int hash = hash(key[0], key[1]);
+        Entry entry = segment(hash).get(new Key(key[0], key[1]), hash);
+        metrics.cacheLookup(entry != null);
+        if (entry == null) {
+            return null;
+        }
+        return new Entry(Symmetry.toOriginal(entry.move, symmetry),
+            entry.score, entry.effort);
+    }
+
+    /**
+     * Stores search result. Result with smaller effort than cached one is
+     * ignored.
+     *
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @param move square of best move.
+     * @param score score of best move for player to move.
+     * @param effort search effort (playouts or nodes).
+     */
+    public void put(final long own, final long opp, final int move,
+        final float score, final long effort) {
+        long[] key = new long[2];
+        int symmetry = Symmetry.canonical(own, opp, key);
+        int hash = hash(key[0], key[1]);
+        segment(hash).put(new Key(key[0], key[1]), hash, new Entry(
+            Symmetry.transformSquare(move, symmetry), score, effort));
+    }
+
+    /**
+     * Gets number of cached positions.
+     *
+     * @return number of entries.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /** Removes all entries. */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Gets segment of hash.
+     *
+     * @param hash key hash.
+     * @return segment.
+     */
+    private Segment segment(final int hash) {
+        final int shift = 28;
+        return segments[(hash >>> shift) & (SEGMENTS - 1)];
+    }
+
+    /**
+     * Hashes position.
+     *
+     * @param own own mask.
+     * @param opp opponent mask.
+     * @return hash.
+     */
+    private static int hash(final long own, final long opp) {
+        final int half = 32;
+        long h = own * 0x9E3779B97F4A7C15L + opp;
+        h = (h ^ (h >>> half)) * 0xD6E8FEB86659FD93L;
+        return (int) (h ^ (h >>> half));
+    }
+
+    /** Cached search result. */
+    public static final class Entry {
+        /** Square of best move. */
+        private final int move;
+        /** Score of best move. */
+        private final float score;
+        /** Search effort. */
+        private final long effort;
+
+        /**
+         * Entry constructor.
+         *
+         * @param bestMove square of best move.
+         * @param bestScore score of best move.
+         * @param searchEffort search effort.
+         */
+        Entry(final int bestMove, final float bestScore,
+            final long searchEffort) {
+            this.move = bestMove;
+            this.score = bestScore;
+            this.effort = searchEffort;
+        }
+
+        /**
+         * Gets best move.
+         *
+         * @return row * 8 + col.
+         */
+        public int getMove() {
+            return move;
+        }
+
+        /**
+         * Gets score of best move.
+         *
+         * @return score for player to move.
+         */
+        public float getScore() {
+            return score;
+        }
+
+        /**
+         * Gets search effort.
+         *
+         * @return playouts or nodes.
+         */
+        public long getEffort() {
+            return effort;
+        }
+    }
+
+    /** Canonical position key. */
+    private static final class Key {
+        /** Own mask. */
+        private final long own;
+        /** Opponent mask. */
+        private final long opp;
+
+        /**
+         * Key constructor.
+         *
+         * @param ownMask own mask.
+         * @param oppMask opponent mask.
+         */
+        Key(final long ownMask, final long oppMask) {
+            this.own = ownMask;
+            this.opp = oppMask;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return own == other.own && opp == other.opp;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash(own, opp);
+        }
+    }
+
+    /** LRU segment with frequency based admission. */
+    private static final class Segment {
+        /** Entries in access order. */
+        private final LinkedHashMap<Key, Entry> map;
+        /** Largest number of entries. */
+        private final int capacity;
+        /** Frequency sketch. */
+        private final FrequencySketch sketch;
+
+        /**
+         * Segment constructor.
+         *
+         * @param maxEntries largest number of entries.
+         */
+        Segment(final int maxEntries) {
+            final int initialCapacity = 16;
+            final float loadFactor = 0.75f;
+            this.capacity = maxEntries;
+            this.map = new LinkedHashMap<Key, Entry>(initialCapacity,
+                loadFactor, true);
+            this.sketch = new FrequencySketch(maxEntries);
+        }
+
+        /**
+         * Gets entry.
+         *
+         * @param key key.
+         * @param hash key hash.
+         * @return entry or null.
+         */
+        synchronized Entry get(final Key key, final int hash) {
+            sketch.increment(hash);
+            return map.get(key);
+        }
+
+        /**
+         * Puts entry, evicting least recently used one if admitted.
+         *
+         * @param key key.
+         * @param hash key hash.
+         * @param entry entry.
+         */
+        synchronized void put(final Key key, final int hash,
+            final Entry entry) {
+            Entry old = map.get(key);
+            if (old != null) {
+                if (entry.effort >= old.effort) {
+                    map.put(key, entry);
+                }
+                return;
+            }
+            if (map.size() >= capacity) {
+                Iterator<Map.Entry<Key, Entry>> eldest =
+                    map.entrySet().iterator();
+                Key victim = eldest.next().getKey();
+                if (sketch.frequency(hash)
+                    <= sketch.frequency(victim.hashCode())) {
+                    return;
+                }
+                eldest.remove();
+            }
+            map.put(key, entry);
+        }
+
+        /**
+         * Gets number of entries.
+         *
+         * @return number of entries.
+         */
+        synchronized int size() {
+            return map.size();
+        }
+
+        /** Removes all entries. */
+        synchronized void clear() {
+            map.clear();
+        }
+    }
+
+    /**
+     * Count-min sketch of 4-bit counters, 16 counters per long. Counters
+     * are halved after 10 * capacity increments so old popularity fades.
+     */
+    private static final class FrequencySketch {
+        /** Number of hash functions. */
+        private static final int DEPTH = 4;
+        /** Counters per long. */
+        private static final int PER_LONG = 16;
+        /** Bits of counter. */
+        private static final int BITS = 4;
+        /** Largest counter value. */
+        private static final long MAX = 15;
+        /** Seeds of hash functions. */
+        private static final int[] SEEDS = {0x97CB3127, 0xB5C1F3A7,
+            0x8F1BBCDD, 0xC2B2AE35};
+        /** Counter table. */
+        private final long[] table;
+        /** Increments before halving. */
+        private final int sampleSize;
+        /** Increments since last halving. */
+        private int additions;
+
+        /**
+         * FrequencySketch constructor.
+         *
+         * @param capacity number of entries tracked.
+         */
+        FrequencySketch(final int capacity) {
+            final int samplesPerEntry = 10;
+            int size = Integer.highestOneBit(Math.max(1, capacity) - 1) << 1;
+            this.table = new long[Math.max(1, size / DEPTH)];
+            this.sampleSize = samplesPerEntry * capacity;
+        }
+
+        /**
+         * Gets bit offset of counter in table.
+         *
+         * @param hash key hash.
+         * @param row hash function.
+         * @return index of counter (long index * 16 + counter).
+         */
+        private int counter(final int hash, final int row) {
+            int h = (hash ^ SEEDS[row]) * 0x9E3779B9;
+            h ^= h >>> PER_LONG;
+            return h & (table.length * PER_LONG - 1);
+        }
+
+        /**
+         * Gets estimated frequency.
+         *
+         * @param hash key hash.
+         * @return frequency (0-15).
+         */
+        int frequency(final int hash) {
+            long min = MAX;
+            for (int row = 0; row < DEPTH; row++) {
+                int c = counter(hash, row);
+                long value = (table[c / PER_LONG]
+                    >>> ((c % PER_LONG) * BITS)) & MAX;
+                min = Math.min(min, value);
+            }
+            return (int) min;
+        }
+
+        /**
+         * Increments counters of key.
+         *
+         * @param hash key hash.
+         */
+        void increment(final int hash) {
+            for (int row = 0; row < DEPTH; row++) {
+                int c = counter(hash, row);
+                int shift = (c % PER_LONG) * BITS;
+                if (((table[c / PER_LONG] >>> shift) & MAX) < MAX) {
+                    table[c / PER_LONG] += 1L << shift;
+                }
+            }
+            if (++additions >= sampleSize) {
+                halve();
+            }
+        }
+
+        /** Halves all counters. */
+        private void halve() {
+            final long mask = 0x7777777777777777L;
+            for (int i = 0; i < table.length; i++) {
+                table[i] = (table[i] >>> 1) & mask;
+            }
+            additions /= 2;
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package com.yacotaco;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * SaveFormat class.
+ * Reads and writes game saves in versioned binary format.
+ *
+ * Layout (big endian): magic, version, flags, player turn, white mask,
+ * black mask, clock millis, start white mask, start black mask, start
+ * turn, move count, moves, clock of each move, CRC32 of all previous
+ * bytes. Version 1 files have no start position (initial position is
+ * assumed), files before version 3 have no move clocks. Legacy text saves
+ * ("row,col,state" lines and player turn line) are still accepted by
+ * {@link #load(Path)}.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+public final class SaveFormat {
+    /** File magic ("RVSI"). */
+    public static final int MAGIC = 0x52565349;
+    /** Current format version. */
+    public static final short VERSION = 3;
+    /** First version with move clocks. */
+    private static final short CLOCKS_VERSION = 3;
+    /** Size of fixed part of version 1 record in bytes. */
+    private static final int HEADER_SIZE_V1 = 30;
+    /** Size of fixed part of record in bytes. */
+    private static final int HEADER_SIZE = 47;
+    /** Size of magic and version in bytes. */
+    private static final int PREFIX_SIZE = 6;
+    /** Size of checksum in bytes. */
+    private static final int CHECKSUM_SIZE = 4;
+    /** Flag bit for timed game. */
+    private static final int FLAG_TIMER = 1;
+    /** Number of squares on board. */
+    private static final int SQUARES = 64;
+    /** Number of columns on board. */
+    private static final int COLS = 8;
+
+    /**
+     * SaveFormat constructor.
+     */
+    private SaveFormat() {
+    }
+
+    /**
+     * Writes game to file (file is created or truncated).
+     *
+     * @param path file path.
+     * @param game game snapshot.
+     * @throws IOException exception on write.
+     */
+    public static void save(final Path path, final SavedGame game)
+        throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(channel, game);
+        }
+    }
+
+    /**
+     * Reads game from file in binary or legacy text format.
+     *
+     * @param path file path.
+     * @return game snapshot.
+     * @throws IOException exception on read or corrupted file.
+     */
+    public static SavedGame load(final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+            StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            readFully(channel, buffer);
+            buffer.flip();
+            if (!buffer.hasRemaining()) {
+                throw new IOException("File is empty");
+            }
+            if (buffer.remaining() >= Integer.BYTES
+                && buffer.getInt(0) == MAGIC) {
+                return decode(buffer);
+            }
+            return parseLegacy(buffer);
+        }
+    }
+
+    /**
+     * Writes game to channel.
+     *
+     * @param channel output channel.
+     * @param game game snapshot.
+     * @throws IOException exception on write.
+     */
+    public static void write(final WritableByteChannel channel,
+        final SavedGame game) throws IOException {
+        ByteBuffer buffer = encode(game);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Reads single binary record from channel.
+     *
+     * @param channel input channel.
+     * @return game snapshot.
+     * @throws IOException exception on read or corrupted record.
+     */
+    public static SavedGame read(final ReadableByteChannel channel)
+        throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.limit(PREFIX_SIZE);
+        readFully(channel, header);
+        int headerSize = header.getShort(Integer.BYTES) == 1
+            ? HEADER_SIZE_V1 : HEADER_SIZE;
+        header.limit(headerSize);
+        readFully(channel, header);
+        int moveCount = header.getShort(headerSize - Short.BYTES) & 0xFFFF;
+        int moveSize = header.getShort(Integer.BYTES) >= CLOCKS_VERSION
+            ? 1 + Integer.BYTES : 1;
+        ByteBuffer buffer = ByteBuffer.allocate(headerSize
+            + moveCount * moveSize + CHECKSUM_SIZE);
+        header.flip();
+        buffer.put(header);
+        readFully(channel, buffer);
+        buffer.flip();
+        return decode(buffer);
+    }
+
+    /**
+     * Encodes game into buffer ready to be written.
+     *
+     * @param game game snapshot.
+     * @return flipped buffer with record.
+     */
+    public static ByteBuffer encode(final SavedGame game) {
+        byte[] moves = game.getMoves();
+        int[] clocks = game.getMoveClocks();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE
+            + moves.length * (1 + Integer.BYTES) + CHECKSUM_SIZE);
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.put((byte) (game.isTimerOn() ? FLAG_TIMER : 0));
+        buffer.put((byte) game.getPlayerTurn());
+        buffer.putLong(game.getWhiteMask());
+        buffer.putLong(game.getBlackMask());
+        buffer.putInt(game.getClockMillis());
+        buffer.putLong(game.getStartWhiteMask());
+        buffer.putLong(game.getStartBlackMask());
+        buffer.put((byte) game.getStartTurn());
+        buffer.putShort((short) moves.length);
+        buffer.put(moves);
+        for (int i = 0; i < moves.length; i++) {
+            buffer.putInt(i < clocks.length ? clocks[i] : GameRecord.NO_CLOCK);
+        }
+        buffer.putInt(checksum(buffer.array(), buffer.position()));
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Decodes binary record from buffer.
+     *
+     * @param buffer buffer positioned at record start.
+     * @return game snapshot.
+     * @throws IOException exception on corrupted record.
+     */
+    public static SavedGame decode(final ByteBuffer buffer)
+        throws IOException {
+        int start = buffer.position();
+        if (buffer.remaining() < HEADER_SIZE_V1 + CHECKSUM_SIZE
+            || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a game save");
+        }
+        short version = buffer.getShort();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported save version " + version);
+        }
+        int rest = HEADER_SIZE - PREFIX_SIZE + CHECKSUM_SIZE;
+        if (version > 1 && buffer.remaining() < rest) {
+            throw new IOException("Truncated save");
+        }
+        SavedGame game = new SavedGame();
+        game.setTimerOn((buffer.get() & FLAG_TIMER) != 0);
+        game.setPlayerTurn(buffer.get());
+        game.setWhiteMask(buffer.getLong());
+        game.setBlackMask(buffer.getLong());
+        game.setClockMillis(buffer.getInt());
+        if (version > 1) {
+            game.setStartWhiteMask(buffer.getLong());
+            game.setStartBlackMask(buffer.getLong());
+            game.setStartTurn(buffer.get());
+        }
+        int moveCount = buffer.getShort() & 0xFFFF;
+        int clockCount = version >= CLOCKS_VERSION ? moveCount : 0;
+        if (buffer.remaining() < moveCount + clockCount * Integer.BYTES
+            + CHECKSUM_SIZE) {
+            throw new IOException("Truncated save");
+        }
+        byte[] moves = new byte[moveCount];
+        buffer.get(moves);
+        game.setMoves(moves);
+        int[] clocks = new int[clockCount];
+        for (int i = 0; i < clockCount; i++) {
+            clocks[i] = buffer.getInt();
+        }
+        game.setMoveClocks(clocks);
+
+        int length = buffer.position() - start;
+        byte[] bytes = new byte[length];
+        buffer.duplicate().position(start).get(bytes);
+        if (buffer.getInt() != checksum(bytes, length)) {
+            throw new IOException("Save checksum mismatch");
+        }
+        if ((game.getWhiteMask() & game.getBlackMask()) != 0
+            || game.getPlayerTurn() < 0 || game.getPlayerTurn() > 1) {
+            throw new IOException("Invalid board state");
+        }
+        return game;
+    }
+
+    /**
+     * Parses legacy text save ("row,col,state" lines and player turn line).
+     *
+     * @param buffer buffer with file content.
+     * @return game snapshot.
+     * @throws NumberFormatException malformed line, turn other than 0 or
+     *     1, or missing disc or turn lines.
+     */
+    public static SavedGame parseLegacy(final ByteBuffer buffer) {
+        long white = 0L;
+        long black = 0L;
+        int turn = -1;
+        int discLines = 0;
+        int[] fields = new int[3];
+        int field = 0;
+        int value = 0;
+        boolean negative = false;
+        boolean digits = false;
+
+        while (buffer.hasRemaining() || digits) {
+            char c = buffer.hasRemaining() ? (char) buffer.get() : '\n';
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                digits = true;
+            } else if (c == '-') {
+                negative = true;
+            } else if (c == ',' || c == '\n') {
+                if (!digits) {
+                    if (c == ',' || field != 0) {
+                        throw new NumberFormatException("Empty field");
+                    }
+                    continue;
+                }
+                if (field >= fields.length) {
+                    throw new NumberFormatException("Too many fields");
+                }
+                fields[field++] = negative ? -value : value;
+                value = 0;
+                negative = false;
+                digits = false;
+                if (c == '\n') {
+                    if (field == fields.length) {
+                        int square = fields[0] * COLS + fields[1];
+                        if (fields[0] < 0 || fields[1] < 0
+                            || fields[1] >= COLS || square >= SQUARES) {
+                            throw new NumberFormatException("Bad square");
+                        }
+                        discLines++;
+                        if (fields[2] == 0) {
+                            white |= 1L << square;
+                        } else if (fields[2] == 1) {
+                            black |= 1L << square;
+                        }
+                    } else if (field == 1) {
+                        if (fields[0] != 0 && fields[0] != 1) {
+                            throw new NumberFormatException("Bad turn");
+                        }
+                        turn = fields[0];
+                    } else {
+                        throw new NumberFormatException("Bad line");
+                    }
+                    field = 0;
+                }
+            } else if (c != '\r' && c != ' ') {
+                throw new NumberFormatException("Unexpected character");
+            }
+        }
+
+        if (discLines == 0) {
+            throw new NumberFormatException("Missing disc lines");
+        }
+        if (turn < 0) {
+            throw new NumberFormatException("Missing turn line");
+        }
+        SavedGame game = new SavedGame();
+        game.setWhiteMask(white);
+        game.setBlackMask(black);
+        game.setPlayerTurn(turn);
+        game.setStartWhiteMask(white);
+        game.setStartBlackMask(black);
+        game.setStartTurn(turn);
+        return game;
+    }
+
+    /**
+     * Reads from channel until buffer is full.
+     *
+     * @param channel input channel.
+     * @param buffer target buffer.
+     * @throws IOException exception on read or end of stream.
+     */
+    private static void readFully(final ReadableByteChannel channel,
+        final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+    }
+
+    /**
+     * Computes CRC32 checksum of bytes.
+     *
+     * @param bytes data.
+     * @param length number of bytes from start.
+     * @return checksum value.
+     */
+    private static int checksum(final byte[] bytes, final int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, length);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,219 @@
+package com.yacotaco;
+
+/**
+ * SavedGame class.
+ * Snapshot of game state written to and read from save files.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+public class SavedGame {
+    /** Move history value used for pass. */
+    public static final byte PASS = -1;
+    /** Bit mask of white discs (bit index row * 8 + col). */
+    private long whiteMask;
+    /** Bit mask of black discs (bit index row * 8 + col). */
+    private long blackMask;
+    /** Player turn (0 - white, 1 - black). */
+    private int playerTurn;
+    /** Flag for game timer. */
+    private boolean timerOn;
+    /** Time left for current turn in milliseconds. */
+    private int clockMillis;
+    /** White discs at start of move history. */
+    private long startWhiteMask = GameRecord.INITIAL_WHITE;
+    /** Black discs at start of move history. */
+    private long startBlackMask = GameRecord.INITIAL_BLACK;
+    /** Player to move at start of move history. */
+    private int startTurn;
+    /** Played squares (row * 8 + col) or PASS in order of play. */
+    private byte[] moves = new byte[0];
+    /** Time left on mover clock after each move (may be shorter). */
+    private int[] moveClocks = new int[0];
+
+    /** SavedGame constructor. */
+    public SavedGame() {
+    }
+
+    /**
+     * Gets bit mask of white discs.
+     *
+     * @return bit mask.
+     */
+    public long getWhiteMask() {
+        return whiteMask;
+    }
+
+    /**
+     * Sets bit mask of white discs.
+     *
+     * @param mask bit mask.
+     */
+    public void setWhiteMask(final long mask) {
+        this.whiteMask = mask;
+    }
+
+    /**
+     * Gets bit mask of black discs.
+     *
+     * @return bit mask.
+     */
+    public long getBlackMask() {
+        return blackMask;
+    }
+
+    /**
+     * Sets bit mask of black discs.
+     *
+     * @param mask bit mask.
+     */
+    public void setBlackMask(final long mask) {
+        this.blackMask = mask;
+    }
+
+    /**
+     * Gets player turn.
+     *
+     * @return 0 - white, 1 - black.
+     */
+    public int getPlayerTurn() {
+        return playerTurn;
+    }
+
+    /**
+     * Sets player turn.
+     *
+     * @param turn 0 - white, 1 - black.
+     */
+    public void setPlayerTurn(final int turn) {
+        this.playerTurn = turn;
+    }
+
+    /**
+     * Checks if game was timed.
+     *
+     * @return timer flag.
+     */
+    public boolean isTimerOn() {
+        return timerOn;
+    }
+
+    /**
+     * Sets timer flag.
+     *
+     * @param on timer flag.
+     */
+    public void setTimerOn(final boolean on) {
+        this.timerOn = on;
+    }
+
+    /**
+     * Gets time left for current turn.
+     *
+     * @return time in milliseconds.
+     */
+    public int getClockMillis() {
+        return clockMillis;
+    }
+
+    /**
+     * Sets time left for current turn.
+     *
+     * @param millis time in milliseconds.
+     */
+    public void setClockMillis(final int millis) {
+        this.clockMillis = millis;
+    }
+
+    /**
+     * Gets move history.
+     *
+     * @return played squares or PASS in order of play.
+     */
+    public byte[] getMoves() {
+        return moves;
+    }
+
+    /**
+     * Sets move history.
+     *
+     * @param history played squares or PASS in order of play.
+     */
+    public void setMoves(final byte[] history) {
+        this.moves = history;
+    }
+
+    /**
+     * Gets time left on mover clock after each move. Moves past end of
+     * array have no clock ({@link GameRecord#NO_CLOCK}).
+     *
+     * @return clock values in milliseconds in order of play.
+     */
+    public int[] getMoveClocks() {
+        return moveClocks;
+    }
+
+    /**
+     * Sets time left on mover clock after each move.
+     *
+     * @param clocks clock values in milliseconds or NO_CLOCK.
+     */
+    public void setMoveClocks(final int[] clocks) {
+        this.moveClocks = clocks;
+    }
+
+    /**
+     * Gets white discs at start of move history.
+     *
+     * @return bit mask.
+     */
+    public long getStartWhiteMask() {
+        return startWhiteMask;
+    }
+
+    /**
+     * Sets white discs at start of move history.
+     *
+     * @param mask bit mask.
+     */
+    public void setStartWhiteMask(final long mask) {
+        this.startWhiteMask = mask;
+    }
+
+    /**
+     * Gets black discs at start of move history.
+     *
+     * @return bit mask.
+     */
+    public long getStartBlackMask() {
+        return startBlackMask;
+    }
+
+    /**
+     * Sets black discs at start of move history.
+     *
+     * @param mask bit mask.
+     */
+    public void setStartBlackMask(final long mask) {
+        this.startBlackMask = mask;
+    }
+
+    /**
+     * Gets player to move at start of move history.
+     *
+     * @return 0 - white, 1 - black.
+     */
+    public int getStartTurn() {
+        return startTurn;
+    }
+
+    /**
+     * Sets player to move at start of move history.
+     *
+     * @param turn 0 - white, 1 - black.
+     */
+    public void setStartTurn(final int turn) {
+        this.startTurn = turn;
+    }
+}
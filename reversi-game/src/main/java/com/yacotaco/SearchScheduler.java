@@ -0,0 +1,294 @@
+package com.yacotaco;
+
+import java.io.Closeable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SearchScheduler class.
+ * Shared queue of AI move searches served by fixed number of worker
+ * threads, so concurrent games never run more searches than there are
+ * workers.
+ *
+ * Requests are served earliest deadline first. Each search gets time
+ * budget which is the smaller of time left to its deadline and base
+ * budget divided by load (waiting requests per worker), so under overload
+ * searches get shorter instead of replies getting late. Request past its
+ * deadline still gets minimal search.
+ *
+ * Before searching, {@link PositionCache} is consulted; result with enough
+ * playouts is returned without search, and every search result is stored
+ * there, so repeated positions (openings especially) are answered at once.
+ *
+ * With {@link PatternEvaluator} set, searches use it for priors of moves
+ * (see {@link MonteCarloSearch}).
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+public final class SearchScheduler implements Closeable {
+    /** Default base budget of one search in milliseconds. */
+    public static final long DEFAULT_BUDGET_MILLIS = 500;
+    /** Fewest playouts of cached result to be used without search. */
+    public static final long MIN_CACHED_PLAYOUTS = 1000;
+    /** Time kept for handing result back before deadline. */
+    private static final long SAFETY_NANOS =
+        TimeUnit.MILLISECONDS.toNanos(5);
+    /** Shared scheduler, created on first use. */
+    private static SearchScheduler shared;
+
+    /** Waiting requests ordered by deadline. */
+    private final PriorityBlockingQueue<Request> queue =
+        new PriorityBlockingQueue<Request>();
+    /** Worker threads. */
+    private final Thread[] workers;
+    /** Cache of search results. */
+    private final PositionCache cache;
+    /** Base budget of one search in nanoseconds. */
+    private final long budgetNanos;
+    /** Submission counter, orders requests with equal deadline. */
+    private final AtomicLong submitted = new AtomicLong();
+    /** Searches cut below base budget. */
+    private final AtomicLong degraded = new AtomicLong();
+    /** Flag for running scheduler. */
+    private volatile boolean running = true;
+    /** Evaluator used by searches for move priors (optional). */
+    private volatile PatternEvaluator evaluator;
+
+    /**
+     * SearchScheduler constructor. Starts worker threads using shared
+     * position cache.
+     *
+     * @param threads number of worker threads.
+     * @param budgetMillis base budget of one search in milliseconds.
+     */
+    public SearchScheduler(final int threads, final long budgetMillis) {
+        this(threads, budgetMillis, PositionCache.shared());
+    }
+
+    /**
+     * SearchScheduler constructor. Starts worker threads.
+     *
+     * @param threads number of worker threads.
+     * @param budgetMillis base budget of one search in milliseconds.
+     * @param positionCache cache of search results.
+     */
+    public SearchScheduler(final int threads, final long budgetMillis,
+        final PositionCache positionCache) {
+        this.cache = positionCache;
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        this.workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(this::work, "search-worker-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Gets scheduler shared by whole application. It has one worker per
+     * processor and default budget.
+     *
+     * @return shared scheduler.
+     */
+    public static synchronized SearchScheduler shared() {
+        if (shared == null) {
+            shared = new SearchScheduler(
+                Runtime.getRuntime().availableProcessors(),
+                DEFAULT_BUDGET_MILLIS);
+        }
+        return shared;
+    }
+
+    /**
+     * Queues search of best move.
+     *
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @param deadline System.nanoTime() value by which move is needed.
+     * @return future square of move (-1 if there is no legal move);
+     *         cancelling it drops request if it is still waiting.
+     */
+    public CompletableFuture<Integer> submit(final long own, final long opp,
+        final long deadline) {
+        Request request = new Request(own, opp, deadline,
+            submitted.getAndIncrement());
+        if (!running) {
+            request.result.completeExceptionally(
+                new CancellationException("Scheduler is closed"));
+            return request.result;
+        }
+        queue.add(request);
+        return request.result;
+    }
+
+    /**
+     * Sets evaluator used by searches for move priors. Searches started
+     * after this call use it.
+     *
+     * @param priorEvaluator evaluator or null for plain playouts.
+     */
+    public void setEvaluator(final PatternEvaluator priorEvaluator) {
+        this.evaluator = priorEvaluator;
+    }
+
+    /**
+     * Checks if scheduler takes requests.
+     *
+     * @return false after close.
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Gets number of requests waiting for worker.
+     *
+     * @return waiting requests.
+     */
+    public int getPending() {
+        return queue.size();
+    }
+
+    /**
+     * Gets number of searches cut below base budget.
+     *
+     * @return degraded searches.
+     */
+    public long getDegraded() {
+        return degraded.get();
+    }
+
+    /**
+     * Gets budget of search starting now.
+     *
+     * @param deadline deadline of request.
+     * @return budget in nanoseconds (0 for minimal search).
+     */
+    private long budget(final long deadline) {
+        long left = deadline - System.nanoTime() - SAFETY_NANOS;
+        // waiting requests share workers with this one
+        long share = budgetNanos * workers.length
+            / (workers.length + queue.size());
+        long budget = Math.max(0, Math.min(left, share));
+        if (budget < budgetNanos) {
+            degraded.incrementAndGet();
+        }
+        return budget;
+    }
+
+    /** Worker thread loop. */
+    private void work() {
+        MonteCarloSearch search = new MonteCarloSearch(System.nanoTime());
+        EngineMetrics metrics = EngineMetrics.get();
+        while (running) {
+            Request request;
+            try {
+                request = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (request.result.isDone()) {
+                continue;
+            }
+            PositionCache.Entry cached = cache.get(request.own, request.opp);
+            if (cached != null
+                && cached.getEffort() >= MIN_CACHED_PLAYOUTS) {
+                request.result.complete(cached.getMove());
+                continue;
+            }
+            EngineMetrics.Think think = metrics.startThink();
+            long work = 0;
+            try {
+                long budget = budget(request.deadline);
+                search.setEvaluator(evaluator);
+                int square = search.bestMove(request.own, request.opp,
+                    System.nanoTime() + budget);
+                work = search.getTotal();
+                store(search, request, square);
+                request.result.complete(square);
+            } catch (Throwable e) {
+                // caller waits for future, so no failure may be lost
+                request.result.completeExceptionally(e);
+            } finally {
+                think.stop(work);
+            }
+        }
+    }
+
+    /**
+     * Stores search result in cache.
+     *
+     * @param search finished search.
+     * @param request searched request.
+     * @param square chosen move.
+     */
+    private void store(final MonteCarloSearch search, final Request request,
+        final int square) {
+        for (int i = 0; i < search.size(); i++) {
+            if (search.getSquare(i) == square) {
+                cache.put(request.own, request.opp, square,
+                    (float) search.getWinRate(i), search.getTotal());
+                return;
+            }
+        }
+    }
+
+    /** Stops workers. Waiting requests are cancelled. */
+    @Override
+    public void close() {
+        running = false;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        Request request;
+        while ((request = queue.poll()) != null) {
+            request.result.cancel(false);
+        }
+    }
+
+    /** Queued search request. */
+    private static final class Request implements Comparable<Request> {
+        /** Discs of player to move. */
+        private final long own;
+        /** Discs of opponent. */
+        private final long opp;
+        /** System.nanoTime() value by which move is needed. */
+        private final long deadline;
+        /** Submission number. */
+        private final long sequence;
+        /** Result of search. */
+        private final CompletableFuture<Integer> result =
+            new CompletableFuture<Integer>();
+
+        /**
+         * Request constructor.
+         *
+         * @param ownDiscs discs of player to move.
+         * @param oppDiscs discs of opponent.
+         * @param deadlineNanos deadline.
+         * @param number submission number.
+         */
+        Request(final long ownDiscs, final long oppDiscs,
+            final long deadlineNanos, final long number) {
+            this.own = ownDiscs;
+            this.opp = oppDiscs;
+            this.deadline = deadlineNanos;
+            this.sequence = number;
+        }
+
+        @Override
+        public int compareTo(final Request other) {
+            // nanoTime values are compared by difference
+            long diff = deadline - other.deadline;
+            if (diff != 0) {
+                return diff < 0 ? -1 : 1;
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.yacotaco;
+
+/**
+ * Symmetry class.
+ * The 8 symmetries of the board (rotations and reflections) on bit masks
+ * and squares. Used to fold positions to one canonical representative,
+ * so caches, books and databases store each position once.
+ *
+ * Symmetry index bits: bit 0 mirrors columns, bit 1 mirrors rows, bit 2
+ * transposes (applied last). Index 0 is identity.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+public final class Symmetry {
+    /** Number of board symmetries. */
+    public static final int COUNT = 8;
+    /** Identity symmetry. */
+    public static final int IDENTITY = 0;
+    /** Symmetry bit for transpose. */
+    private static final int TRANSPOSE = 4;
+    /** Square mapping of each symmetry. */
+    private static final byte[][] SQUARES = new byte[COUNT][BitBoard.SQUARES];
+    /** Inverse of each symmetry. */
+    private static final int[] INVERSE = new int[COUNT];
+
+    static {
+        for (int s = 0; s < COUNT; s++) {
+            for (int square = 0; square < BitBoard.SQUARES; square++) {
+                SQUARES[s][square] = (byte) Long.numberOfTrailingZeros(
+                    transform(1L << square, s));
+            }
+        }
+        for (int s = 0; s < COUNT; s++) {
+            for (int t = 0; t < COUNT; t++) {
+                boolean inverse = true;
+                for (int square = 0; square < BitBoard.SQUARES; square++) {
+                    if (SQUARES[t][SQUARES[s][square]] != square) {
+                        inverse = false;
+                        break;
+                    }
+                }
+                if (inverse) {
+                    INVERSE[s] = t;
+                }
+            }
+        }
+    }
+
+    /**
+     * Symmetry constructor.
+     */
+    private Symmetry() {
+    }
+
+    /**
+     * Applies symmetry to bit mask.
+     *
+     * @param x bit mask.
+     * @param symmetry symmetry index (0-7).
+     * @return transformed mask.
+     */
+    public static long transform(final long x, final int symmetry) {
+        long y = x;
+        if ((symmetry & 1) != 0) {
+            y = mirrorColumns(y);
+        }
+        if ((symmetry & 2) != 0) {
+            y = Long.reverseBytes(y);
+        }
+        if ((symmetry & TRANSPOSE) != 0) {
+            y = transpose(y);
+        }
+        return y;
+    }
+
+    /**
+     * Applies symmetry to square.
+     *
+     * @param square row * 8 + col.
+     * @param symmetry symmetry index (0-7).
+     * @return transformed square.
+     */
+    public static int transformSquare(final int square, final int symmetry) {
+        return SQUARES[symmetry][square];
+    }
+
+    /**
+     * Gets inverse of symmetry.
+     *
+     * @param symmetry symmetry index (0-7).
+     * @return symmetry which undoes it.
+     */
+    public static int inverse(final int symmetry) {
+        return INVERSE[symmetry];
+    }
+
+    /**
+     * Maps square of canonical position back to original orientation.
+     *
+     * @param square square in canonical position.
+     * @param symmetry symmetry returned by canonical.
+     * @return square in original position.
+     */
+    public static int toOriginal(final int square, final int symmetry) {
+        return SQUARES[INVERSE[symmetry]][square];
+    }
+
+    /**
+     * Finds canonical representative of position among 8 symmetries: the
+     * one with smallest (own, opp) pair compared as unsigned longs.
+     *
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @param out array receiving canonical own and opponent masks.
+     * @return symmetry which maps position to canonical one.
+     */
+    public static int canonical(final long own, final long opp,
+        final long[] out) {
+        long bestOwn = own;
+        long bestOpp = opp;
+        int best = IDENTITY;
+        long ownMirror = mirrorColumns(own);
+        long oppMirror = mirrorColumns(opp);
+        for (int s = 1; s < COUNT; s++) {
+            long o = (s & 1) != 0 ? ownMirror : own;
+            long p = (s & 1) != 0 ? oppMirror : opp;
+            if ((s & 2) != 0) {
+                o = Long.reverseBytes(o);
+                p = Long.reverseBytes(p);
+            }
+            if ((s & TRANSPOSE) != 0) {
+                o = transpose(o);
+                p = transpose(p);
+            }
+            if (compare(o, p, bestOwn, bestOpp) < 0) {
+                bestOwn = o;
+                bestOpp = p;
+                best = s;
+            }
+        }
+        out[0] = bestOwn;
+        out[1] = bestOpp;
+        return best;
+    }
+
+    /**
+     * Compares two positions as pairs of unsigned longs.
+     *
+     * @param own1 first own mask.
+     * @param opp1 first opponent mask.
+     * @param own2 second own mask.
+     * @param opp2 second opponent mask.
+     * @return negative, zero or positive.
+     */
+    public static int compare(final long own1, final long opp1,
+        final long own2, final long opp2) {
+        int cmp = Long.compareUnsigned(own1, own2);
+        return cmp != 0 ? cmp : Long.compareUnsigned(opp1, opp2);
+    }
+
+    /**
+     * Mirrors columns (col becomes 7 - col).
+     *
+     * @param x bit mask.
+     * @return mirrored mask.
+     */
+    public static long mirrorColumns(final long x) {
+        final int s2 = 2;
+        final int s4 = 4;
+        long y = x;
+        y = ((y >>> 1) & 0x5555555555555555L)
+            | ((y & 0x5555555555555555L) << 1);
+        y = ((y >>> s2) & 0x3333333333333333L)
+            | ((y & 0x3333333333333333L) << s2);
+        y = ((y >>> s4) & 0x0F0F0F0F0F0F0F0FL)
+            | ((y & 0x0F0F0F0F0F0F0F0FL) << s4);
+        return y;
+    }
+
+    /**
+     * Mirrors rows (row becomes 7 - row).
+     *
+     * @param x bit mask.
+     * @return mirrored mask.
+     */
+    public static long mirrorRows(final long x) {
+        return Long.reverseBytes(x);
+    }
+
+    /**
+     * Transposes board (row and col are swapped).
+     *
+     * @param x bit mask.
+     * @return transposed mask.
+     */
+    public static long transpose(final long x) {
+        final int s7 = 7;
+        final int s14 = 14;
+        final int s28 = 28;
+        long y = x;
+        long t = 0x0F0F0F0F00000000L & (y ^ (y << s28));
+        y ^= t ^ (t >>> s28);
+        t = 0x3333000033330000L & (y ^ (y << s14));
+        y ^= t ^ (t >>> s14);
+        t = 0x5500550055005500L & (y ^ (y << s7));
+        y ^= t ^ (t >>> s7);
+        return y;
+    }
+}
@@ -0,0 +1,383 @@
+package com.yacotaco;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+/**
+ * TranscriptReader class.
+ * Streams game records from text transcript, one game at a time, so
+ * archives of any size can be processed in constant memory.
+ *
+ * Both formats written by {@link TranscriptWriter} are accepted and may be
+ * mixed in one file: lines with move strings (e.g. "f5d6c3d3", "pa" for
+ * turn given up with legal moves left) and GGF-like games starting with
+ * "(;". Lines starting with '#' are skipped.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+public class TranscriptReader implements Closeable {
+    /** Size of read buffer. */
+    private static final int BUFFER_SIZE = 1 << 16;
+    /** Number of squares on board. */
+    private static final int SQUARES = 64;
+    /** Milliseconds in second. */
+    private static final double MILLIS = 1000.0;
+
+    /** Input reader. */
+    private final Reader in;
+    /** Read buffer. */
+    private final char[] buffer = new char[BUFFER_SIZE];
+    /** Position in read buffer. */
+    private int pos;
+    /** Number of valid chars in read buffer. */
+    private int limit;
+    /** Current line number (for error messages). */
+    private long line = 1;
+    /** Reused tag value buffer. */
+    private final StringBuilder value = new StringBuilder();
+    /** Player to move first in move strings (0 - white, 1 - black). */
+    private int moveStringTurn = GameRecord.MOVE_STRING_TURN;
+
+    /**
+     * TranscriptReader constructor.
+     *
+     * @param reader input reader.
+     */
+    public TranscriptReader(final Reader reader) {
+        this.in = reader;
+    }
+
+    /**
+     * Sets player to move first in move strings.
+     * Move strings do not carry colours, default is black (1) as in
+     * standard notation and {@link GameRecord#toMoveString()}.
+     *
+     * @param turn 0 - white, 1 - black.
+     */
+    public void setMoveStringTurn(final int turn) {
+        this.moveStringTurn = turn;
+    }
+
+    /**
+     * Reads next game.
+     *
+     * @return game record or null at end of input.
+     * @throws IOException exception on read or malformed transcript.
+     */
+    public GameRecord next() throws IOException {
+        int c;
+        while ((c = read()) != -1) {
+            if (c == '(') {
+                return readGgf();
+            } else if (c == '#') {
+                skipLine();
+            } else if (!Character.isWhitespace(c)) {
+                return readMoveString(c);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads move string until end of line.
+     *
+     * @param first first char of line.
+     * @return game record.
+     * @throws IOException exception on read or malformed move.
+     */
+    private GameRecord readMoveString(final int first) throws IOException {
+        GameRecord record = new GameRecord();
+        record.reset(GameRecord.INITIAL_WHITE, GameRecord.INITIAL_BLACK,
+            moveStringTurn, 0L);
+        int c = first;
+        while (c != -1 && c != '\n') {
+            if (!Character.isWhitespace(c)) {
+                int row = read();
+                if (row == -1) {
+                    throw error("Truncated move");
+                }
+                record.addMove(moveSquare((char) c, (char) row), 0L,
+                    GameRecord.NO_CLOCK);
+            }
+            c = read();
+        }
+        return record;
+    }
+
+    /**
+     * Reads GGF-like game after opening bracket.
+     *
+     * @return game record.
+     * @throws IOException exception on read or malformed game.
+     */
+    private GameRecord readGgf() throws IOException {
+        if (read() != ';') {
+            throw error("Expected ';' after '('");
+        }
+        GameRecord record = new GameRecord();
+        long startTime = 0L;
+        long time = 0L;
+        String result = null;
+        StringBuilder tag = new StringBuilder();
+        int c;
+        while ((c = read()) != -1) {
+            if (c == '[') {
+                readValue();
+                String name = tag.toString();
+                tag.setLength(0);
+                if (name.equals("B") || name.equals("W")) {
+                    time = readMove(record, name.equals("W") ? 0 : 1, time);
+                } else if (name.equals("BO")) {
+                    readBoard(record, startTime);
+                } else if (name.equals("DT")) {
+                    startTime = parseDate();
+                    time = startTime;
+                    if (record.getMoveCount() == 0) {
+                        record.reset(record.getStartWhite(),
+                            record.getStartBlack(), record.getStartTurn(),
+                            startTime);
+                    }
+                } else if (name.equals("PB")) {
+                    record.setBlackName(value.toString());
+                } else if (name.equals("PW")) {
+                    record.setWhiteName(value.toString());
+                } else if (name.equals("RE")) {
+                    result = value.toString();
+                }
+            } else if (c == ')') {
+                if (result != null) {
+                    readResult(record, result);
+                }
+                return record;
+            } else if (Character.isLetter(c)) {
+                tag.append((char) c);
+            } else if (c != ';' && !Character.isWhitespace(c)) {
+                throw error("Unexpected '" + (char) c + "'");
+            }
+        }
+        throw error("Unterminated game");
+    }
+
+    /**
+     * Parses move tag value ("f5//think/clock") and adds it to record.
+     * Missing passes are inserted when colour does not alternate.
+     *
+     * @param record game record.
+     * @param player player from tag (0 - white, 1 - black).
+     * @param previous timestamp of previous move.
+     * @return timestamp of this move.
+     * @throws IOException exception on malformed move.
+     */
+    private long readMove(final GameRecord record, final int player,
+        final long previous) throws IOException {
+        if (value.length() < 2) {
+            throw error("Bad move");
+        }
+        int count = record.getMoveCount();
+        if (record.getPlayer(count) != player) {
+            record.addMove(GameRecord.PASS, previous, GameRecord.NO_CLOCK);
+        }
+        int square = moveSquare(value.charAt(0), value.charAt(1));
+
+        String[] fields = value.toString().split("/", -1);
+        final int thinkField = 2;
+        final int clockField = 3;
+        long timestamp = previous;
+        int clock = GameRecord.NO_CLOCK;
+        try {
+            if (fields.length > thinkField && !fields[thinkField].isEmpty()) {
+                timestamp += seconds(fields[thinkField]);
+            }
+            if (fields.length > clockField && !fields[clockField].isEmpty()) {
+                clock = (int) seconds(fields[clockField]);
+            }
+        } catch (NumberFormatException e) {
+            throw error("Bad time in move");
+        }
+        record.addMove(square, timestamp, clock);
+        return timestamp;
+    }
+
+    /**
+     * Parses BO tag value ("8 rows side") into start position.
+     *
+     * @param record game record.
+     * @param startTime start time in epoch milliseconds.
+     * @throws IOException exception on malformed board.
+     */
+    private void readBoard(final GameRecord record, final long startTime)
+        throws IOException {
+        long white = 0L;
+        long black = 0L;
+        int square = 0;
+        int turn = -1;
+        int i = value.indexOf(" ");
+        if (i < 0 || !value.substring(0, i).trim().equals("8")) {
+            throw error("Only 8x8 boards are supported");
+        }
+        for (i++; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.isWhitespace(c)) {
+                continue;
+            }
+            if (square == SQUARES) {
+                turn = c == 'O' ? 0 : 1;
+                break;
+            }
+            if (c == 'O') {
+                white |= 1L << square;
+            } else if (c == '*') {
+                black |= 1L << square;
+            } else if (c != '-') {
+                throw error("Bad board square '" + c + "'");
+            }
+            square++;
+        }
+        if (turn < 0) {
+            throw error("Truncated board");
+        }
+        record.reset(white, black, turn, startTime);
+    }
+
+    /**
+     * Parses RE tag value ("+4.000", "-12.000:r") into record result.
+     *
+     * @param record game record.
+     * @param value tag value.
+     */
+    private static void readResult(final GameRecord record,
+        final String value) {
+        int end = 0;
+        while (end < value.length() && (value.charAt(end) == '+'
+            || value.charAt(end) == '-' || value.charAt(end) == '.'
+            || Character.isDigit(value.charAt(end)))) {
+            end++;
+        }
+        try {
+            double blackResult = Double.parseDouble(value.substring(0, end));
+            record.setResult((int) -Math.round(blackResult));
+        } catch (NumberFormatException e) {
+            // unknown result, game stays unfinished
+        }
+    }
+
+    /**
+     * Parses DT tag value (GGF date or epoch seconds).
+     *
+     * @return epoch milliseconds.
+     */
+    private long parseDate() {
+        String date = value.toString();
+        try {
+            return Instant.from(TranscriptWriter.GGF_DATE.parse(date))
+                .toEpochMilli();
+        } catch (DateTimeParseException e) {
+            try {
+                return (long) (Double.parseDouble(date) * MILLIS);
+            } catch (NumberFormatException ex) {
+                return 0L;
+            }
+        }
+    }
+
+    /**
+     * Converts seconds string to milliseconds.
+     *
+     * @param seconds seconds with optional fraction.
+     * @return milliseconds.
+     */
+    private static long seconds(final String seconds) {
+        return Math.round(Double.parseDouble(seconds) * MILLIS);
+    }
+
+    /**
+     * Converts transcript move ("f5" or "pa") to square.
+     *
+     * @param col column letter.
+     * @param row row digit.
+     * @return row * 8 + col or GameRecord.PASS.
+     * @throws IOException exception on bad coordinates.
+     */
+    private int moveSquare(final char col, final char row)
+        throws IOException {
+        if (Character.toLowerCase(col) == 'p'
+            && Character.toLowerCase(row) == 'a') {
+            return GameRecord.PASS;
+        }
+        try {
+            return GameRecord.parseSquare(col, row);
+        } catch (IllegalArgumentException e) {
+            throw error(e.getMessage());
+        }
+    }
+
+    /**
+     * Reads tag value up to closing bracket into value buffer.
+     *
+     * @throws IOException exception on read or unterminated value.
+     */
+    private void readValue() throws IOException {
+        value.setLength(0);
+        int c;
+        while ((c = read()) != ']') {
+            if (c == -1) {
+                throw error("Unterminated tag value");
+            }
+            value.append((char) c);
+        }
+    }
+
+    /**
+     * Skips chars until end of line.
+     *
+     * @throws IOException exception on read.
+     */
+    private void skipLine() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c != -1 && c != '\n');
+    }
+
+    /**
+     * Reads next char from buffer, refilling it when needed.
+     *
+     * @return char or -1 at end of input.
+     * @throws IOException exception on read.
+     */
+    private int read() throws IOException {
+        if (pos == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            pos = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        char c = buffer[pos++];
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+
+    /**
+     * Makes exception with current line number.
+     *
+     * @param message error message.
+     * @return exception object.
+     */
+    private IOException error(final String message) {
+        return new IOException(message + " (line " + line + ")");
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,185 @@
+package com.yacotaco;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * TranscriptWriter class.
+ * Streams game records to text transcript, one game at a time.
+ *
+ * MOVES format writes one move string per line (e.g. "f5d6c3d3"), forced
+ * passes omitted (see {@link GameRecord#toMoveString()}). GGF format
+ * writes one GGF-like game per line:
+ * {@code (;GM[Othello]PC[..]DT[..]PB[..]PW[..]TY[8]RE[..]BO[..]B[f5//t/c];)}
+ * where t is think time and c is time left on mover clock in seconds.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+public class TranscriptWriter implements Closeable, Flushable {
+    /** Date format used in DT tag. */
+    static final DateTimeFormatter GGF_DATE = DateTimeFormatter
+        .ofPattern("yyyy.MM.dd_HH:mm:ss.'UTC'", Locale.ROOT)
+        .withZone(ZoneOffset.UTC);
+    /** Number of squares on board. */
+    private static final int SQUARES = 64;
+    /** Number of columns on board. */
+    private static final int COLS = 8;
+
+    /** Transcript formats. */
+    public enum Format {
+        /** Move string per line. */
+        MOVES,
+        /** GGF-like game per line. */
+        GGF
+    }
+
+    /** Output writer. */
+    private final Writer out;
+    /** Output format. */
+    private final Format format;
+    /** Reused line buffer. */
+    private final StringBuilder sb = new StringBuilder();
+    /** Place tag written to GGF games. */
+    private String place = "Reversi";
+
+    /**
+     * TranscriptWriter constructor.
+     *
+     * @param writer output writer (should be buffered).
+     * @param outputFormat transcript format.
+     */
+    public TranscriptWriter(final Writer writer, final Format outputFormat) {
+        this.out = writer;
+        this.format = outputFormat;
+    }
+
+    /**
+     * Sets place tag written to GGF games.
+     *
+     * @param gamePlace place name.
+     */
+    public void setPlace(final String gamePlace) {
+        this.place = gamePlace;
+    }
+
+    /**
+     * Writes one game.
+     *
+     * @param record game record.
+     * @throws IOException exception on write.
+     */
+    public void write(final GameRecord record) throws IOException {
+        sb.setLength(0);
+        if (format == Format.MOVES) {
+            sb.append(record.toMoveString());
+        } else {
+            appendGgf(record);
+        }
+        sb.append('\n');
+        out.append(sb);
+    }
+
+    /**
+     * Appends GGF-like game to line buffer.
+     *
+     * @param record game record.
+     */
+    private void appendGgf(final GameRecord record) {
+        sb.append("(;GM[Othello]PC[").append(escape(place))
+            .append("]DT[")
+            .append(GGF_DATE.format(Instant.ofEpochMilli(
+                record.getStartTime())))
+            .append("]PB[").append(escape(record.getBlackName()))
+            .append("]PW[").append(escape(record.getWhiteName()))
+            .append("]TY[8]");
+        if (record.isFinished()) {
+            // GGF results are given from black point of view
+            int blackResult = -record.getResult();
+            sb.append("RE[").append(blackResult >= 0 ? "+" : "")
+                .append(blackResult).append(".000]");
+        }
+        sb.append("BO[8 ");
+        long white = record.getStartWhite();
+        long black = record.getStartBlack();
+        for (int square = 0; square < SQUARES; square++) {
+            if (square > 0 && square % COLS == 0) {
+                sb.append(' ');
+            }
+            long bit = 1L << square;
+            if ((white & bit) != 0) {
+                sb.append('O');
+            } else if ((black & bit) != 0) {
+                sb.append('*');
+            } else {
+                sb.append('-');
+            }
+        }
+        sb.append(' ').append(record.getStartTurn() == 0 ? 'O' : '*')
+            .append(']');
+
+        long previous = record.getStartTime();
+        for (int i = 0; i < record.getMoveCount(); i++) {
+            long timestamp = record.getTimestamp(i);
+            sb.append(record.getPlayer(i) == 0 ? "W[" : "B[")
+                .append(GameRecord.squareToString(record.getSquare(i)))
+                .append("//");
+            appendSeconds(Math.max(0, timestamp - previous));
+            if (record.getClockMillis(i) != GameRecord.NO_CLOCK) {
+                sb.append('/');
+                appendSeconds(record.getClockMillis(i));
+            }
+            sb.append(']');
+            previous = timestamp;
+        }
+        sb.append(";)");
+    }
+
+    /**
+     * Appends milliseconds as seconds with three decimals.
+     *
+     * @param millis time in milliseconds.
+     */
+    private void appendSeconds(final long millis) {
+        final int fraction = 1000;
+        final int hundreds = 100;
+        final int tens = 10;
+        long rest = millis % fraction;
+        sb.append(millis / fraction).append('.');
+        if (rest < hundreds) {
+            sb.append('0');
+        }
+        if (rest < tens) {
+            sb.append('0');
+        }
+        sb.append(rest);
+    }
+
+    /**
+     * Removes characters which would break GGF tag value.
+     *
+     * @param value tag value.
+     * @return escaped value.
+     */
+    private static String escape(final String value) {
+        return value.replace('[', '(').replace(']', ')')
+            .replace('\n', ' ');
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
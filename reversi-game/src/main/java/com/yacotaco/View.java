@@ -16,7 +16,9 @@ import javafx.scene.paint.Color;
 import javafx.scene.shape.Circle;
 import javafx.scene.shape.Rectangle;
 import javafx.scene.shape.StrokeType;
+import javafx.scene.text.Font;
 import javafx.scene.text.Text;
+import javafx.scene.text.TextAlignment;
 import javafx.stage.Stage;
 
  /**
@@ -31,6 +33,8 @@ public class View {
     private BorderPane borderPane;
     /** Contains all elements placed in top part of border pane. */
     private TopBorderPane topBorderPane;
+    /** Board grid placed in center of border pane. */
+    private BoardGrid boardGrid;
     /** Square size. Also sets center of disc.*/
     private final double width = 65.0;
     /** Square size. Also sets center of disc.*/
@@ -70,7 +74,7 @@ public class View {
     public View(final Stage stage) {
         this.borderPane = new BorderPane();
         this.topBorderPane = new TopBorderPane();
-        new BoardGrid();
+        this.boardGrid = new BoardGrid();
         new BottomBorderPane();
         Scene scene = new Scene(borderPane, mainWidth, mainHeight);
         scene.getStylesheets().add(getClass()
@@ -356,8 +360,16 @@ public class View {
      * Contains methods and effects related to timer clock.
      */
     public class TimerView {
+        /** Clock width. */
+        private final int clockWidth = 70;
+        /** Clock height. */
+        private final int clockHeight = 30;
+        /** Clock border stroke. */
+        private final int clockStroke = 1;
         /** Value of timer to display in clock. */
         private Text timerValue;
+        /** Clock container, empty until timer is switched on. */
+        private StackPane timerStack;
 
         /** TimerView constructor.
          * Inits timer text field.
@@ -366,30 +378,38 @@ public class View {
             this.timerValue = new Text();
         }
 
-        /** Makes view of timer clock.
+        /** Makes view of timer clock. Clock is only a placeholder of its
+         * size until timer is switched on for the first time, so untimed
+         * games never build it.
          *
          * @param value timer value to display.
          * @return stack pane with timer elements.
          */
         public StackPane makeTimerView(final Text value) {
+            timerStack = new StackPane();
+            timerStack.setAlignment(Pos.CENTER);
+            timerStack.setMinSize(clockWidth + clockStroke,
+                clockHeight + clockStroke);
+            return timerStack;
+        }
+
+        /** Builds timer clock into its placeholder on first call. */
+        private void buildTimerView() {
+            if (timerStack == null || !timerStack.getChildren().isEmpty()) {
+                return;
+            }
             final int arcHeight = 30;
             final int arcWidth = 30;
-            final int rectWidth = 70;
-            final int rectHeight = 30;
-            final int rectStroke = 1;
             final int timerStroke = 4;
-            StackPane timerStack = new StackPane();
-            timerStack.setAlignment(Pos.CENTER);
-            Rectangle rectangle = new Rectangle(rectWidth, rectHeight,
+            Rectangle rectangle = new Rectangle(clockWidth, clockHeight,
                 Color.web("#332211"));
             rectangle.setArcHeight(arcHeight);
             rectangle.setArcWidth(arcWidth);
             rectangle.setStroke(Color.web("#000000"));
-            rectangle.setStrokeWidth(rectStroke);
+            rectangle.setStrokeWidth(clockStroke);
             timerValue.setStrokeWidth(timerStroke);
             timerValue.setStyle("-fx-font-size: 15;");
             timerStack.getChildren().addAll(rectangle, timerValue);
-            return timerStack;
         }
 
         /** Gets timer text object.
@@ -445,6 +465,7 @@ public class View {
 
         /** Shows timer. Changes colot of text field to black. */
         public void switchOnTimer() {
+            buildTimerView();
             this.timerValue.setFill(Color.BLACK);
         }
 
@@ -560,6 +581,21 @@ public class View {
             rectangle.setStrokeType(StrokeType.INSIDE);
             return rectangle;
         }
+
+        /** Makes valid move marker with analysis label on top.
+         *
+         * @param label text updated with move analysis.
+         * @return stack pane with marker and label.
+         */
+        public StackPane analysisMarker(final Text label) {
+            final double fontSize = 13.0;
+            label.setFont(Font.font(fontSize));
+            label.setFill(Color.web("#1a2a33"));
+            label.setTextAlignment(TextAlignment.CENTER);
+            StackPane marker = new StackPane();
+            marker.getChildren().addAll(validMoveMarker(), label);
+            return marker;
+        }
     }
 
     /** DiscView class.
@@ -702,6 +738,14 @@ public class View {
         return topBorderPane;
     }
 
+    /** Gets board grid.
+     *
+     * @return class object with board squares.
+     */
+    public BoardGrid getBoardGrid() {
+        return boardGrid;
+    }
+
     /**
     * SummaryView class.
     */
@@ -0,0 +1,551 @@
+package com.yacotaco;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * WeightTrainer class.
+ * Fits {@link PatternEvaluator} weights to final disc differences of
+ * played games by parallel mini-batch gradient descent.
+ *
+ * Games are read from transcript files or game databases, or generated
+ * by self-play, and streamed once into temporary sample file (own mask,
+ * opponent mask, final disc difference of player to move). Every epoch
+ * streams sample file again in mini-batches, so memory use doesn't depend
+ * on number of positions. Each mini-batch is split between worker threads
+ * which sum gradients into own arrays; sums are then merged and every
+ * touched weight moves by its mean error.
+ *
+ * Usage: {@code WeightTrainer [-selfplay N] [-epochs N] [-batch N]
+ * [-rate R] [-threads N] [-init weights] <weights> <input>...}
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+public class WeightTrainer {
+    /** Default number of epochs. */
+    public static final int DEFAULT_EPOCHS = 10;
+    /** Default mini-batch size. */
+    public static final int DEFAULT_BATCH = 16384;
+    /** Default learning rate. */
+    public static final float DEFAULT_RATE = 0.005f;
+    /** Size of sample in bytes. */
+    private static final int SAMPLE_SIZE = 17;
+    /** Size of sample file buffer in bytes. */
+    private static final int IO_BUFFER = SAMPLE_SIZE * (1 << 16);
+    /** Probability of random move in self-play. */
+    private static final double EXPLORATION = 0.1;
+
+    /** Weights being fitted. */
+    private final float[] weights;
+    /** Worker threads. */
+    private final ExecutorService pool;
+    /** Gradient accumulators, one per worker. */
+    private final Worker[] workers;
+    /** Temporary sample file. */
+    private final Path samples;
+    /** Sample file channel. */
+    private final FileChannel channel;
+    /** Sample write buffer. */
+    private final ByteBuffer out = ByteBuffer.allocateDirect(IO_BUFFER);
+    /** Number of samples written. */
+    private long sampleCount;
+
+    /**
+     * WeightTrainer constructor.
+     *
+     * @param initial initial weights (copied).
+     * @param threads number of worker threads.
+     * @throws IOException exception on creating sample file.
+     */
+    public WeightTrainer(final float[] initial, final int threads)
+        throws IOException {
+        this.weights = initial.clone();
+        this.pool = Executors.newFixedThreadPool(threads);
+        this.workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker();
+        }
+        this.samples = Files.createTempFile("reversi-samples", ".bin");
+        this.channel = FileChannel.open(samples, StandardOpenOption.READ,
+            StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+    }
+
+    /**
+     * Gets current weights.
+     *
+     * @return weights array.
+     */
+    public float[] getWeights() {
+        return weights;
+    }
+
+    /**
+     * Gets number of collected positions.
+     *
+     * @return number of samples.
+     */
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * Adds positions of finished game labelled with its result.
+     * Unfinished or illegal games are skipped.
+     *
+     * @param record game record.
+     * @return true if game was added.
+     * @throws IOException exception on writing sample file.
+     */
+    public synchronized boolean add(final GameRecord record)
+        throws IOException {
+        if (!record.isFinished()) {
+            return false;
+        }
+        // replay may insert missing passes, at most one per move
+        int worst = (2 * record.getMoveCount() + 1) * SAMPLE_SIZE;
+        if (worst > out.capacity()) {
+            // far longer than any legal game
+            return false;
+        }
+        if (out.remaining() < worst) {
+            drain();
+        }
+        final int result = record.getResult();
+        final int start = out.position();
+        boolean legal = record.replay((ply, white, black, turn) -> {
+            if (turn == 0) {
+                out.putLong(white).putLong(black).put((byte) result);
+            } else {
+                out.putLong(black).putLong(white).put((byte) -result);
+            }
+        });
+        if (!legal) {
+            out.position(start);
+            return false;
+        }
+        sampleCount += (out.position() - start) / SAMPLE_SIZE;
+        return true;
+    }
+
+    /**
+     * Adds all finished games from transcript file or game database.
+     * Database is only scanned, it isn't opened for writing or indexed.
+     *
+     * @param input input file path.
+     * @throws IOException exception on read or writing sample file.
+     */
+    public void addFile(final Path input) throws IOException {
+        try {
+            OpeningBookBuilder.forEachGame(input, record -> {
+                try {
+                    add(record);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Plays games of evaluator against itself and adds them.
+     * Moves are greedy by current weights with some random moves for
+     * variety.
+     *
+     * @param games number of games.
+     * @param seed random seed.
+     * @throws IOException exception on writing sample file.
+     */
+    public void selfPlay(final int games, final long seed)
+        throws IOException {
+        final PatternEvaluator evaluator = new PatternEvaluator(
+            weights.clone());
+        final SplittableRandom root = new SplittableRandom(seed);
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int t = 0; t < workers.length; t++) {
+            final SplittableRandom random = root.split();
+            final int count = games / workers.length
+                + (t < games % workers.length ? 1 : 0);
+            tasks.add(() -> {
+                for (int g = 0; g < count; g++) {
+                    add(playGame(evaluator, random));
+                }
+                return null;
+            });
+        }
+        run(tasks);
+    }
+
+    /**
+     * Plays one self-play game from initial position.
+     *
+     * @param evaluator evaluator choosing moves.
+     * @param random random generator.
+     * @return finished game record.
+     */
+    private static GameRecord playGame(final PatternEvaluator evaluator,
+        final SplittableRandom random) {
+        GameRecord record = new GameRecord();
+        record.reset(GameRecord.INITIAL_WHITE, GameRecord.INITIAL_BLACK, 0,
+            System.currentTimeMillis());
+        long own = GameRecord.INITIAL_WHITE;
+        long opp = GameRecord.INITIAL_BLACK;
+        int turn = 0;
+        boolean passed = false;
+        while (true) {
+            long moves = BitBoard.validMoves(own, opp);
+            if (moves == 0) {
+                if (passed) {
+                    break;
+                }
+                passed = true;
+                record.addMove(GameRecord.PASS, 0, GameRecord.NO_CLOCK);
+            } else {
+                passed = false;
+                int square = chooseMove(evaluator, random, own, opp, moves);
+                long flipped = BitBoard.flips(square, own, opp);
+                own |= flipped | (1L << square);
+                opp &= ~flipped;
+                record.addMove(square, 0, GameRecord.NO_CLOCK);
+            }
+            long swap = own;
+            own = opp;
+            opp = swap;
+            turn = 1 - turn;
+        }
+        // own is player to move, remove trailing pass
+        record.truncate(record.getMoveCount() - 1);
+        int diff = Long.bitCount(own) - Long.bitCount(opp);
+        record.setResult(turn == 0 ? diff : -diff);
+        return record;
+    }
+
+    /**
+     * Chooses self-play move.
+     *
+     * @param evaluator evaluator.
+     * @param random random generator.
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @param moves valid moves mask.
+     * @return square of chosen move.
+     */
+    private static int chooseMove(final PatternEvaluator evaluator,
+        final SplittableRandom random, final long own, final long opp,
+        final long moves) {
+        long left = moves;
+        if (random.nextDouble() < EXPLORATION) {
+            for (int skip = random.nextInt(Long.bitCount(moves)); skip > 0;
+                skip--) {
+                left &= left - 1;
+            }
+            return Long.numberOfTrailingZeros(left);
+        }
+        int best = -1;
+        float bestScore = Float.NEGATIVE_INFINITY;
+        while (left != 0) {
+            int square = Long.numberOfTrailingZeros(left);
+            left &= left - 1;
+            long flipped = BitBoard.flips(square, own, opp);
+            float score = -evaluator.evaluate(opp & ~flipped,
+                own | flipped | (1L << square));
+            if (score > bestScore) {
+                bestScore = score;
+                best = square;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Runs one epoch over all samples.
+     *
+     * @param batch mini-batch size.
+     * @param rate learning rate.
+     * @return mean squared error of predictions before updates.
+     * @throws IOException exception on reading sample file.
+     */
+    public double epoch(final int batch, final float rate)
+        throws IOException {
+        drain();
+        long[] owns = new long[batch];
+        long[] opps = new long[batch];
+        byte[] labels = new byte[batch];
+        ByteBuffer in = ByteBuffer.allocateDirect(IO_BUFFER);
+        in.limit(0);
+        long position = 0;
+        long end = channel.size();
+        double error = 0;
+        while (true) {
+            int filled = 0;
+            while (filled < batch) {
+                if (!in.hasRemaining()) {
+                    if (position >= end) {
+                        break;
+                    }
+                    // buffer holds whole number of samples
+                    in.clear();
+                    in.limit((int) Math.min(in.capacity(), end - position));
+                    while (in.hasRemaining()) {
+                        position += channel.read(in, position);
+                    }
+                    in.flip();
+                }
+                owns[filled] = in.getLong();
+                opps[filled] = in.getLong();
+                labels[filled] = in.get();
+                filled++;
+            }
+            if (filled == 0) {
+                break;
+            }
+            error += step(owns, opps, labels, filled, rate);
+        }
+        return sampleCount > 0 ? error / sampleCount : 0;
+    }
+
+    /**
+     * Makes one gradient step on mini-batch.
+     *
+     * @param owns own masks.
+     * @param opps opponent masks.
+     * @param labels final disc differences.
+     * @param count number of samples in batch.
+     * @param rate learning rate.
+     * @return sum of squared errors.
+     * @throws IOException exception when worker fails.
+     */
+    private double step(final long[] owns, final long[] opps,
+        final byte[] labels, final int count, final float rate)
+        throws IOException {
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int t = 0; t < workers.length; t++) {
+            final Worker worker = workers[t];
+            final int from = (int) ((long) count * t / workers.length);
+            final int to = (int) ((long) count * (t + 1) / workers.length);
+            tasks.add(() -> {
+                worker.accumulate(weights, owns, opps, labels, from, to);
+                return null;
+            });
+        }
+        run(tasks);
+        // merge into first worker, then update touched weights
+        Worker sum = workers[0];
+        for (int t = 1; t < workers.length; t++) {
+            sum.merge(workers[t]);
+        }
+        double error = 0;
+        for (Worker worker : workers) {
+            error += worker.error;
+            worker.error = 0;
+        }
+        for (int i = 0; i < sum.touchedCount; i++) {
+            int index = sum.touched[i];
+            weights[index] -= rate * sum.gradient[index] / sum.hits[index];
+            sum.gradient[index] = 0f;
+            sum.hits[index] = 0;
+        }
+        sum.touchedCount = 0;
+        return error;
+    }
+
+    /**
+     * Runs tasks on worker threads and waits for them.
+     *
+     * @param tasks tasks to run.
+     * @throws IOException exception thrown by task.
+     */
+    private void run(final List<Callable<Void>> tasks) throws IOException {
+        try {
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Training interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Writes buffered samples to sample file.
+     *
+     * @throws IOException exception on write.
+     */
+    private synchronized void drain() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out, channel.size());
+        }
+        out.clear();
+    }
+
+    /**
+     * Stops worker threads and deletes sample file.
+     *
+     * @throws IOException exception on closing sample file.
+     */
+    public void close() throws IOException {
+        pool.shutdown();
+        channel.close();
+        Files.deleteIfExists(samples);
+    }
+
+    /** Gradient accumulator of one worker thread. */
+    private static final class Worker {
+        /** Sum of errors per weight. */
+        private final float[] gradient =
+            new float[PatternEvaluator.getWeightCount()];
+        /** Number of samples per weight. */
+        private final int[] hits = new int[gradient.length];
+        /** Weights with non-zero hits. */
+        private final int[] touched = new int[gradient.length];
+        /** Number of touched weights. */
+        private int touchedCount;
+        /** Sum of squared errors. */
+        private double error;
+        /** Feature indices of current sample. */
+        private final int[] features =
+            new int[PatternEvaluator.getFeatureCount()];
+
+        /**
+         * Accumulates gradients of samples.
+         *
+         * @param weights current weights.
+         * @param owns own masks.
+         * @param opps opponent masks.
+         * @param labels final disc differences.
+         * @param from first sample.
+         * @param to sample after last.
+         */
+        void accumulate(final float[] weights, final long[] owns,
+            final long[] opps, final byte[] labels, final int from,
+            final int to) {
+            for (int s = from; s < to; s++) {
+                PatternEvaluator.features(owns[s], opps[s], features);
+                float prediction = 0f;
+                for (int index : features) {
+                    prediction += weights[index];
+                }
+                float delta = prediction - labels[s];
+                error += delta * delta;
+                for (int index : features) {
+                    add(index, delta, 1);
+                }
+            }
+        }
+
+        /**
+         * Adds other worker sums to this one and clears them.
+         *
+         * @param other other worker.
+         */
+        void merge(final Worker other) {
+            for (int i = 0; i < other.touchedCount; i++) {
+                int index = other.touched[i];
+                add(index, other.gradient[index], other.hits[index]);
+                other.gradient[index] = 0f;
+                other.hits[index] = 0;
+            }
+            other.touchedCount = 0;
+        }
+
+        /**
+         * Adds error to weight.
+         *
+         * @param index weight index.
+         * @param delta error.
+         * @param count number of samples.
+         */
+        private void add(final int index, final float delta,
+            final int count) {
+            if (hits[index] == 0) {
+                touched[touchedCount++] = index;
+            }
+            gradient[index] += delta;
+            hits[index] += count;
+        }
+    }
+
+    /**
+     * Trains weights from command line.
+     *
+     * @param args options, output weight file and input game files.
+     * @throws IOException exception on read or write.
+     */
+    public static void main(final String[] args) throws IOException {
+        int selfPlay = 0;
+        int epochs = DEFAULT_EPOCHS;
+        int batch = DEFAULT_BATCH;
+        float rate = DEFAULT_RATE;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String init = null;
+        List<String> files = new ArrayList<String>();
+        for (int i = 0; i < args.length; i++) {
+            boolean hasValue = i + 1 < args.length;
+            if (args[i].equals("-selfplay") && hasValue) {
+                selfPlay = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-epochs") && hasValue) {
+                epochs = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-batch") && hasValue) {
+                batch = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-rate") && hasValue) {
+                rate = Float.parseFloat(args[++i]);
+            } else if (args[i].equals("-threads") && hasValue) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-init") && hasValue) {
+                init = args[++i];
+            } else {
+                files.add(args[i]);
+            }
+        }
+        if (files.isEmpty() || (files.size() < 2 && selfPlay == 0)) {
+            System.err.println("Usage: WeightTrainer [-selfplay N]"
+                + " [-epochs N] [-batch N] [-rate R] [-threads N]"
+                + " [-init weights] <weights> <input>...");
+            System.exit(1);
+        }
+        float[] initial = init != null
+            ? PatternEvaluator.read(Paths.get(init)).getWeights()
+            : PatternEvaluator.defaultWeights();
+        WeightTrainer trainer = new WeightTrainer(initial, threads);
+        try {
+            for (String file : files.subList(1, files.size())) {
+                trainer.addFile(Paths.get(file));
+            }
+            if (selfPlay > 0) {
+                trainer.selfPlay(selfPlay, System.nanoTime());
+            }
+            System.out.println(trainer.getSampleCount() + " positions");
+            for (int e = 1; e <= epochs; e++) {
+                double mse = trainer.epoch(batch, rate);
+                System.out.printf("epoch %d: mse %.3f%n", e, mse);
+            }
+            PatternEvaluator.write(Paths.get(files.get(0)),
+                trainer.getWeights());
+        } finally {
+            trainer.close();
+        }
+    }
+}
@@ -1,5 +1,7 @@
 module com.yacotaco {
     requires javafx.controls;
     requires javafx.fxml;
+    requires java.management;
+    requires jdk.management;
     exports com.yacotaco;
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+package com.yacotaco;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * BatchAnalyzerTest class.
+ * Checks that positions with few empty squares are solved exactly without
+ * Monte Carlo search and others are searched.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+class BatchAnalyzerTest {
+    /** Search budget which would be noticed if spent, in milliseconds. */
+    private static final int BUDGET_MILLIS = 5000;
+    /** Largest number of empty squares solved exactly. */
+    private static final int EXACT_EMPTIES = 10;
+    /** Index of best move field in CSV line. */
+    private static final int BEST_FIELD = 6;
+    /** Index of win rate field in CSV line. */
+    private static final int WINRATE_FIELD = 7;
+    /** Index of exact move field in CSV line. */
+    private static final int EXACT_MOVE_FIELD = 9;
+
+    /** Directory for test files. */
+    @TempDir
+    Path dir;
+
+    @Test
+    void endgameIsSolvedInsteadOfSearched() throws IOException {
+        long[] position = null;
+        for (long[] p : TestGames.positions(20, 1)) {
+            int empty = BitBoard.SQUARES - Long.bitCount(p[0] | p[1]);
+            if (empty == EXACT_EMPTIES
+                && BitBoard.validMoves(p[0], p[1]) != 0) {
+                position = p;
+                break;
+            }
+        }
+        String[] fields = analyze(position, EXACT_EMPTIES);
+        assertFalse(fields[BEST_FIELD].isEmpty());
+        assertEquals(fields[EXACT_MOVE_FIELD], fields[BEST_FIELD]);
+        assertTrue(fields[WINRATE_FIELD].isEmpty());
+    }
+
+    @Test
+    void otherPositionsAreSearched() throws IOException {
+        long[] start = {GameRecord.INITIAL_WHITE, GameRecord.INITIAL_BLACK};
+        final int budget = 20;
+        String[] fields = analyze(start, EXACT_EMPTIES, budget);
+        assertFalse(fields[BEST_FIELD].isEmpty());
+        assertFalse(fields[WINRATE_FIELD].isEmpty());
+        assertTrue(fields[EXACT_MOVE_FIELD].isEmpty());
+    }
+
+    /**
+     * Saves position with white to move and analyses it.
+     *
+     * @param p white and black masks.
+     * @param exact largest number of empty squares solved exactly.
+     * @return fields of CSV result line.
+     * @throws IOException exception on save.
+     */
+    private String[] analyze(final long[] p, final int exact)
+        throws IOException {
+        return analyze(p, exact, BUDGET_MILLIS);
+    }
+
+    /**
+     * Saves position with white to move and analyses it.
+     *
+     * @param p white and black masks.
+     * @param exact largest number of empty squares solved exactly.
+     * @param budget search budget in milliseconds.
+     * @return fields of CSV result line.
+     * @throws IOException exception on save.
+     */
+    private String[] analyze(final long[] p, final int exact,
+        final int budget) throws IOException {
+        SavedGame game = new SavedGame();
+        game.setWhiteMask(p[0]);
+        game.setBlackMask(p[1]);
+        game.setPlayerTurn(0);
+        game.setStartWhiteMask(p[0]);
+        game.setStartBlackMask(p[1]);
+        game.setStartTurn(0);
+        game.setMoves(new byte[0]);
+        game.setMoveClocks(new int[0]);
+        Path file = dir.resolve("game.sav");
+        SaveFormat.save(file, game);
+        StringWriter text = new StringWriter();
+        BatchAnalyzer analyzer = new BatchAnalyzer(budget, exact, false,
+            new PrintWriter(text));
+        analyzer.analyze(file);
+        assertEquals(1, analyzer.getAnalysed());
+        return text.toString().trim().split(",", -1);
+    }
+}
@@ -0,0 +1,142 @@
+package com.yacotaco;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * BitBoardTest class.
+ * Checks shift-based move generation, ray-based flipping and neighbour
+ * masks against square-by-square walk along 8 directions.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+class BitBoardTest {
+    /** Steps of 8 directions as row and column change. */
+    private static final int[][] DIRECTIONS = {
+        {0, 1}, {0, -1}, {1, 0}, {-1, 0}, {1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+    /** Number of rows and columns. */
+    private static final int SIZE = 8;
+
+    @Test
+    void startPositionHasFourMoves() {
+        long moves = BitBoard.validMoves(GameRecord.INITIAL_WHITE,
+            GameRecord.INITIAL_BLACK);
+        assertEquals(4, Long.bitCount(moves));
+        assertEquals(referenceMoves(GameRecord.INITIAL_WHITE,
+            GameRecord.INITIAL_BLACK), moves);
+    }
+
+    @Test
+    void validMovesMatchReference() {
+        for (long[] p : TestGames.positions(200, 1)) {
+            assertEquals(referenceMoves(p[0], p[1]),
+                BitBoard.validMoves(p[0], p[1]));
+        }
+    }
+
+    @Test
+    void bothMovesMatchValidMoves() {
+        long[] out = new long[2];
+        for (long[] p : TestGames.positions(200, 2)) {
+            BitBoard.bothMoves(p[0], p[1], out);
+            assertEquals(BitBoard.validMoves(p[0], p[1]), out[0]);
+            assertEquals(BitBoard.validMoves(p[1], p[0]), out[1]);
+        }
+    }
+
+    @Test
+    void flipsMatchReferenceOnEveryEmptySquare() {
+        for (long[] p : TestGames.positions(100, 3)) {
+            long empty = ~(p[0] | p[1]);
+            while (empty != 0) {
+                int square = Long.numberOfTrailingZeros(empty);
+                empty &= empty - 1;
+                assertEquals(referenceFlips(square, p[0], p[1]),
+                    BitBoard.flips(square, p[0], p[1]));
+            }
+        }
+    }
+
+    @Test
+    void statusMatchesMoves() {
+        List<long[]> positions = TestGames.positions(100, 4);
+        for (long[] p : positions) {
+            int expected = referenceMoves(p[0], p[1]) != 0 ? BitBoard.MOVE
+                : referenceMoves(p[1], p[0]) != 0 ? BitBoard.PASS
+                : BitBoard.GAME_OVER;
+            assertEquals(expected, BitBoard.status(p[0], p[1]));
+        }
+    }
+
+    @Test
+    void neighboursMatchReference() {
+        for (long[] p : TestGames.positions(50, 5)) {
+            long expected = 0;
+            for (int square = 0; square < BitBoard.SQUARES; square++) {
+                for (int[] d : DIRECTIONS) {
+                    int row = square / SIZE + d[0];
+                    int col = square % SIZE + d[1];
+                    if (row >= 0 && row < SIZE && col >= 0 && col < SIZE
+                        && (p[1] & (1L << (row * SIZE + col))) != 0) {
+                        expected |= 1L << square;
+                    }
+                }
+            }
+            assertEquals(expected | p[1], BitBoard.neighbours(p[1]));
+        }
+    }
+
+    /**
+     * Gets legal moves by flipping every empty square.
+     *
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @return bit mask of legal moves.
+     */
+    private static long referenceMoves(final long own, final long opp) {
+        long moves = 0;
+        for (int square = 0; square < BitBoard.SQUARES; square++) {
+            if (((own | opp) & (1L << square)) == 0
+                && referenceFlips(square, own, opp) != 0) {
+                moves |= 1L << square;
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Gets flipped discs by walking from square in each direction.
+     *
+     * @param square row * 8 + col of move.
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @return bit mask of flipped discs.
+     */
+    private static long referenceFlips(final int square, final long own,
+        final long opp) {
+        long flipped = 0;
+        for (int[] d : DIRECTIONS) {
+            long line = 0;
+            int row = square / SIZE + d[0];
+            int col = square % SIZE + d[1];
+            while (row >= 0 && row < SIZE && col >= 0 && col < SIZE) {
+                long bit = 1L << (row * SIZE + col);
+                if ((opp & bit) != 0) {
+                    line |= bit;
+                } else {
+                    if ((own & bit) != 0) {
+                        flipped |= line;
+                    }
+                    break;
+                }
+                row += d[0];
+                col += d[1];
+            }
+        }
+        return flipped;
+    }
+}
@@ -0,0 +1,104 @@
+package com.yacotaco;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * BoardTest class.
+ * Checks that flipping discs of board by row, column and diagonals gives
+ * same result as bit mask flipping, and that disc grid follows masks.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+class BoardTest {
+    /** Number of columns. */
+    private static final int COLS = 8;
+
+    @Test
+    void flipAllDiscsMatchesBitBoard() {
+        Board board = new Board();
+        int player = 0;
+        for (long[] p : TestGames.positions(50, 1)) {
+            // each colour moves in half of positions
+            player = 1 - player;
+            long moves = BitBoard.validMoves(p[0], p[1]);
+            while (moves != 0) {
+                int square = Long.numberOfTrailingZeros(moves);
+                moves &= moves - 1;
+                long flipped = BitBoard.flips(square, p[0], p[1]);
+                setPosition(board, p, player);
+                board.clearFlipedDiscsToMark();
+                board.flipAllDiscs(square / COLS, square % COLS, player);
+                board.modifyDiscState(square / COLS, square % COLS, player);
+                assertEquals(p[0] | flipped | (1L << square),
+                    board.getDiscMask(player));
+                assertEquals(p[1] & ~flipped, board.getDiscMask(1 - player));
+                assertEquals(Long.bitCount(flipped),
+                    board.getFlipedDiscsToMark().size());
+                assertGridMatchesMasks(board);
+            }
+        }
+    }
+
+    @Test
+    void lineFlipsMatchFlipTables() {
+        Board board = new Board();
+        for (long[] p : TestGames.positions(50, 2)) {
+            long moves = BitBoard.validMoves(p[0], p[1]);
+            while (moves != 0) {
+                int square = Long.numberOfTrailingZeros(moves);
+                moves &= moves - 1;
+                int row = square / COLS;
+                int col = square % COLS;
+                setPosition(board, p, 0);
+                board.flipHorizontalDiscs(row, col, 0);
+                assertEquals(p[0] | FlipTables.rowFlips(square, p[0], p[1]),
+                    board.getDiscMask(0));
+                setPosition(board, p, 0);
+                board.flipVerticalDiscs(row, col, 0);
+                assertEquals(p[0] | FlipTables.columnFlips(square, p[0],
+                    p[1]), board.getDiscMask(0));
+                setPosition(board, p, 0);
+                board.flipDiagonalDiscs(row, col, 0);
+                assertEquals(p[0] | FlipTables.diagonalFlips(square, p[0],
+                    p[1]), board.getDiscMask(0));
+                assertGridMatchesMasks(board);
+            }
+        }
+    }
+
+    /**
+     * Sets position on board.
+     *
+     * @param board board.
+     * @param p own and opponent masks of player to move.
+     * @param player player to move (0 - white, 1 - black).
+     */
+    private static void setPosition(final Board board, final long[] p,
+        final int player) {
+        if (player == 0) {
+            board.setDiscMasks(p[0], p[1]);
+        } else {
+            board.setDiscMasks(p[1], p[0]);
+        }
+    }
+
+    /**
+     * Checks that state of every disc matches bit masks.
+     *
+     * @param board board.
+     */
+    private static void assertGridMatchesMasks(final Board board) {
+        Disc[][] grid = board.getBoardGrid();
+        for (int square = 0; square < BitBoard.SQUARES; square++) {
+            long bit = 1L << square;
+            int state = (board.getDiscMask(0) & bit) != 0 ? 0
+                : (board.getDiscMask(1) & bit) != 0 ? 1 : -1;
+            assertEquals(state, (int) grid[square / COLS][square % COLS]
+                .getState());
+        }
+    }
+}
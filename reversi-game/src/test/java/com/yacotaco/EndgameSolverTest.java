@@ -0,0 +1,97 @@
+package com.yacotaco;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * EndgameSolverTest class.
+ * Checks exact scores and best moves of solver against plain negamax
+ * without pruning on positions with few empty squares.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+class EndgameSolverTest {
+    /** Most empty squares of tested positions. */
+    private static final int MAX_EMPTIES = 9;
+
+    @Test
+    void solveMatchesNegamax() {
+        int checked = 0;
+        for (long[] p : TestGames.positions(100, 1)) {
+            if (empties(p) <= MAX_EMPTIES) {
+                assertEquals(negamax(p[0], p[1], false),
+                    new EndgameSolver().solve(p[0], p[1]));
+                checked++;
+            }
+        }
+        assertTrue(checked > 0);
+    }
+
+    @Test
+    void bestMoveReachesExactScore() {
+        EndgameSolver solver = new EndgameSolver();
+        for (long[] p : TestGames.positions(100, 2)) {
+            if (empties(p) > MAX_EMPTIES) {
+                continue;
+            }
+            int expected = negamax(p[0], p[1], false);
+            int square = solver.bestMove(p[0], p[1]);
+            assertEquals(expected, solver.getScore());
+            long moves = BitBoard.validMoves(p[0], p[1]);
+            if (moves == 0) {
+                assertEquals(-1, square);
+                continue;
+            }
+            assertTrue((moves & (1L << square)) != 0);
+            long flipped = BitBoard.flips(square, p[0], p[1]);
+            assertEquals(expected, -negamax(p[1] & ~flipped,
+                p[0] | flipped | (1L << square), false));
+        }
+        assertTrue(solver.getNodes() > 0);
+    }
+
+    /**
+     * Counts empty squares.
+     *
+     * @param p own and opponent masks.
+     * @return empty squares.
+     */
+    private static int empties(final long[] p) {
+        return BitBoard.SQUARES - Long.bitCount(p[0] | p[1]);
+    }
+
+    /**
+     * Gets exact score by searching every move.
+     *
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @param passed true if opponent passed last turn.
+     * @return final disc difference for player to move, empty squares
+     *         counted for winner.
+     */
+    private static int negamax(final long own, final long opp,
+        final boolean passed) {
+        long moves = BitBoard.validMoves(own, opp);
+        if (moves == 0) {
+            if (passed) {
+                int diff = Long.bitCount(own) - Long.bitCount(opp);
+                int empty = BitBoard.SQUARES - Long.bitCount(own | opp);
+                return diff > 0 ? diff + empty : diff < 0 ? diff - empty : 0;
+            }
+            return -negamax(opp, own, true);
+        }
+        int best = -BitBoard.SQUARES;
+        while (moves != 0) {
+            int square = Long.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+            long flipped = BitBoard.flips(square, own, opp);
+            best = Math.max(best, -negamax(opp & ~flipped,
+                own | flipped | (1L << square), false));
+        }
+        return best;
+    }
+}
@@ -0,0 +1,48 @@
+package com.yacotaco;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * EngineMetricsTest class.
+ * Checks that measurement of AI move counts only work of its own search
+ * and that last move is reported and reset as whole.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+class EngineMetricsTest {
+    /** Work reported by measured search. */
+    private static final long WORK = 1000;
+
+    @Test
+    void lastMoveCountsOnlyWorkOfItsSearch() throws InterruptedException {
+        EngineMetrics metrics = new EngineMetrics();
+        EngineMetrics.Think think = metrics.startThink();
+        Thread.sleep(2);
+        // playouts of concurrent search are not work of this move
+        metrics.addPlayouts(WORK * WORK * WORK);
+        think.stop(WORK);
+        double millis = metrics.getLastThinkMillis();
+        assertTrue(millis > 0);
+        assertEquals(WORK / millis * 1000, metrics.getLastNodesPerSecond(),
+            1e-6);
+        assertEquals(1, metrics.getThinkCount());
+        assertTrue(metrics.toJson().contains("\"lastThinkMillis\":"));
+    }
+
+    @Test
+    void resetClearsLastMove() {
+        EngineMetrics metrics = new EngineMetrics();
+        metrics.startThink().stop(WORK);
+        metrics.reset();
+        assertEquals(0, metrics.getLastThinkMillis());
+        assertEquals(0, metrics.getLastNodesPerSecond());
+        assertEquals(-1, metrics.getLastAllocatedBytes());
+        assertEquals(0, metrics.getLastGcCount());
+        assertEquals(0, metrics.getThinkCount());
+    }
+}
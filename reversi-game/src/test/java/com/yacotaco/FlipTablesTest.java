@@ -0,0 +1,44 @@
+package com.yacotaco;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * FlipTablesTest class.
+ * Checks table lookup flipping against bit mask flipping.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+class FlipTablesTest {
+    @Test
+    void flipsMatchBitBoardOnEveryEmptySquare() {
+        for (long[] p : TestGames.positions(200, 5)) {
+            long empty = ~(p[0] | p[1]);
+            while (empty != 0) {
+                int square = Long.numberOfTrailingZeros(empty);
+                empty &= empty - 1;
+                assertEquals(BitBoard.flips(square, p[0], p[1]),
+                    FlipTables.flips(square, p[0], p[1]),
+                    "square " + square);
+            }
+        }
+    }
+
+    @Test
+    void linesAddUpToFlips() {
+        for (long[] p : TestGames.positions(50, 6)) {
+            long moves = BitBoard.validMoves(p[0], p[1]);
+            while (moves != 0) {
+                int square = Long.numberOfTrailingZeros(moves);
+                moves &= moves - 1;
+                long lines = FlipTables.rowFlips(square, p[0], p[1])
+                    | FlipTables.columnFlips(square, p[0], p[1])
+                    | FlipTables.diagonalFlips(square, p[0], p[1]);
+                assertEquals(BitBoard.flips(square, p[0], p[1]), lines);
+            }
+        }
+    }
+}
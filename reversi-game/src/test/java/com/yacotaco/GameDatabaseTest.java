@@ -0,0 +1,258 @@
+package com.yacotaco;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * GameDatabaseTest class.
+ * Checks appending, reading and position queries of game database, and
+ * that saved or rebuilt index answers same queries after reopening.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+class GameDatabaseTest {
+    /** Number of games per test. */
+    private static final int GAMES = 300;
+
+    /** Directory for test files. */
+    @TempDir
+    Path dir;
+
+    @Test
+    void appendedGamesAreReadBack() throws IOException {
+        List<GameRecord> games = games(1);
+        List<Long> offsets = new ArrayList<Long>();
+        try (GameDatabase db = new GameDatabase(dir.resolve("games.db"))) {
+            for (GameRecord game : games) {
+                offsets.add(db.append(game));
+            }
+            assertEquals(GAMES, db.getGameCount());
+            for (int g = 0; g < GAMES; g++) {
+                assertSameGame(games.get(g), db.read(offsets.get(g)));
+            }
+            List<Long> visited = new ArrayList<Long>();
+            db.forEach((record, offset) -> visited.add(offset));
+            assertEquals(offsets, visited);
+            assertThrows(IOException.class, () -> db.read(1L));
+        }
+    }
+
+    @Test
+    void queriesFindEveryGameThroughPosition() throws IOException {
+        List<GameRecord> games = games(2);
+        try (GameDatabase db = new GameDatabase(dir.resolve("games.db"))) {
+            for (GameRecord game : games) {
+                final long offset = db.append(game);
+                game.replay((ply, white, black, turn) -> assertTrue(
+                    contains(db.findGames(white, black, turn), offset)));
+            }
+            long[] all = db.findGames(GameRecord.INITIAL_WHITE,
+                GameRecord.INITIAL_BLACK, 0);
+            assertEquals(GAMES, all.length);
+            for (int i = 1; i < all.length; i++) {
+                assertTrue(all[i - 1] < all[i]);
+            }
+        }
+    }
+
+    @Test
+    void indexIsSavedAndRebuilt() throws IOException {
+        Path file = dir.resolve("games.db");
+        List<GameRecord> games = games(3);
+        try (GameDatabase db = new GameDatabase(file)) {
+            for (GameRecord game : games.subList(0, GAMES / 2)) {
+                db.append(game);
+            }
+        }
+        Path index = file.resolveSibling("games.db.idx");
+        assertTrue(Files.exists(index));
+        // second half is indexed on top of loaded index
+        try (GameDatabase db = new GameDatabase(file)) {
+            for (GameRecord game : games.subList(GAMES / 2, GAMES)) {
+                db.append(game);
+            }
+        }
+        List<long[]> saved = answers(file, games);
+        Files.delete(index);
+        List<long[]> rebuilt = answers(file, games);
+        assertEquals(saved.size(), rebuilt.size());
+        for (int i = 0; i < saved.size(); i++) {
+            assertArrayEquals(saved.get(i), rebuilt.get(i));
+        }
+    }
+
+    @Test
+    void indexDepthLimitsIndexedPlies() throws IOException {
+        final int depth = 4;
+        GameRecord game = games(4).get(0);
+        try (GameDatabase db = new GameDatabase(dir.resolve("games.db"),
+            depth)) {
+            long offset = db.append(game);
+            game.replay((ply, white, black, turn) -> assertEquals(
+                ply <= depth, contains(db.findGames(white, black, turn),
+                    offset)));
+        }
+    }
+
+    @Test
+    void illegalGameIsNotStored() throws IOException {
+        GameRecord record = new GameRecord();
+        record.reset(GameRecord.INITIAL_WHITE, GameRecord.INITIAL_BLACK, 0,
+            0L);
+        record.addMove(0, 0L, GameRecord.NO_CLOCK);
+        try (GameDatabase db = new GameDatabase(dir.resolve("games.db"))) {
+            assertThrows(IOException.class, () -> db.append(record));
+            assertEquals(0, db.getGameCount());
+        }
+    }
+
+    @Test
+    void scanReadsClosedDatabaseWithoutWriting() throws IOException {
+        Path file = dir.resolve("games.db");
+        List<GameRecord> games = games(5);
+        List<Long> offsets = new ArrayList<Long>();
+        try (GameDatabase db = new GameDatabase(file)) {
+            for (GameRecord game : games) {
+                offsets.add(db.append(game));
+            }
+        }
+        Files.delete(file.resolveSibling("games.db.idx"));
+        byte[] before = Files.readAllBytes(file);
+        List<GameRecord> scanned = new ArrayList<GameRecord>();
+        List<Long> visited = new ArrayList<Long>();
+        GameDatabase.scan(file, (record, offset) -> {
+            scanned.add(record);
+            visited.add(offset);
+        });
+        assertEquals(offsets, visited);
+        for (int g = 0; g < GAMES; g++) {
+            assertSameGame(games.get(g), scanned.get(g));
+        }
+        assertArrayEquals(before, Files.readAllBytes(file));
+        assertTrue(Files.notExists(file.resolveSibling("games.db.idx")));
+    }
+
+    @Test
+    void scanReadsGamesAppendedAfterFlush() throws IOException {
+        Path file = dir.resolve("games.db");
+        List<GameRecord> games = games(6);
+        try (GameDatabase db = new GameDatabase(file)) {
+            for (GameRecord game : games.subList(0, GAMES / 2)) {
+                db.append(game);
+            }
+            db.flush();
+            for (GameRecord game : games.subList(GAMES / 2, GAMES)) {
+                db.append(game);
+            }
+            int[] count = new int[1];
+            GameDatabase.scan(file, (record, offset) -> count[0]++);
+            assertEquals(GAMES, count[0]);
+        }
+    }
+
+    @Test
+    void scanRejectsCorruptedCommittedGame() throws IOException {
+        Path file = dir.resolve("games.db");
+        long offset;
+        try (GameDatabase db = new GameDatabase(file)) {
+            db.append(games(7).get(0));
+            offset = db.append(games(7).get(1));
+        }
+        try (FileChannel out = FileChannel.open(file,
+            StandardOpenOption.WRITE)) {
+            // overwrite byte of payload, checksum no longer matches
+            out.write(ByteBuffer.wrap(new byte[] {(byte) 0xFF}),
+                offset + Integer.BYTES + 1);
+        }
+        assertThrows(IOException.class,
+            () -> GameDatabase.scan(file, (record, at) -> { }));
+        Path other = dir.resolve("other.db");
+        Files.write(other, new byte[] {1, 2, 3, 4});
+        assertThrows(IOException.class,
+            () -> GameDatabase.scan(other, (record, at) -> { }));
+    }
+
+    /**
+     * Reopens database and queries every position of games.
+     *
+     * @param file database file.
+     * @param games games whose positions are queried.
+     * @return offsets found for each position.
+     * @throws IOException exception on open.
+     */
+    private static List<long[]> answers(final Path file,
+        final List<GameRecord> games) throws IOException {
+        List<long[]> answers = new ArrayList<long[]>();
+        try (GameDatabase db = new GameDatabase(file)) {
+            assertEquals(games.size(), db.getGameCount());
+            for (GameRecord game : games) {
+                game.replay((ply, white, black, turn) -> answers.add(
+                    db.findGames(white, black, turn)));
+            }
+        }
+        return answers;
+    }
+
+    /**
+     * Makes random games.
+     *
+     * @param seed random seed.
+     * @return games.
+     */
+    static List<GameRecord> games(final long seed) {
+        Random random = new Random(seed);
+        List<GameRecord> games = new ArrayList<GameRecord>();
+        for (int g = 0; g < GAMES; g++) {
+            games.add(TestGames.game(random, g % 2 == 0));
+        }
+        return games;
+    }
+
+    /**
+     * Checks that two records hold same game.
+     *
+     * @param expected appended game.
+     * @param actual read game.
+     */
+    static void assertSameGame(final GameRecord expected,
+        final GameRecord actual) {
+        assertEquals(expected.getStartWhite(), actual.getStartWhite());
+        assertEquals(expected.getStartBlack(), actual.getStartBlack());
+        assertEquals(expected.getStartTurn(), actual.getStartTurn());
+        assertEquals(expected.getResult(), actual.getResult());
+        assertArrayEquals(expected.getSquares(), actual.getSquares());
+    }
+
+    /**
+     * Checks if offsets contain offset.
+     *
+     * @param offsets offsets.
+     * @param offset searched offset.
+     * @return true if found.
+     */
+    private static boolean contains(final long[] offsets,
+        final long offset) {
+        for (long o : offsets) {
+            if (o == offset) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,166 @@
+package com.yacotaco;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * GameJournalTest class.
+ * Checks that unfinished game is recovered from journal with its
+ * position, moves and clocks, and that finished games, replaced games and
+ * torn or corrupted tails are handled.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+class GameJournalTest {
+    /** Number of games per test. */
+    private static final int GAMES = 20;
+
+    /** Directory for test files. */
+    @TempDir
+    Path dir;
+
+    @Test
+    void unfinishedGameIsRecovered() throws Exception {
+        Random random = new Random(1);
+        Path file = dir.resolve("game.journal");
+        for (int g = 0; g < GAMES; g++) {
+            GameRecord game = TestGames.game(random, g % 2 == 0);
+            GameRecord played = prefix(game, game.getMoveCount() / 2);
+            try (GameJournal journal = GameJournal.open(file)) {
+                journal.begin(prefix(game, 0));
+                for (int i = 0; i < played.getMoveCount(); i++) {
+                    journal.move(played.getSquare(i),
+                        played.getClockMillis(i), played.getTimestamp(i));
+                }
+                journal.sync();
+                assertEquals(1 + played.getMoveCount(),
+                    journal.getRecordCount());
+                assertTrue(journal.getSyncCount()
+                    <= journal.getRecordCount());
+            }
+            assertRecovered(played, GameJournal.recover(file));
+        }
+    }
+
+    @Test
+    void beginWritesMovesSoFarAndDropsPreviousGame() throws Exception {
+        Random random = new Random(2);
+        Path file = dir.resolve("game.journal");
+        GameRecord first = TestGames.game(random, true);
+        GameRecord second = TestGames.game(random, false);
+        GameRecord played = prefix(second, second.getMoveCount() / 2);
+        try (GameJournal journal = GameJournal.open(file)) {
+            journal.begin(first);
+            journal.sync();
+            journal.begin(played);
+        }
+        assertRecovered(played, GameJournal.recover(file));
+    }
+
+    @Test
+    void finishedGameIsNotRecovered() throws Exception {
+        Path file = dir.resolve("game.journal");
+        GameRecord game = TestGames.game(new Random(3), true);
+        try (GameJournal journal = GameJournal.open(file)) {
+            journal.begin(game);
+            journal.end(game.getResult());
+        }
+        assertNull(GameJournal.recover(file));
+        assertNull(GameJournal.recover(dir.resolve("missing.journal")));
+        Files.write(dir.resolve("other.journal"), new byte[] {1, 2, 3});
+        assertNull(GameJournal.recover(dir.resolve("other.journal")));
+    }
+
+    @Test
+    void tornOrCorruptedTailIsDropped() throws Exception {
+        Path file = dir.resolve("game.journal");
+        GameRecord game = TestGames.game(new Random(4), true);
+        GameRecord played = prefix(game, game.getMoveCount() / 2);
+        try (GameJournal journal = GameJournal.open(file)) {
+            journal.begin(played);
+        }
+        GameRecord shorter = prefix(game, played.getMoveCount() - 1);
+        long size = Files.size(file);
+        try (FileChannel out = FileChannel.open(file,
+            StandardOpenOption.WRITE)) {
+            // checksum of last move record no longer matches
+            out.write(ByteBuffer.wrap(new byte[] {(byte) 0xFF}), size - 1);
+        }
+        assertRecovered(shorter, GameJournal.recover(file));
+        try (FileChannel out = FileChannel.open(file,
+            StandardOpenOption.WRITE)) {
+            out.truncate(size - 2);
+        }
+        assertRecovered(shorter, GameJournal.recover(file));
+    }
+
+    /**
+     * Copies first moves of game.
+     *
+     * @param game game record.
+     * @param moves number of moves.
+     * @return record of game so far.
+     */
+    private static GameRecord prefix(final GameRecord game,
+        final int moves) {
+        GameRecord record = new GameRecord();
+        record.reset(game.getStartWhite(), game.getStartBlack(),
+            game.getStartTurn(), game.getStartTime());
+        for (int i = 0; i < moves; i++) {
+            record.addMove(game.getSquare(i), game.getTimestamp(i),
+                game.getClockMillis(i));
+        }
+        return record;
+    }
+
+    /**
+     * Checks that recovered game continues played game.
+     *
+     * @param played game so far.
+     * @param game recovered game.
+     */
+    private static void assertRecovered(final GameRecord played,
+        final SavedGame game) {
+        assertNotNull(game);
+        long[] position = new long[2];
+        assertTrue(played.replay((ply, white, black, turn) -> {
+            position[0] = white;
+            position[1] = black;
+        }));
+        int moves = played.getMoveCount();
+        int turn = played.getPlayer(moves);
+        assertEquals(position[0], game.getWhiteMask());
+        assertEquals(position[1], game.getBlackMask());
+        assertEquals(turn, game.getPlayerTurn());
+        assertEquals(played.getStartWhite(), game.getStartWhiteMask());
+        assertEquals(played.getStartBlack(), game.getStartBlackMask());
+        assertEquals(played.getStartTurn(), game.getStartTurn());
+        assertArrayEquals(played.getSquares(), game.getMoves());
+        assertArrayEquals(played.getClocks(), game.getMoveClocks());
+        boolean timed = moves > 0
+            && played.getClockMillis(moves - 1) != GameRecord.NO_CLOCK;
+        assertEquals(timed, game.isTimerOn());
+        for (int i = moves - 1; timed && i >= 0; i--) {
+            // player to move gets back time left at their last move
+            if (played.getPlayer(i) == turn) {
+                assertEquals(played.getClockMillis(i), game.getClockMillis());
+                return;
+            }
+        }
+    }
+}
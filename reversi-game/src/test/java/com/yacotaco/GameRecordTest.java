@@ -0,0 +1,106 @@
+package com.yacotaco;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * GameRecordTest class.
+ * Checks replay of recorded moves and move strings.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+class GameRecordTest {
+    @Test
+    void replayVisitsEveryPositionAndEndsWithResult() {
+        Random random = new Random(1);
+        for (int game = 0; game < 100; game++) {
+            GameRecord record = TestGames.game(random, game % 2 == 0);
+            List<long[]> visits = new ArrayList<long[]>();
+            assertTrue(record.replay((ply, white, black, turn) -> {
+                assertEquals(visits.size(), ply);
+                assertEquals(record.getPlayer(ply), turn);
+                visits.add(new long[] {white, black});
+            }));
+            assertEquals(record.getMoveCount() + 1, visits.size());
+            long[] last = visits.get(visits.size() - 1);
+            assertEquals(record.getResult(),
+                Long.bitCount(last[0]) - Long.bitCount(last[1]));
+            assertEquals(BitBoard.GAME_OVER, BitBoard.status(last[0],
+                last[1]));
+        }
+    }
+
+    @Test
+    void replayInsertsMissingPasses() {
+        Random random = new Random(2);
+        int inserted = 0;
+        for (int game = 0; game < 300; game++) {
+            GameRecord record = TestGames.game(random, false);
+            GameRecord stripped = new GameRecord();
+            stripped.reset(record.getStartWhite(), record.getStartBlack(),
+                record.getStartTurn(), record.getStartTime());
+            for (int i = 0; i < record.getMoveCount(); i++) {
+                if (record.getSquare(i) != GameRecord.PASS) {
+                    stripped.addMove(record.getSquare(i),
+                        record.getTimestamp(i), GameRecord.NO_CLOCK);
+                }
+            }
+            inserted += record.getMoveCount() - stripped.getMoveCount();
+            assertTrue(stripped.replay(null));
+            assertEquals(record.getMoveCount(), stripped.getMoveCount());
+            for (int i = 0; i < record.getMoveCount(); i++) {
+                assertEquals(record.getSquare(i), stripped.getSquare(i));
+            }
+        }
+        assertTrue(inserted > 0, "no passes in test games");
+    }
+
+    @Test
+    void replayRejectsIllegalMove() {
+        GameRecord record = new GameRecord();
+        record.reset(GameRecord.INITIAL_WHITE, GameRecord.INITIAL_BLACK, 0,
+            0L);
+        record.addMove(0, 0L, GameRecord.NO_CLOCK);
+        assertFalse(record.replay(null));
+        GameRecord occupied = new GameRecord();
+        occupied.reset(GameRecord.INITIAL_WHITE, GameRecord.INITIAL_BLACK,
+            0, 0L);
+        occupied.addMove(27, 0L, GameRecord.NO_CLOCK);
+        assertFalse(occupied.replay(null));
+    }
+
+    @Test
+    void moveStringStartsWithBlackInStandardOpening() {
+        GameRecord record = new GameRecord();
+        record.reset(GameRecord.INITIAL_WHITE, GameRecord.INITIAL_BLACK,
+            GameRecord.MOVE_STRING_TURN, 0L);
+        // f5 is legal first move of black in standard notation
+        record.addMove(GameRecord.parseSquare('f', '5'), 0L,
+            GameRecord.NO_CLOCK);
+        assertTrue(record.replay(null));
+        assertEquals("f5", record.toMoveString());
+    }
+
+    @Test
+    void timeoutIsWrittenAsPassInMoveString() {
+        GameRecord record = new GameRecord();
+        record.reset(GameRecord.INITIAL_WHITE, GameRecord.INITIAL_BLACK,
+            GameRecord.MOVE_STRING_TURN, 0L);
+        record.addMove(GameRecord.parseSquare('f', '5'), 0L,
+            GameRecord.NO_CLOCK);
+        // white gives up turn with d3 and f6 left
+        record.addMove(GameRecord.PASS, 0L, GameRecord.NO_CLOCK);
+        record.addMove(GameRecord.parseSquare('c', '3'), 0L,
+            GameRecord.NO_CLOCK);
+        assertTrue(record.replay(null));
+        assertEquals("f5pac3", record.toMoveString());
+    }
+}
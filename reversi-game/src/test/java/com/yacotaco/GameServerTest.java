@@ -0,0 +1,98 @@
+package com.yacotaco;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * GameServerTest class.
+ * Plays games over line protocol on loopback: black moves first, as in
+ * standard notation, and server AI answers moves of client.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+class GameServerTest {
+    /** AI think time in milliseconds. */
+    private static final int THINK_MILLIS = 20;
+    /** Index of turn field in state reply. */
+    private static final int TURN_FIELD = 2;
+    /** Index of moves field in state reply. */
+    private static final int MOVES_FIELD = 3;
+
+    /** Server under test. */
+    private GameServer server;
+    /** Client connection. */
+    private Socket socket;
+    /** Client reader. */
+    private BufferedReader in;
+    /** Client writer. */
+    private Writer out;
+
+    @BeforeEach
+    void connect() throws IOException {
+        server = new GameServer(0, THINK_MILLIS, 1);
+        new Thread(server, "game-server").start();
+        socket = new Socket(InetAddress.getLoopbackAddress(),
+            server.getPort());
+        in = new BufferedReader(new InputStreamReader(
+            socket.getInputStream(), StandardCharsets.US_ASCII));
+        out = new OutputStreamWriter(socket.getOutputStream(),
+            StandardCharsets.US_ASCII);
+    }
+
+    @AfterEach
+    void disconnect() throws IOException {
+        socket.close();
+        server.close();
+    }
+
+    @Test
+    void blackMovesFirstFromStandardPosition() throws IOException {
+        String[] state = request("NEW");
+        assertEquals("*", state[TURN_FIELD]);
+        assertTrue(state[MOVES_FIELD].contains("f5"));
+        state = request("MOVE f5");
+        assertEquals("O", state[TURN_FIELD]);
+        assertTrue(request("MOVE a1")[0].equals("ERR"));
+    }
+
+    @Test
+    void serverAnswersAsWhiteUntilGameEnds() throws IOException {
+        String[] state = request("NEW AI");
+        assertEquals("*", state[TURN_FIELD]);
+        while (!state[TURN_FIELD].equals("-")) {
+            // every reply to move comes after AI has moved
+            assertEquals("*", state[TURN_FIELD]);
+            String move = state[MOVES_FIELD].split(",")[0];
+            state = request("MOVE " + move);
+            assertEquals("STATE", state[0]);
+        }
+        assertEquals("-", state[MOVES_FIELD]);
+    }
+
+    /**
+     * Sends command and reads reply.
+     *
+     * @param command command line.
+     * @return words of reply.
+     * @throws IOException exception on connection.
+     */
+    private String[] request(final String command) throws IOException {
+        out.write(command + "\n");
+        out.flush();
+        return in.readLine().split(" ");
+    }
+}
@@ -0,0 +1,115 @@
+package com.yacotaco;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/**
+ * PlayoutTest class.
+ * Checks that random games end in results reachable from position, both
+ * while moves are generated and while they are probed, and that counters
+ * reach engine metrics only when flushed.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+class PlayoutTest {
+    /** Most empty squares of positions whose results are enumerated. */
+    private static final int MAX_EMPTIES = 8;
+    /** Playouts per position. */
+    private static final int PLAYOUTS = 20;
+
+    @Test
+    void resultsAreReachableFromPosition() {
+        Playout playout = new Playout(1);
+        int checked = 0;
+        for (long[] p : TestGames.positions(200, 1)) {
+            int empties = BitBoard.SQUARES - Long.bitCount(p[0] | p[1]);
+            if (empties > MAX_EMPTIES) {
+                continue;
+            }
+            Set<Integer> reachable = new HashSet<Integer>();
+            results(p[0], p[1], false, reachable);
+            for (int i = 0; i < PLAYOUTS; i++) {
+                assertTrue(reachable.contains(playout.play(p[0], p[1])));
+            }
+            checked++;
+        }
+        assertTrue(checked > 0);
+    }
+
+    @Test
+    void resultsStayOnBoard() {
+        Playout playout = new Playout(2);
+        for (long[] p : TestGames.positions(20, 2)) {
+            int result = playout.play(p[0], p[1]);
+            assertTrue(Math.abs(result) <= BitBoard.SQUARES);
+        }
+    }
+
+    @Test
+    void pickReturnsSetBit() {
+        Playout playout = new Playout(3);
+        for (long[] p : TestGames.positions(20, 3)) {
+            long moves = BitBoard.validMoves(p[0], p[1]);
+            if (moves != 0) {
+                assertTrue((moves & (1L << playout.pick(moves))) != 0);
+            }
+        }
+    }
+
+    @Test
+    void countersReachMetricsWhenFlushed() {
+        EngineMetrics metrics = EngineMetrics.get();
+        Playout playout = new Playout(4);
+        playout.setMetricsOn(false);
+        long before = metrics.getPlayouts();
+        playout.play(GameRecord.INITIAL_WHITE, GameRecord.INITIAL_BLACK);
+        playout.flushMetrics();
+        assertEquals(before, metrics.getPlayouts());
+        playout.setMetricsOn(true);
+        playout.play(GameRecord.INITIAL_WHITE, GameRecord.INITIAL_BLACK);
+        playout.flushMetrics();
+        assertEquals(before + 1, metrics.getPlayouts());
+    }
+
+    /**
+     * Collects results of every game which can be played from position.
+     *
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @param passed true if opponent passed last turn.
+     * @param out results from point of view of player to move.
+     */
+    private static void results(final long own, final long opp,
+        final boolean passed, final Set<Integer> out) {
+        long moves = BitBoard.validMoves(own, opp);
+        if (moves == 0) {
+            if (passed) {
+                out.add(Long.bitCount(own) - Long.bitCount(opp));
+                return;
+            }
+            Set<Integer> next = new HashSet<Integer>();
+            results(opp, own, true, next);
+            for (int result : next) {
+                out.add(-result);
+            }
+            return;
+        }
+        Set<Integer> next = new HashSet<Integer>();
+        while (moves != 0) {
+            int square = Long.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+            long flipped = BitBoard.flips(square, own, opp);
+            results(opp & ~flipped, own | flipped | (1L << square), false,
+                next);
+        }
+        for (int result : next) {
+            out.add(-result);
+        }
+    }
+}
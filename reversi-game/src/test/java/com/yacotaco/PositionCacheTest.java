@@ -0,0 +1,114 @@
+package com.yacotaco;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * PositionCacheTest class.
+ * Checks that symmetric positions share entry, that entries of smaller
+ * effort don't replace better ones and that cache stays within its size
+ * while keeping frequently requested positions.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+class PositionCacheTest {
+    /** Cache size in megabytes. */
+    private static final int MEGABYTES = 1;
+    /** Largest number of entries of cache. */
+    private static final int CAPACITY = (int) (MEGABYTES * (1L << 20)
+        / PositionCache.ENTRY_BYTES);
+
+    @Test
+    void symmetricPositionsShareEntry() {
+        PositionCache cache = new PositionCache(MEGABYTES);
+        for (long[] p : TestGames.positions(5, 1)) {
+            long moves = BitBoard.validMoves(p[0], p[1]);
+            if (moves == 0) {
+                continue;
+            }
+            int move = Long.numberOfTrailingZeros(moves);
+            cache.put(p[0], p[1], move, 1f, 1);
+            long[] expected = canonicalAfter(p[0], p[1], move);
+            for (int s = 0; s < Symmetry.COUNT; s++) {
+                long own = Symmetry.transform(p[0], s);
+                long opp = Symmetry.transform(p[1], s);
+                PositionCache.Entry entry = cache.get(own, opp);
+                assertNotNull(entry);
+                // symmetric position may get other move of same result
+                assertArrayEquals(expected,
+                    canonicalAfter(own, opp, entry.getMove()));
+            }
+        }
+    }
+
+    @Test
+    void smallerEffortDoesNotReplaceEntry() {
+        PositionCache cache = new PositionCache(MEGABYTES);
+        long own = GameRecord.INITIAL_WHITE;
+        long opp = GameRecord.INITIAL_BLACK;
+        final int move = 19;
+        final int other = 26;
+        final long effort = 1000;
+        assertNull(cache.get(own, opp));
+        cache.put(own, opp, move, 0.5f, effort);
+        cache.put(own, opp, other, 0.9f, effort - 1);
+        PositionCache.Entry entry = cache.get(own, opp);
+        assertEquals(move, entry.getMove());
+        assertEquals(0.5f, entry.getScore());
+        assertEquals(effort, entry.getEffort());
+        cache.put(own, opp, other, 0.9f, effort + 1);
+        assertEquals(other, cache.get(own, opp).getMove());
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void frequentPositionsSurviveOneOffPositions() {
+        PositionCache cache = new PositionCache(MEGABYTES);
+        List<long[]> positions = TestGames.positions(300, 2);
+        final int frequent = 100;
+        final int requests = 15;
+        for (long[] p : positions.subList(0, frequent)) {
+            for (int i = 0; i < requests; i++) {
+                cache.get(p[0], p[1]);
+            }
+            cache.put(p[0], p[1], 0, 0f, 1);
+        }
+        // one-off positions are requested once, as in search misses
+        for (long[] p : positions.subList(frequent, positions.size())) {
+            if (cache.get(p[0], p[1]) == null) {
+                cache.put(p[0], p[1], 0, 0f, 1);
+            }
+        }
+        assertTrue(positions.size() > 2 * CAPACITY);
+        assertTrue(cache.size() <= CAPACITY);
+        for (long[] p : positions.subList(0, frequent)) {
+            assertNotNull(cache.get(p[0], p[1]));
+        }
+    }
+
+    /**
+     * Gets canonical position after move.
+     *
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @param move square of legal move.
+     * @return canonical own and opponent masks.
+     */
+    private static long[] canonicalAfter(final long own, final long opp,
+        final int move) {
+        long flipped = BitBoard.flips(move, own, opp);
+        long[] key = new long[2];
+        Symmetry.canonical(own | flipped | (1L << move), opp & ~flipped,
+            key);
+        return key;
+    }
+}
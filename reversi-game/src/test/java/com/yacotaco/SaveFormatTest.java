@@ -0,0 +1,191 @@
+package com.yacotaco;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * SaveFormatTest class.
+ * Checks binary saves of every version and import of legacy text saves.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+class SaveFormatTest {
+    /** Moves of test game. */
+    private static final byte[] MOVES = {37, 43, 18};
+    /** Clocks of test game moves. */
+    private static final int[] CLOCKS = {59000, 58000, 57500};
+
+    /** Directory for test files. */
+    @TempDir
+    Path dir;
+
+    @Test
+    void currentVersionRoundTrips() throws IOException {
+        SavedGame game = game();
+        Path file = dir.resolve("game.sav");
+        SaveFormat.save(file, game);
+        assertSame(game, SaveFormat.load(file));
+        try (FileChannel channel = FileChannel.open(file)) {
+            assertSame(game, SaveFormat.read(channel));
+        }
+    }
+
+    @Test
+    void version2HasNoClocks() throws IOException {
+        SavedGame game = SaveFormat.decode(legacyBinary(2));
+        assertEquals(3, game.getMoves().length);
+        assertEquals(0, game.getMoveClocks().length);
+        assertEquals(GameRecord.INITIAL_WHITE, game.getStartWhiteMask());
+        assertEquals(1, game.getStartTurn());
+        assertTrue(game.isTimerOn());
+    }
+
+    @Test
+    void version1HasNoStartPosition() throws IOException {
+        SavedGame game = SaveFormat.decode(legacyBinary(1));
+        assertArrayEquals(MOVES, game.getMoves());
+        assertEquals(0x1000L, game.getWhiteMask());
+        assertEquals(1, game.getPlayerTurn());
+        assertEquals(45000, game.getClockMillis());
+    }
+
+    @Test
+    void corruptedSaveIsRejected() {
+        ByteBuffer buffer = SaveFormat.encode(game());
+        buffer.put(10, (byte) (buffer.get(10) ^ 1));
+        assertThrows(IOException.class, () -> SaveFormat.decode(buffer));
+        ByteBuffer truncated = SaveFormat.encode(game());
+        truncated.limit(truncated.limit() - 5);
+        assertThrows(IOException.class, () -> SaveFormat.decode(truncated));
+    }
+
+    @Test
+    void legacyTextIsImported() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                long bit = 1L << (row * 8 + col);
+                int state = (GameRecord.INITIAL_WHITE & bit) != 0 ? 0
+                    : (GameRecord.INITIAL_BLACK & bit) != 0 ? 1 : -1;
+                sb.append(row).append(',').append(col).append(',')
+                    .append(state).append('\n');
+            }
+        }
+        sb.append('1');
+        Path file = dir.resolve("legacy.txt");
+        Files.write(file, sb.toString().getBytes(StandardCharsets.US_ASCII));
+        SavedGame game = SaveFormat.load(file);
+        assertEquals(GameRecord.INITIAL_WHITE, game.getWhiteMask());
+        assertEquals(GameRecord.INITIAL_BLACK, game.getBlackMask());
+        assertEquals(1, game.getPlayerTurn());
+        assertEquals(1, game.getStartTurn());
+        assertFalse(game.isTimerOn());
+    }
+
+    @Test
+    void malformedLegacyTextIsRejected() {
+        assertThrows(NumberFormatException.class,
+            () -> legacy("3,3,0\n4,4,0\n3,4,1\n4,3,1\n"));
+        assertThrows(NumberFormatException.class, () -> legacy("0\n"));
+        assertThrows(NumberFormatException.class,
+            () -> legacy("3,3,0\n4,4,1\n7\n"));
+        assertThrows(NumberFormatException.class,
+            () -> legacy("3,3,0\n-1\n"));
+        assertThrows(NumberFormatException.class,
+            () -> legacy("8,0,0\n0\n"));
+        assertThrows(NumberFormatException.class,
+            () -> legacy("3,x,0\n0\n"));
+    }
+
+    /**
+     * Parses legacy text.
+     *
+     * @param text file content.
+     * @return game snapshot.
+     */
+    private static SavedGame legacy(final String text) {
+        return SaveFormat.parseLegacy(ByteBuffer.wrap(
+            text.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    /**
+     * Makes timed game snapshot after three moves.
+     *
+     * @return game snapshot.
+     */
+    private static SavedGame game() {
+        SavedGame game = new SavedGame();
+        game.setWhiteMask(0x0000081C08000000L);
+        game.setBlackMask(0x0000200010040000L);
+        game.setPlayerTurn(1);
+        game.setTimerOn(true);
+        game.setClockMillis(57500);
+        game.setStartWhiteMask(GameRecord.INITIAL_WHITE);
+        game.setStartBlackMask(GameRecord.INITIAL_BLACK);
+        game.setStartTurn(0);
+        game.setMoves(MOVES.clone());
+        game.setMoveClocks(CLOCKS.clone());
+        return game;
+    }
+
+    /**
+     * Writes record of older version by hand.
+     *
+     * @param version 1 (no start position) or 2 (no move clocks).
+     * @return flipped buffer with record.
+     */
+    private static ByteBuffer legacyBinary(final int version) {
+        ByteBuffer buffer = ByteBuffer.allocate(128);
+        buffer.putInt(SaveFormat.MAGIC).putShort((short) version);
+        buffer.put((byte) 1).put((byte) 1);
+        buffer.putLong(0x1000L).putLong(0x2000L).putInt(45000);
+        if (version > 1) {
+            buffer.putLong(GameRecord.INITIAL_WHITE);
+            buffer.putLong(GameRecord.INITIAL_BLACK);
+            buffer.put((byte) 1);
+        }
+        buffer.putShort((short) MOVES.length).put(MOVES);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Checks that two snapshots hold same game.
+     *
+     * @param expected written snapshot.
+     * @param actual read snapshot.
+     */
+    private static void assertSame(final SavedGame expected,
+        final SavedGame actual) {
+        assertEquals(expected.getWhiteMask(), actual.getWhiteMask());
+        assertEquals(expected.getBlackMask(), actual.getBlackMask());
+        assertEquals(expected.getPlayerTurn(), actual.getPlayerTurn());
+        assertEquals(expected.isTimerOn(), actual.isTimerOn());
+        assertEquals(expected.getClockMillis(), actual.getClockMillis());
+        assertEquals(expected.getStartWhiteMask(),
+            actual.getStartWhiteMask());
+        assertEquals(expected.getStartBlackMask(),
+            actual.getStartBlackMask());
+        assertEquals(expected.getStartTurn(), actual.getStartTurn());
+        assertArrayEquals(expected.getMoves(), actual.getMoves());
+        assertArrayEquals(expected.getMoveClocks(), actual.getMoveClocks());
+    }
+}
@@ -0,0 +1,139 @@
+package com.yacotaco;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * SearchSchedulerTest class.
+ * Checks that queued searches return legal moves, use and fill position
+ * cache, are served earliest deadline first and are cancelled on close.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+class SearchSchedulerTest {
+    /** Base budget of one search in milliseconds. */
+    private static final long BUDGET_MILLIS = 20;
+    /** Longest wait for result in seconds. */
+    private static final long WAIT_SECONDS = 10;
+
+    @Test
+    void searchesReturnLegalMoves() throws Exception {
+        PositionCache cache = new PositionCache(1);
+        try (SearchScheduler scheduler =
+            new SearchScheduler(2, BUDGET_MILLIS, cache)) {
+            List<long[]> positions = TestGames.positions(1, 1);
+            List<CompletableFuture<Integer>> results =
+                new ArrayList<CompletableFuture<Integer>>();
+            for (long[] p : positions) {
+                results.add(scheduler.submit(p[0], p[1], deadline()));
+            }
+            for (int i = 0; i < positions.size(); i++) {
+                long[] p = positions.get(i);
+                long moves = BitBoard.validMoves(p[0], p[1]);
+                int square = results.get(i).get(WAIT_SECONDS,
+                    TimeUnit.SECONDS);
+                if (moves == 0) {
+                    assertEquals(-1, square);
+                } else {
+                    assertTrue((moves & (1L << square)) != 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    void searchResultIsCachedAndReused() throws Exception {
+        PositionCache cache = new PositionCache(1);
+        long own = GameRecord.INITIAL_BLACK;
+        long opp = GameRecord.INITIAL_WHITE;
+        try (SearchScheduler scheduler =
+            new SearchScheduler(1, BUDGET_MILLIS, cache)) {
+            int square = scheduler.submit(own, opp, deadline())
+                .get(WAIT_SECONDS, TimeUnit.SECONDS);
+            PositionCache.Entry entry = cache.get(own, opp);
+            assertNotNull(entry);
+            assertEquals(square, entry.getMove());
+            // any legal move with enough effort is answered from cache
+            long moves = BitBoard.validMoves(own, opp) & ~(1L << square);
+            int cached = Long.numberOfTrailingZeros(moves);
+            cache.put(own, opp, cached, 0f, Long.MAX_VALUE);
+            assertEquals(cached, (int) scheduler.submit(own, opp,
+                deadline()).get(WAIT_SECONDS, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void earliestDeadlineIsServedFirst() throws Exception {
+        List<Integer> order = Collections.synchronizedList(
+            new ArrayList<Integer>());
+        long[] p = TestGames.positions(1, 2).get(0);
+        try (SearchScheduler scheduler = new SearchScheduler(1,
+            BUDGET_MILLIS, new PositionCache(1))) {
+            // busy worker lets next requests wait in queue together
+            CompletableFuture<Integer> busy =
+                scheduler.submit(p[0], p[1], deadline());
+            long now = System.nanoTime();
+            CompletableFuture<Integer> late = scheduler.submit(
+                GameRecord.INITIAL_WHITE, GameRecord.INITIAL_BLACK,
+                now + TimeUnit.SECONDS.toNanos(2));
+            CompletableFuture<Integer> early = scheduler.submit(
+                GameRecord.INITIAL_BLACK, GameRecord.INITIAL_WHITE,
+                now + TimeUnit.SECONDS.toNanos(1));
+            CompletableFuture.allOf(busy,
+                late.whenComplete((square, error) -> order.add(2)),
+                early.whenComplete((square, error) -> order.add(1)))
+                .get(WAIT_SECONDS, TimeUnit.SECONDS);
+        }
+        assertEquals(List.of(1, 2), order);
+    }
+
+    @Test
+    void closeCancelsWaitingAndLaterRequests()
+        throws InterruptedException, ExecutionException, TimeoutException {
+        final long poll = 1;
+        long[] p = TestGames.positions(1, 3).get(0);
+        SearchScheduler scheduler = new SearchScheduler(1,
+            TimeUnit.SECONDS.toMillis(1), new PositionCache(1));
+        CompletableFuture<Integer> running = scheduler.submit(p[0], p[1],
+            System.nanoTime() + TimeUnit.SECONDS.toNanos(1));
+        CompletableFuture<Integer> waiting = scheduler.submit(p[0], p[1],
+            System.nanoTime() + TimeUnit.SECONDS.toNanos(2));
+        while (scheduler.getPending() > 1) {
+            Thread.sleep(poll);
+        }
+        scheduler.close();
+        assertTrue(waiting.isCancelled());
+        assertFalse(scheduler.isRunning());
+        CompletableFuture<Integer> later = scheduler.submit(p[0], p[1],
+            deadline());
+        assertThrows(CancellationException.class,
+            () -> later.get(WAIT_SECONDS, TimeUnit.SECONDS));
+        // search already running still completes
+        running.get(WAIT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Gets deadline of request submitted now.
+     *
+     * @return System.nanoTime() value.
+     */
+    private static long deadline() {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(
+            BUDGET_MILLIS * 2);
+    }
+}
@@ -0,0 +1,86 @@
+package com.yacotaco;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * StableDiscsTest class.
+ * Checks that discs reported stable are never flipped in random
+ * continuations of random positions.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+class StableDiscsTest {
+    /** Random continuations played from each position. */
+    private static final int CONTINUATIONS = 20;
+
+    @Test
+    void stableDiscsAreNeverFlipped() {
+        Random random = new Random(10);
+        long found = 0;
+        for (long[] p : TestGames.positions(100, 11)) {
+            long stableOwn = BitBoard.stable(p[0], p[1]);
+            long stableOpp = BitBoard.stable(p[1], p[0]);
+            assertEquals(stableOwn, stableOwn & p[0]);
+            assertEquals(stableOpp, stableOpp & p[1]);
+            found += Long.bitCount(stableOwn | stableOpp);
+            for (int i = 0; i < CONTINUATIONS; i++) {
+                continuation(p[0], p[1], stableOwn, stableOpp, random);
+            }
+        }
+        assertTrue(found > 0, "no stable discs in test positions");
+    }
+
+    @Test
+    void fullBoardIsStable() {
+        long own = 0x00FF00FF00FF00FFL;
+        assertEquals(own, BitBoard.stable(own, ~own));
+        assertEquals(~own, BitBoard.stable(~own, own));
+    }
+
+    /**
+     * Plays random game to the end, checking after each move that stable
+     * discs keep their colour.
+     *
+     * @param own discs of player to move.
+     * @param opp discs of opponent.
+     * @param stableOwn stable discs of player to move.
+     * @param stableOpp stable discs of opponent.
+     * @param random random generator.
+     */
+    private static void continuation(final long own, final long opp,
+        final long stableOwn, final long stableOpp, final Random random) {
+        // first and second mover of position
+        long first = own;
+        long second = opp;
+        boolean firstToMove = true;
+        boolean passed = false;
+        while (true) {
+            long me = firstToMove ? first : second;
+            long other = firstToMove ? second : first;
+            long moves = BitBoard.validMoves(me, other);
+            if (moves == 0) {
+                if (passed) {
+                    return;
+                }
+                passed = true;
+            } else {
+                passed = false;
+                int square = TestGames.randomBit(moves, random);
+                long flipped = BitBoard.flips(square, me, other);
+                me |= flipped | (1L << square);
+                other &= ~flipped;
+                first = firstToMove ? me : other;
+                second = firstToMove ? other : me;
+                assertEquals(stableOwn, first & stableOwn);
+                assertEquals(stableOpp, second & stableOpp);
+            }
+            firstToMove = !firstToMove;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.yacotaco;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * SymmetryTest class.
+ * Checks that symmetries are undone by their inverses, agree between masks
+ * and squares, and keep move generation and flipping.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+class SymmetryTest {
+    @Test
+    void inverseUndoesTransform() {
+        Random random = new Random(7);
+        for (int i = 0; i < 1000; i++) {
+            long x = random.nextLong();
+            for (int s = 0; s < Symmetry.COUNT; s++) {
+                long y = Symmetry.transform(x, s);
+                assertEquals(x, Symmetry.transform(y, Symmetry.inverse(s)));
+            }
+        }
+    }
+
+    @Test
+    void squaresMatchMasks() {
+        for (int s = 0; s < Symmetry.COUNT; s++) {
+            for (int square = 0; square < BitBoard.SQUARES; square++) {
+                int t = Symmetry.transformSquare(square, s);
+                assertEquals(1L << t, Symmetry.transform(1L << square, s));
+                assertEquals(square, Symmetry.toOriginal(t, s));
+            }
+        }
+    }
+
+    @Test
+    void movesAndFlipsCommuteWithSymmetry() {
+        for (long[] p : TestGames.positions(50, 8)) {
+            for (int s = 0; s < Symmetry.COUNT; s++) {
+                long own = Symmetry.transform(p[0], s);
+                long opp = Symmetry.transform(p[1], s);
+                long moves = BitBoard.validMoves(p[0], p[1]);
+                assertEquals(Symmetry.transform(moves, s),
+                    BitBoard.validMoves(own, opp));
+                while (moves != 0) {
+                    int square = Long.numberOfTrailingZeros(moves);
+                    moves &= moves - 1;
+                    assertEquals(Symmetry.transform(
+                        BitBoard.flips(square, p[0], p[1]), s),
+                        BitBoard.flips(Symmetry.transformSquare(square, s),
+                            own, opp));
+                }
+            }
+        }
+    }
+
+    @Test
+    void symmetricPositionsHaveOneCanonicalForm() {
+        long[] expected = new long[2];
+        long[] out = new long[2];
+        for (long[] p : TestGames.positions(50, 9)) {
+            int found = Symmetry.canonical(p[0], p[1], expected);
+            assertEquals(expected[0], Symmetry.transform(p[0], found));
+            assertEquals(expected[1], Symmetry.transform(p[1], found));
+            for (int s = 0; s < Symmetry.COUNT; s++) {
+                Symmetry.canonical(Symmetry.transform(p[0], s),
+                    Symmetry.transform(p[1], s), out);
+                assertArrayEquals(expected, out);
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.yacotaco;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * TestGames class.
+ * Random games and positions for tests, played the way app plays them:
+ * white moves first, passes are recorded and timed games may lose turns
+ * on timeout.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+final class TestGames {
+    /** Start time of games (whole seconds, as in GGF dates). */
+    static final long START_TIME = 1600000000000L;
+    /** Clock of timed games at start in milliseconds. */
+    private static final int CLOCK_MILLIS = 60000;
+    /** Chance of timeout in one of this many moves of timed game. */
+    private static final int TIMEOUT_ODDS = 20;
+    /** Longest think time of one move in milliseconds. */
+    private static final int MAX_THINK_MILLIS = 900;
+
+    /**
+     * TestGames constructor.
+     */
+    private TestGames() {
+    }
+
+    /**
+     * Plays random game from initial position with white to move.
+     *
+     * @param random random generator.
+     * @param timed true for clocks and occasional timeouts.
+     * @return finished game record.
+     */
+    static GameRecord game(final Random random, final boolean timed) {
+        GameRecord record = new GameRecord();
+        record.reset(GameRecord.INITIAL_WHITE, GameRecord.INITIAL_BLACK, 0,
+            START_TIME);
+        record.setWhiteName("white");
+        record.setBlackName("black");
+        long own = GameRecord.INITIAL_WHITE;
+        long opp = GameRecord.INITIAL_BLACK;
+        long time = START_TIME;
+        int[] clocks = {CLOCK_MILLIS, CLOCK_MILLIS};
+        while (BitBoard.status(own, opp) != BitBoard.GAME_OVER) {
+            int player = record.getPlayer(record.getMoveCount());
+            int think = 1 + random.nextInt(MAX_THINK_MILLIS);
+            time += think;
+            clocks[player] = Math.max(0, clocks[player] - think);
+            int clock = timed ? clocks[player] : GameRecord.NO_CLOCK;
+            long moves = BitBoard.validMoves(own, opp);
+            if (moves == 0
+                || (timed && random.nextInt(TIMEOUT_ODDS) == 0)) {
+                record.addMove(GameRecord.PASS, time, clock);
+            } else {
+                int square = randomBit(moves, random);
+                long flipped = BitBoard.flips(square, own, opp);
+                own |= flipped | (1L << square);
+                opp &= ~flipped;
+                record.addMove(square, time, clock);
+            }
+            long swap = own;
+            own = opp;
+            opp = swap;
+        }
+        int player = record.getPlayer(record.getMoveCount());
+        long white = player == 0 ? own : opp;
+        long black = player == 0 ? opp : own;
+        record.setResult(Long.bitCount(white) - Long.bitCount(black));
+        return record;
+    }
+
+    /**
+     * Plays random games and collects every position of them.
+     *
+     * @param games number of games.
+     * @param seed random seed.
+     * @return positions as own mask and opponent mask of player to move.
+     */
+    static List<long[]> positions(final int games, final long seed) {
+        Random random = new Random(seed);
+        List<long[]> positions = new ArrayList<long[]>();
+        for (int game = 0; game < games; game++) {
+            long own = GameRecord.INITIAL_WHITE;
+            long opp = GameRecord.INITIAL_BLACK;
+            boolean passed = false;
+            while (true) {
+                positions.add(new long[] {own, opp});
+                long moves = BitBoard.validMoves(own, opp);
+                if (moves == 0) {
+                    if (passed) {
+                        break;
+                    }
+                    passed = true;
+                } else {
+                    passed = false;
+                    int square = randomBit(moves, random);
+                    long flipped = BitBoard.flips(square, own, opp);
+                    own |= flipped | (1L << square);
+                    opp &= ~flipped;
+                }
+                long swap = own;
+                own = opp;
+                opp = swap;
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Picks random set bit.
+     *
+     * @param mask non-zero bit mask.
+     * @param random random generator.
+     * @return index of chosen bit.
+     */
+    static int randomBit(final long mask, final Random random) {
+        long left = mask;
+        for (int skip = random.nextInt(Long.bitCount(mask)); skip > 0;
+            skip--) {
+            left &= left - 1;
+        }
+        return Long.numberOfTrailingZeros(left);
+    }
+}
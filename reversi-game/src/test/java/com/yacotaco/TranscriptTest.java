@@ -0,0 +1,147 @@
+package com.yacotaco;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * TranscriptTest class.
+ * Checks that games written by {@link TranscriptWriter} are read back by
+ * {@link TranscriptReader} in both formats.
+ *
+ * @author Kamil Kurach
+ * @author https://github.com/yacotaco
+ * @version 1.0
+ */
+class TranscriptTest {
+    /** Number of games per test. */
+    private static final int GAMES = 200;
+
+    @Test
+    void ggfKeepsEveryField() throws IOException {
+        List<GameRecord> games = games(3);
+        List<GameRecord> read = roundTrip(games, TranscriptWriter.Format.GGF);
+        assertEquals(games.size(), read.size());
+        for (int g = 0; g < games.size(); g++) {
+            GameRecord expected = games.get(g);
+            GameRecord actual = read.get(g);
+            assertEquals(expected.getStartWhite(), actual.getStartWhite());
+            assertEquals(expected.getStartBlack(), actual.getStartBlack());
+            assertEquals(expected.getStartTurn(), actual.getStartTurn());
+            assertEquals(expected.getStartTime(), actual.getStartTime());
+            assertEquals(expected.getWhiteName(), actual.getWhiteName());
+            assertEquals(expected.getBlackName(), actual.getBlackName());
+            assertEquals(expected.getResult(), actual.getResult());
+            assertArrayEquals(expected.getSquares(), actual.getSquares());
+            assertArrayEquals(expected.getClocks(), actual.getClocks());
+            for (int i = 0; i < expected.getMoveCount(); i++) {
+                assertEquals(expected.getTimestamp(i),
+                    actual.getTimestamp(i));
+            }
+        }
+    }
+
+    @Test
+    void moveStringsReplayToSameGame() throws IOException {
+        List<GameRecord> games = games(4);
+        List<GameRecord> read =
+            roundTrip(games, TranscriptWriter.Format.MOVES);
+        assertEquals(games.size(), read.size());
+        for (int g = 0; g < games.size(); g++) {
+            GameRecord expected = games.get(g);
+            GameRecord actual = read.get(g);
+            assertEquals(GameRecord.MOVE_STRING_TURN, actual.getStartTurn());
+            assertTrue(actual.replay(null), expected.toMoveString());
+            assertEquals(expected.toMoveString(), actual.toMoveString());
+            assertEquals(expected.getMoveCount(), actual.getMoveCount());
+            assertEquals(finalDiscs(expected)[0], finalDiscs(actual)[1]);
+            assertEquals(finalDiscs(expected)[1], finalDiscs(actual)[0]);
+        }
+    }
+
+    @Test
+    void commentsAndBlankLinesAreSkipped() throws IOException {
+        TranscriptReader reader = new TranscriptReader(
+            new StringReader("# archive\n\nf5d6\n"));
+        GameRecord record = reader.next();
+        assertEquals(2, record.getMoveCount());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void malformedTranscriptIsRejected() {
+        assertThrows(IOException.class, () -> new TranscriptReader(
+            new StringReader("f5d")).next());
+        assertThrows(IOException.class, () -> new TranscriptReader(
+            new StringReader("f5z9")).next());
+        assertThrows(IOException.class, () -> new TranscriptReader(
+            new StringReader("(;GM[Othello]B[f5]")).next());
+    }
+
+    /**
+     * Makes random timed and untimed games.
+     *
+     * @param seed random seed.
+     * @return games.
+     */
+    private static List<GameRecord> games(final long seed) {
+        Random random = new Random(seed);
+        List<GameRecord> games = new ArrayList<GameRecord>();
+        for (int g = 0; g < GAMES; g++) {
+            games.add(TestGames.game(random, g % 2 == 0));
+        }
+        return games;
+    }
+
+    /**
+     * Writes games and reads them back.
+     *
+     * @param games games.
+     * @param format transcript format.
+     * @return read games.
+     * @throws IOException exception on malformed transcript.
+     */
+    private static List<GameRecord> roundTrip(final List<GameRecord> games,
+        final TranscriptWriter.Format format) throws IOException {
+        StringWriter text = new StringWriter();
+        try (TranscriptWriter writer = new TranscriptWriter(text, format)) {
+            for (GameRecord game : games) {
+                writer.write(game);
+            }
+        }
+        List<GameRecord> read = new ArrayList<GameRecord>();
+        try (TranscriptReader reader = new TranscriptReader(
+            new StringReader(text.toString()))) {
+            GameRecord record;
+            while ((record = reader.next()) != null) {
+                read.add(record);
+            }
+        }
+        return read;
+    }
+
+    /**
+     * Gets final disc counts of game.
+     *
+     * @param record game record.
+     * @return white and black discs.
+     */
+    private static int[] finalDiscs(final GameRecord record) {
+        int[] discs = new int[2];
+        record.replay((ply, white, black, turn) -> {
+            discs[0] = Long.bitCount(white);
+            discs[1] = Long.bitCount(black);
+        });
+        return discs;
+    }
+}